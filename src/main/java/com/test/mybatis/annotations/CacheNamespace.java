@@ -21,9 +21,19 @@ public @interface CacheNamespace {
 
 	long flushInterval() default 0;
 
+	long timeToLive() default 0;
+
+	long staleTimeToLive() default 0;
+
 	int size() default 1024;
 
+	long maxBytes() default 0;
+
+	int nearSize() default 0;
+
 	boolean readWrite() default true;
 
+	boolean immutable() default false;
+
 	boolean blocking() default false;
 }
@@ -2,6 +2,7 @@ package com.test.mybatis.binding;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.HashMap;
@@ -10,6 +11,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import com.test.mybatis.annotations.Flush;
 import com.test.mybatis.annotations.MapKey;
@@ -20,7 +22,6 @@ import com.test.mybatis.mapping.SqlCommandType;
 import com.test.mybatis.mapping.StatementType;
 import com.test.mybatis.reflection.MetaObject;
 import com.test.mybatis.reflection.ParamNameResolver;
-import com.test.mybatis.reflection.ParameterizedType;
 import com.test.mybatis.reflection.TypeParameterResolver;
 import com.test.mybatis.session.Configuration;
 import com.test.mybatis.session.ResultHandler;
@@ -38,6 +39,18 @@ public class MapperMethod {
 	}
 
 	public Object execute(SqlSession sqlSession, Object[] args) {
+		if (method.returnsFuture()) {
+			if (command.getType() != SqlCommandType.SELECT) {
+				throw new BindingException("Mapper method '" + command.getName()
+						+ "' returns a CompletableFuture, which is only supported for select statements.");
+			}
+			// 在新的会话中执行，使用自己的连接
+			return sqlSession.executeAsync(asyncSession -> executeCommand(asyncSession, args));
+		}
+		return executeCommand(sqlSession, args);
+	}
+
+	private Object executeCommand(SqlSession sqlSession, Object[] args) {
 		Object result;
 		switch (command.getType()) {
 		case INSERT: {
@@ -262,6 +275,7 @@ public class MapperMethod {
 		private final boolean returnsVoid;
 		private final boolean returnsCursor;
 		private final boolean returnsOptional;
+		private final boolean returnsFuture;
 		private final Class<?> returnType;
 		private final String mapKey;
 		private final Integer resultHandlerIndex;
@@ -270,19 +284,26 @@ public class MapperMethod {
 
 		public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
 			Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+			this.returnsFuture = CompletableFuture.class.equals(method.getReturnType());
+			if (this.returnsFuture) {
+				// 异步方法按CompletableFuture的类型参数决定怎样查询
+				resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+						? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0]
+						: Object.class;
+			}
 			if (resolvedReturnType instanceof Class<?>) {
 				this.returnType = (Class<?>) resolvedReturnType;
 			} else if (resolvedReturnType instanceof ParameterizedType) {
 				this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
 			} else {
-				this.returnType = method.getReturnType();
+				this.returnType = this.returnsFuture ? Object.class : method.getReturnType();
 			}
 			this.returnsVoid = void.class.equals(this.returnType);
 			this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType)
 					|| this.returnType.isArray();
 			this.returnsCursor = Cursor.class.equals(this.returnType);
 			this.returnsOptional = Optional.class.equals(this.returnType);
-			this.mapKey = getMapKey(method);
+			this.mapKey = getMapKey(method, this.returnType);
 			this.returnsMap = this.mapKey != null;
 			this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
 			this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
@@ -343,6 +364,17 @@ public class MapperMethod {
 			return returnsOptional;
 		}
 
+		/**
+		 * return whether return type is
+		 * {@code java.util.concurrent.CompletableFuture}, in which case the other
+		 * methods describe its type argument.
+		 * 
+		 * @return return {@code true}, if the method is executed asynchronously
+		 */
+		public boolean returnsFuture() {
+			return returnsFuture;
+		}
+
 		private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
 			Integer index = null;
 			final Class<?>[] argTypes = method.getParameterTypes();
@@ -359,9 +391,9 @@ public class MapperMethod {
 			return index;
 		}
 
-		private String getMapKey(Method method) {
+		private String getMapKey(Method method, Class<?> returnType) {
 			String mapKey = null;
-			if (Map.class.isAssignableFrom(method.getReturnType())) {
+			if (Map.class.isAssignableFrom(returnType)) {
 				final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
 				if (mapKeyAnnotation != null) {
 					mapKey = mapKeyAnnotation.value();
@@ -42,6 +42,10 @@ public abstract class BaseBuilder {
 		return value == null ? defaultValue : Integer.valueOf(value);
 	}
 
+	protected Long longValueOf(String value, Long defaultValue) {
+		return value == null ? defaultValue : Long.valueOf(value);
+	}
+
 	protected Set<String> stringSetValueOf(String value, String defaultValue) {
 		value = value == null ? defaultValue : value;
 		return new HashSet<>(Arrays.asList(value.split(",")));
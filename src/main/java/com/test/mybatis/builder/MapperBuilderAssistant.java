@@ -105,11 +105,16 @@ public class MapperBuilderAssistant extends BaseBuilder {
 	}
 
 	public Cache useNewCache(Class<? extends Cache> typeClass, Class<? extends Cache> evictionClass, Long flushInterval,
-			Integer size, boolean readWrite, boolean blocking, Properties props) {
+			Long timeToLive, Long staleTimeToLive, Integer size, Long maxBytes, Integer nearSize, boolean readWrite,
+			boolean immutable, boolean blocking, Properties props) {
 		typeClass = valueOrDefault(typeClass, PerpetualCache.class);
 		evictionClass = valueOrDefault(evictionClass, LruCache.class);
 		Cache cache = new CacheBuilder(currentNamespace).implementation(typeClass).addDecorator(evictionClass)
-				.clearInterval(flushInterval).size(size).readWrite(readWrite).blocking(blocking).properties(props)
+				.clearInterval(flushInterval).timeToLive(timeToLive)
+				.staleTimeToLive(staleTimeToLive).size(size).maxBytes(maxBytes).nearSize(nearSize).readWrite(readWrite)
+				.immutable(immutable).blocking(blocking).properties(props).metrics(configuration.getCacheMetrics(currentNamespace))
+				.tableDependencies(configuration.isTableCacheInvalidation() ? configuration.getTableDependencyRegistry()
+						: null)
 				.build();
 		configuration.addCache(cache);
 		currentCache = cache;
@@ -201,6 +206,17 @@ public class MapperBuilderAssistant extends BaseBuilder {
 			Class<?> parameterType, String resultMap, Class<?> resultType, ResultSetType resultSetType,
 			boolean flushCache, boolean useCache, boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty,
 			String keyColumn, String databaseId, LanguageDriver lang, String resultSets) {
+		return addMappedStatement(id, sqlSource, statementType, sqlCommandType, fetchSize, timeout, parameterMap,
+				parameterType, resultMap, resultType, resultSetType, flushCache, useCache, resultOrdered, keyGenerator,
+				keyProperty, keyColumn, databaseId, lang, resultSets, null, null, false);
+	}
+
+	public MappedStatement addMappedStatement(String id, SqlSource sqlSource, StatementType statementType,
+			SqlCommandType sqlCommandType, Integer fetchSize, Integer timeout, String parameterMap,
+			Class<?> parameterType, String resultMap, Class<?> resultType, ResultSetType resultSetType,
+			boolean flushCache, boolean useCache, boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty,
+			String keyColumn, String databaseId, LanguageDriver lang, String resultSets, String tables,
+			String batchDependsOn, boolean batchRewrite) {
 
 		if (unresolvedCacheRef) {
 			throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -221,6 +237,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
 		statementBuilder.lang(lang);
 		statementBuilder.resultOrdered(resultOrdered);
 		statementBuilder.resulSets(resultSets);
+		statementBuilder.tables(tables);
+		statementBuilder.batchDependsOn(getStatementIds(batchDependsOn));
+		statementBuilder.batchRewrite(batchRewrite);
 		setStatementTimeout(timeout, statementBuilder);
 
 		setStatementParameterMap(parameterMap, parameterType, statementBuilder);
@@ -391,6 +410,19 @@ public class MapperBuilderAssistant extends BaseBuilder {
 				notNullColumn, columnPrefix, typeHandler, flags, null, null, configuration.isLazyLoadingEnabled());
 	}
 
+	private Set<String> getStatementIds(String statementIds) {
+		if (statementIds == null) {
+			return null;
+		}
+		Set<String> ids = new HashSet<>();
+		for (String statementId : statementIds.split(",")) {
+			if (!statementId.trim().isEmpty()) {
+				ids.add(applyCurrentNamespace(statementId.trim(), true));
+			}
+		}
+		return ids;
+	}
+
 	public LanguageDriver getLanguageDriver(Class<?> langClass) {
 		if (langClass != null) {
 			configuration.getLanguageRegistry().register(langClass);
@@ -6,6 +6,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -16,6 +17,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.test.mybatis.annotations.Arg;
 import com.test.mybatis.annotations.CacheNamespace;
@@ -60,7 +62,6 @@ import com.test.mybatis.mapping.ResultSetType;
 import com.test.mybatis.mapping.SqlCommandType;
 import com.test.mybatis.mapping.SqlSource;
 import com.test.mybatis.mapping.StatementType;
-import com.test.mybatis.reflection.ParameterizedType;
 import com.test.mybatis.scripting.LanguageDriver;
 import com.test.mybatis.session.Configuration;
 import com.test.mybatis.session.ResultHandler;
@@ -158,8 +159,13 @@ public class MapperAnnotationBuilder {
 		if (cacheDomain != null) {
 			Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
 			Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
-			assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size,
-					cacheDomain.readWrite(), cacheDomain.blocking(), null);
+			Long timeToLive = cacheDomain.timeToLive() == 0 ? null : cacheDomain.timeToLive();
+			Long staleTimeToLive = cacheDomain.staleTimeToLive() == 0 ? null : cacheDomain.staleTimeToLive();
+			Long maxBytes = cacheDomain.maxBytes() == 0 ? null : cacheDomain.maxBytes();
+			Integer nearSize = cacheDomain.nearSize() == 0 ? null : cacheDomain.nearSize();
+			assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, timeToLive,
+					staleTimeToLive, size, maxBytes, nearSize, cacheDomain.readWrite(), cacheDomain.immutable(),
+					cacheDomain.blocking(), null);
 		}
 	}
 
@@ -341,6 +347,20 @@ public class MapperAnnotationBuilder {
 
 	private Class<?> getReturnType(Method method) {
 		Class<?> returnType = method.getReturnType();
+		Type genericReturnType = method.getGenericReturnType();
+		if (CompletableFuture.class.equals(returnType)) {
+			// 异步方法的结果类型是CompletableFuture的类型参数
+			genericReturnType = genericReturnType instanceof ParameterizedType
+					? ((ParameterizedType) genericReturnType).getActualTypeArguments()[0]
+					: Object.class;
+			if (genericReturnType instanceof Class) {
+				returnType = (Class<?>) genericReturnType;
+			} else if (genericReturnType instanceof ParameterizedType) {
+				returnType = (Class<?>) ((ParameterizedType) genericReturnType).getRawType();
+			} else {
+				returnType = Object.class;
+			}
+		}
 		// issue #508
 		if (void.class.equals(returnType)) {
 			ResultType rt = method.getAnnotation(ResultType.class);
@@ -348,7 +368,7 @@ public class MapperAnnotationBuilder {
 				returnType = rt.value();
 			}
 		} else if (Collection.class.isAssignableFrom(returnType)) {
-			Type returnTypeParameter = method.getGenericReturnType();
+			Type returnTypeParameter = genericReturnType;
 			if (returnTypeParameter instanceof ParameterizedType) {
 				Type[] actualTypeArguments = ((ParameterizedType) returnTypeParameter).getActualTypeArguments();
 				if (actualTypeArguments != null && actualTypeArguments.length == 1) {
@@ -368,7 +388,7 @@ public class MapperAnnotationBuilder {
 			}
 		} else if (method.isAnnotationPresent(MapKey.class) && Map.class.isAssignableFrom(returnType)) {
 			// (issue 504) Do not look into Maps if there is not MapKey annotation
-			Type returnTypeParameter = method.getGenericReturnType();
+			Type returnTypeParameter = genericReturnType;
 			if (returnTypeParameter instanceof ParameterizedType) {
 				Type[] actualTypeArguments = ((ParameterizedType) returnTypeParameter).getActualTypeArguments();
 				if (actualTypeArguments != null && actualTypeArguments.length == 2) {
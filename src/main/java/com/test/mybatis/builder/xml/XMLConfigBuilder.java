@@ -3,11 +3,14 @@ package com.test.mybatis.builder.xml;
 import java.io.InputStream;
 import java.io.Reader;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 import javax.sql.DataSource;
 
 import com.test.mybatis.builder.BaseBuilder;
 import com.test.mybatis.builder.BuilderException;
+import com.test.mybatis.cache.cluster.CacheInvalidationTransport;
+import com.test.mybatis.cache.metrics.CacheMetricsFactory;
 import com.test.mybatis.datasource.DataSourceFactory;
 import com.test.mybatis.executor.ErrorContext;
 import com.test.mybatis.executor.loader.ProxyFactory;
@@ -293,6 +296,19 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior
 				.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
 		configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+		configuration.setTableCacheInvalidation(booleanValueOf(props.getProperty("tableCacheInvalidation"), false));
+		configuration.setCacheInvalidationTransport(
+				createCacheInvalidationTransport(props.getProperty("cacheInvalidationTransport")));
+		configuration.setCursorCacheMaxRows(integerValueOf(props.getProperty("cursorCacheMaxRows"), null));
+		configuration.setBatchReordering(booleanValueOf(props.getProperty("batchReordering"), false));
+		configuration.setBatchFlushRows(integerValueOf(props.getProperty("batchFlushRows"), null));
+		configuration.setBatchFlushBytes(longValueOf(props.getProperty("batchFlushBytes"), null));
+		configuration.setBatchFlushStatements(integerValueOf(props.getProperty("batchFlushStatements"), null));
+		configuration.setBatchRewriteChunkSize(integerValueOf(props.getProperty("batchRewriteChunkSize"), null));
+		configuration.setBatchRewriteMaxParameters(integerValueOf(props.getProperty("batchRewriteMaxParameters"), 65535));
+		configuration.setAsyncExecutor((Executor) createInstance(props.getProperty("asyncExecutor")));
+		configuration.setCacheMetricsEnabled(booleanValueOf(props.getProperty("cacheMetricsEnabled"), false));
+		configuration.setCacheMetricsFactory((CacheMetricsFactory) createInstance(props.getProperty("cacheMetricsFactory")));
 		configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
 		configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
 		configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
@@ -307,6 +323,8 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
 		configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
 		configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+		configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), null));
+		configuration.setLocalCacheMaxBytes(longValueOf(props.getProperty("localCacheMaxBytes"), null));
 		configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
 		configuration.setLazyLoadTriggerMethods(
 				stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
@@ -321,6 +339,15 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
 	}
 
+	private CacheInvalidationTransport createCacheInvalidationTransport(String alias) {
+		CacheInvalidationTransport transport = (CacheInvalidationTransport) createInstance(alias);
+		if (transport != null) {
+			// 节点相关的配置(端口、组播地址等)放在<properties>中
+			transport.setProperties(configuration.getVariables());
+		}
+		return transport;
+	}
+
 	private void environmentsElement(XNode context) throws Exception {
 		if (context != null) {
 			if (environment == null) {
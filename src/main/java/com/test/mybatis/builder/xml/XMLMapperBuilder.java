@@ -199,11 +199,17 @@ public class XMLMapperBuilder extends BaseBuilder {
 			String eviction = context.getStringAttribute("eviction", "LRU");
 			Class<? extends Cache> evictionClass = typeAliasRegistry.resolveAlias(eviction);
 			Long flushInterval = context.getLongAttribute("flushInterval");
+			Long timeToLive = context.getLongAttribute("timeToLive");
+			Long staleTimeToLive = context.getLongAttribute("staleTimeToLive");
 			Integer size = context.getIntAttribute("size");
+			Long maxBytes = context.getLongAttribute("maxBytes");
+			Integer nearSize = context.getIntAttribute("nearSize");
 			boolean readWrite = !context.getBooleanAttribute("readOnly", false);
+			boolean immutable = context.getBooleanAttribute("immutable", false);
 			boolean blocking = context.getBooleanAttribute("blocking", false);
 			Properties props = context.getChildrenAsProperties();
-			builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+			builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, timeToLive, staleTimeToLive, size,
+					maxBytes, nearSize, readWrite, immutable, blocking, props);
 		}
 	}
 
@@ -79,6 +79,9 @@ public class XMLStatementBuilder extends BaseBuilder {
 		String resultSets = context.getStringAttribute("resultSets");
 		String keyProperty = context.getStringAttribute("keyProperty");
 		String keyColumn = context.getStringAttribute("keyColumn");
+		String tables = context.getStringAttribute("tables");
+		String batchDependsOn = context.getStringAttribute("batchDependsOn");
+		boolean batchRewrite = context.getBooleanAttribute("batchRewrite", false);
 		KeyGenerator keyGenerator;
 		String keyStatementId = id + SelectKeyGenerator.SELECT_KEY_SUFFIX;
 		keyStatementId = builderAssistant.applyCurrentNamespace(keyStatementId, true);
@@ -93,7 +96,8 @@ public class XMLStatementBuilder extends BaseBuilder {
 
 		builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
 				parameterMap, parameterTypeClass, resultMap, resultTypeClass, resultSetTypeEnum, flushCache, useCache,
-				resultOrdered, keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+				resultOrdered, keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, tables,
+				batchDependsOn, batchRewrite);
 	}
 
 	private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
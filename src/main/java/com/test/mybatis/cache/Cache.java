@@ -84,4 +84,17 @@ public interface Cache {
 	default ReadWriteLock getReadWriteLock() {
 		return null;
 	}
+
+	/**
+	 * 缓存项是否会过期并通过CacheKey中的reloader在后台重新加载
+	 * 
+	 * Optional. When true, CachingExecutor attaches a reloader to the keys it
+	 * puts, so expired entries can be refreshed without the session that loaded
+	 * them.
+	 * 
+	 * @return whether entries put into this cache may be reloaded
+	 */
+	default boolean isReloadable() {
+		return false;
+	}
 }
@@ -1,9 +1,10 @@
 package com.test.mybatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.Callable;
 
 import com.test.mybatis.reflection.ArrayUtil;
 
@@ -24,7 +25,7 @@ import com.test.mybatis.reflection.ArrayUtil;
  */
 public class CacheKey implements Cloneable, Serializable {
 
-	private static final long serialVersionUID = 1146682552656046210L;
+	private static final long serialVersionUID = -3480727453203545283L;
 
 	public static final CacheKey NULL_CACHE_KEY = new CacheKey() {
 		@Override
@@ -38,71 +39,105 @@ public class CacheKey implements Cloneable, Serializable {
 		}
 	};
 
+	private static final int DEFAULT_CAPACITY = 8;
+
 	/**
 	 * 
-	 * 以下两个默认值的取值解释：
-	 * 
-	 * 17是质子数中一个"不大不小"的存在，如果使用的是一个如2的较小的质数，
-	 * 那么得出的乘积会在一个很小的范围内，很容易造成哈希值的冲突，如果选择一个100以上
-	 * 的质数，得出的哈希值会超出int的最大范围，这两种都不合适，而如果对超过
-	 * 5000个英文单词进行hashcode运算，并使用31，33，37，39和41作为乘子，每个常数算出的
-	 * hash值冲突数都小于7个，因此选用了17，37作为备选乘数
+	 * 64位hash的初始值和乘数(黄金分割数)
 	 * 
 	 */
-	private static final int DEFAULT_MULTIPLIER = 37;
-	private static final int DEFAULT_HASHCODE = 17;
+	private static final long SEED = 0x6A09E667F3BCC909L;
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
 
 	/**
 	 * 
-	 * 参与计算hashcode默认值是37
+	 * 依次混入每个对象的hashCode得到的64位hash，对象的顺序也会影响结果。
+	 * 每个对象只贡献32位的hashCode，hashCode相同的对象(例如"Aa"和"BB")得到相同的hash，
+	 * 所以它不是强64位hash，只用来在比较updateList之前快速排除大部分不同的key
 	 * 
 	 */
-	private final int multiplier;
-	
+	private long hash;
+
 	/**
 	 * 
-	 * CacheKey对象的hashcode，初始值是17
+	 * 对象个数
 	 * 
 	 */
-	private int hashcode;
-	
+	private int count;
+	// 8/21/2017 - Sonarlint flags this as needing to be marked transient. While
+	// true if content is not serializable, this is not always true and thus should
+	// not be marked transient.
 	/**
 	 * 
-	 * 校验和
+	 * 由前count个对象共同决定两个CacheKey是否相同，用数组而不是ArrayList，创建时按预计的个数分配
 	 * 
 	 */
-	private long checksum;
-	
+	private Object[] updateList;
+
 	/**
 	 * 
-	 * 集合个数
+	 * 重新执行产生该缓存项的查询，由CachingExecutor设置，ScheduledCache用它在后台刷新过期的缓存项，
+	 * 不参与equals和hashCode
 	 * 
 	 */
-	private int count;
-	// 8/21/2017 - Sonarlint flags this as needing to be marked transient. While
-	// true if content is not serializable, this is not always true and thus should
-	// not be marked transient.
+	private transient Callable<?> reloader;
+
 	/**
 	 * 
-	 * 由该集合中的所有对象共同决定两个CacheKey是否相同
+	 * 产生该缓存项的查询读取的表，为null表示不确定，由CachingExecutor设置，按表淘汰缓存时使用，
+	 * 不参与equals和hashCode
 	 * 
 	 */
-	private List<Object> updateList;
+	private transient Set<String> tables;
 
 	public CacheKey() {
-		this.hashcode = DEFAULT_HASHCODE;
-		this.multiplier = DEFAULT_MULTIPLIER;
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize 预计会放入的对象个数
+	 */
+	public CacheKey(int expectedSize) {
+		this.hash = SEED;
 		this.count = 0;
-		this.updateList = new ArrayList<Object>();
+		this.updateList = new Object[Math.max(expectedSize, 1)];
 	}
 
 	public CacheKey(Object[] objects) {
-		this();
+		this(objects.length);
 		updateAll(objects);
 	}
 
+	/**
+	 * 
+	 * 以prefix中的对象开头，prefix本身不会被修改，可以预先计算好反复使用
+	 * 
+	 * @param expectedMore 预计还会放入的对象个数
+	 */
+	public CacheKey(CacheKey prefix, int expectedMore) {
+		this.hash = prefix.hash;
+		this.count = prefix.count;
+		this.updateList = Arrays.copyOf(prefix.updateList, Math.max(prefix.count + expectedMore, 1));
+	}
+
+	public Callable<?> getReloader() {
+		return reloader;
+	}
+
+	public void setReloader(Callable<?> reloader) {
+		this.reloader = reloader;
+	}
+
+	public Set<String> getTables() {
+		return tables;
+	}
+
+	public void setTables(Set<String> tables) {
+		this.tables = tables;
+	}
+
 	public int getUpdateCount() {
-		return updateList.size();
+		return count;
 	}
 
 	/**
@@ -114,13 +149,13 @@ public class CacheKey implements Cloneable, Serializable {
 	public void update(Object object) {
 		int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
 
-		count++;
-		checksum += baseHashCode;
-		baseHashCode *= count;
-
-		hashcode = multiplier * hashcode + baseHashCode;
+		long mixed = (hash ^ baseHashCode) * MULTIPLIER;
+		hash = mixed ^ (mixed >>> 29);
 
-		updateList.add(object);
+		if (count == updateList.length) {
+			updateList = Arrays.copyOf(updateList, count * 2);
+		}
+		updateList[count++] = object;
 	}
 
 	public void updateAll(Object[] objects) {
@@ -150,12 +185,8 @@ public class CacheKey implements Cloneable, Serializable {
 
 		final CacheKey cacheKey = (CacheKey) object;
 
-		//hashcode 必须相同
-		if (hashcode != cacheKey.hashcode) {
-			return false;
-		}
-		//checksum 必须相同
-		if (checksum != cacheKey.checksum) {
+		//64位hash 必须相同
+		if (hash != cacheKey.hash) {
 			return false;
 		}
 		
@@ -164,11 +195,11 @@ public class CacheKey implements Cloneable, Serializable {
 			return false;
 		}
 
-		//updateList 中的每一个元素必须相同
-		for (int i = 0; i < updateList.size(); i++) {
-			Object thisObject = updateList.get(i);
-			Object thatObject = cacheKey.updateList.get(i);
-			if (!ArrayUtil.equals(thisObject, thatObject)) {
+		//updateList 中的每一个元素必须相同，hashCode相同的不同对象(hash冲突)在这里区分
+		for (int i = 0; i < count; i++) {
+			Object thisObject = updateList[i];
+			Object thatObject = cacheKey.updateList[i];
+			if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
 				return false;
 			}
 		}
@@ -177,22 +208,31 @@ public class CacheKey implements Cloneable, Serializable {
 
 	@Override
 	public int hashCode() {
-		return hashcode;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * 完整的64位hash
+	 */
+	public long getHash() {
+		return hash;
 	}
 
 	@Override
 	public String toString() {
 		StringJoiner returnValue = new StringJoiner(":");
-		returnValue.add(String.valueOf(hashcode));
-		returnValue.add(String.valueOf(checksum));
-		updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+		returnValue.add(String.valueOf(hashCode()));
+		returnValue.add(Long.toHexString(hash));
+		for (int i = 0; i < count; i++) {
+			returnValue.add(ArrayUtil.toString(updateList[i]));
+		}
 		return returnValue.toString();
 	}
 
 	@Override
 	public CacheKey clone() throws CloneNotSupportedException {
 		CacheKey clonedCacheKey = (CacheKey) super.clone();
-		clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+		clonedCacheKey.updateList = updateList.clone();
 		return clonedCacheKey;
 	}
 }
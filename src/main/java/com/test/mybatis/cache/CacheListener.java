@@ -0,0 +1,21 @@
+package com.test.mybatis.cache;
+
+/**
+ *
+ * 监听{@link ObservableCache}中的缓存项被修改或删除
+ *
+ * @author ethan
+ *
+ */
+public interface CacheListener {
+
+	/**
+	 * 缓存项被覆盖、删除或者淘汰，包括其他节点做的修改
+	 */
+	void onRemove(Object key);
+
+	/**
+	 * 整个缓存被清空
+	 */
+	void onClear();
+}
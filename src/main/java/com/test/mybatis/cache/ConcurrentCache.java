@@ -0,0 +1,18 @@
+package com.test.mybatis.cache;
+
+/**
+ * 
+ * 标记接口，表示缓存可以被多个线程同时访问。
+ * <p>
+ * For a base cache it means the store itself is thread-safe. For a decorator
+ * it means the decorator keeps no state that needs external locking, so the
+ * decorated cache is as thread-safe as its delegate. {@code CacheBuilder} only
+ * leaves out the {@code SynchronizedCache} decorator when the base cache and
+ * every decorator in the chain implement this interface.
+ * 
+ * @author ethan
+ *
+ */
+public interface ConcurrentCache extends Cache {
+
+}
@@ -0,0 +1,17 @@
+package com.test.mybatis.cache;
+
+/**
+ *
+ * 可以通知缓存项变化的缓存，通常是多个节点共享的缓存(堆外、进程外)
+ * <p>
+ * {@code NearCache} registers itself so that its local copies are dropped
+ * when the shared store changes. Implementations call the listeners for every
+ * overwrite, removal, eviction and clear, whichever node caused it.
+ *
+ * @author ethan
+ *
+ */
+public interface ObservableCache extends Cache {
+
+	void addListener(CacheListener listener);
+}
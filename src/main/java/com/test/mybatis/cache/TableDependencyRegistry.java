@@ -0,0 +1,41 @@
+package com.test.mybatis.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.test.mybatis.cache.decorators.TableDependencyCache;
+
+/**
+ *
+ * 记录所有按表建立索引的二级缓存，修改某些表之后淘汰所有namespace中依赖这些表的缓存项
+ * <p>
+ * Caches are registered by {@code CacheBuilder} when the
+ * {@code tableCacheInvalidation} setting is on. Caches that are not registered
+ * (custom cache types) are still flushed as a whole by their own namespace's
+ * writes.
+ *
+ * @author ethan
+ *
+ */
+public class TableDependencyRegistry {
+
+	/**
+	 * 完整的缓存对象到它的表索引
+	 */
+	private final Map<Cache, TableDependencyCache> caches = new ConcurrentHashMap<>();
+
+	public void register(Cache cache, TableDependencyCache dependencies) {
+		caches.put(cache, dependencies);
+	}
+
+	public boolean isTracked(Cache cache) {
+		return caches.containsKey(cache);
+	}
+
+	public void invalidate(Collection<String> tables) {
+		for (TableDependencyCache dependencies : caches.values()) {
+			dependencies.invalidate(tables);
+		}
+	}
+}
@@ -1,19 +1,84 @@
 package com.test.mybatis.cache;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+import com.test.mybatis.cache.cluster.CacheInvalidationBus;
 import com.test.mybatis.cache.decorators.TransactionalCache;
 
+/**
+ *
+ * 管理一个会话中用到的事务缓存
+ * <p>
+ * Nothing is staged for a cache hit, so sessions that only read from the cache
+ * never create a {@link TransactionalCache}. Transactional caches and their
+ * collections are created on the first miss, put or clear and reused by the
+ * following transactions of the session.
+ * <p>
+ * A miss still creates the staging state. It is followed by a database query
+ * whose result is put here, which needs the same TransactionalCache and map,
+ * and the missed key must be kept so a {@link com.test.mybatis.cache.decorators.BlockingCache}
+ * lock is released on commit or rollback. The state is not pooled across
+ * sessions: a session is not bound to a thread, and pooled state would have to
+ * be handed back on every close path.
+ *
+ */
 public class TransactionalCacheManager {
 
-	private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+	/**
+	 * 第一次需要暂存时才创建
+	 */
+	private Map<Cache, TransactionalCache> transactionalCaches;
+
+	/**
+	 * 本次事务中修改的表，提交时淘汰所有缓存中依赖它们的缓存项
+	 */
+	private Set<String> tablesToInvalidate;
+	private TableDependencyRegistry tableDependencies;
+
+	/**
+	 * 通知其他节点，单机时为null
+	 */
+	private final CacheInvalidationBus invalidationBus;
+
+	public TransactionalCacheManager() {
+		this(null);
+	}
+
+	public TransactionalCacheManager(CacheInvalidationBus invalidationBus) {
+		this.invalidationBus = invalidationBus;
+	}
 
 	public void clear(Cache cache) {
 		getTransactionalCache(cache).clear();
 	}
 
+	public void invalidate(TableDependencyRegistry tableDependencies, Set<String> tables) {
+		this.tableDependencies = tableDependencies;
+		if (tablesToInvalidate == null) {
+			tablesToInvalidate = new HashSet<>();
+		}
+		tablesToInvalidate.addAll(tables);
+		if (transactionalCaches != null) {
+			for (TransactionalCache txCache : transactionalCaches.values()) {
+				txCache.invalidate(tables);
+			}
+		}
+	}
+
 	public Object getObject(Cache cache, CacheKey key) {
+		TransactionalCache txCache = transactionalCaches == null ? null : transactionalCaches.get(cache);
+		if (txCache == null && !hasTablesToInvalidate()) {
+			// 本事务还没有改动这个缓存，命中时不需要暂存任何内容
+			Object object = cache.getObject(key);
+			if (object == null) {
+				// 未命中时要查询数据库并暂存结果，这时才创建事务缓存
+				getTransactionalCache(cache).markMissed(key);
+			}
+			return object;
+		}
 		return getTransactionalCache(cache).getObject(key);
 	}
 
@@ -22,19 +87,48 @@ public class TransactionalCacheManager {
 	}
 
 	public void commit() {
-		for (TransactionalCache txCache : transactionalCaches.values()) {
-			txCache.commit();
+		if (hasTablesToInvalidate()) {
+			tableDependencies.invalidate(tablesToInvalidate);
+			if (invalidationBus != null) {
+				invalidationBus.publishTables(tablesToInvalidate);
+			}
+			tablesToInvalidate.clear();
+		}
+		if (transactionalCaches != null) {
+			for (TransactionalCache txCache : transactionalCaches.values()) {
+				txCache.commit();
+			}
 		}
 	}
 
 	public void rollback() {
-		for (TransactionalCache txCache : transactionalCaches.values()) {
-			txCache.rollback();
+		if (tablesToInvalidate != null) {
+			tablesToInvalidate.clear();
+		}
+		if (transactionalCaches != null) {
+			for (TransactionalCache txCache : transactionalCaches.values()) {
+				txCache.rollback();
+			}
 		}
 	}
 
+	private boolean hasTablesToInvalidate() {
+		return tablesToInvalidate != null && !tablesToInvalidate.isEmpty();
+	}
+
 	private TransactionalCache getTransactionalCache(Cache cache) {
-		return transactionalCaches.computeIfAbsent(cache, TransactionalCache::new);
+		if (transactionalCaches == null) {
+			transactionalCaches = new HashMap<>(4);
+		}
+		TransactionalCache txCache = transactionalCaches.get(cache);
+		if (txCache == null) {
+			txCache = new TransactionalCache(cache, invalidationBus);
+			if (hasTablesToInvalidate()) {
+				txCache.invalidate(tablesToInvalidate);
+			}
+			transactionalCaches.put(cache, txCache);
+		}
+		return txCache;
 	}
 
 }
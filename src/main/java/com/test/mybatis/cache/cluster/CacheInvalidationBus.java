@@ -0,0 +1,128 @@
+package com.test.mybatis.cache.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.test.mybatis.logging.Log;
+import com.test.mybatis.logging.LogFactory;
+import com.test.mybatis.session.Configuration;
+
+/**
+ *
+ * 集群中二级缓存的失效通知，事务提交时把清空的namespace和修改的表广播给其他节点
+ * <p>
+ * Every node that shares the database runs a bus on the same transport. On
+ * commit, {@code TransactionalCache} publishes the namespaces it cleared and
+ * {@code TransactionalCacheManager} the tables it invalidated (see the
+ * {@code tableCacheInvalidation} setting). Receiving nodes clear the same
+ * caches, or evict the entries that depend on those tables. Messages a node
+ * sent itself are ignored. Publishing never fails a commit: transport errors
+ * are only logged.
+ *
+ * @author ethan
+ *
+ */
+public class CacheInvalidationBus {
+
+	private static final Log log = LogFactory.getLog(CacheInvalidationBus.class);
+
+	private static final int VERSION = 1;
+	private static final byte CLEAR = 1;
+	private static final byte TABLES = 2;
+
+	private final String nodeId = UUID.randomUUID().toString();
+	private final Configuration configuration;
+	private final CacheInvalidationTransport transport;
+
+	public CacheInvalidationBus(Configuration configuration, CacheInvalidationTransport transport) {
+		this.configuration = configuration;
+		this.transport = transport;
+		transport.start(this::receive);
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * 通知其他节点清空整个缓存
+	 */
+	public void publishClear(String cacheId) {
+		publish(CLEAR, Collections.singleton(cacheId));
+	}
+
+	/**
+	 * 通知其他节点淘汰依赖这些表的缓存项
+	 */
+	public void publishTables(Collection<String> tables) {
+		publish(TABLES, tables);
+	}
+
+	public void close() {
+		transport.close();
+	}
+
+	private void publish(byte type, Collection<String> names) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(VERSION);
+			out.writeUTF(nodeId);
+			out.writeByte(type);
+			out.writeInt(names.size());
+			for (String name : names) {
+				out.writeUTF(name);
+			}
+			out.flush();
+			transport.publish(bytes.toByteArray());
+		} catch (Exception e) {
+			log.warn("Error publishing cache invalidation for " + names + ". Cause: " + e);
+		}
+	}
+
+	private void receive(byte[] message) {
+		String sender;
+		byte type;
+		List<String> names;
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+			if (in.readByte() != VERSION) {
+				log.warn("Ignoring cache invalidation message of unknown version.");
+				return;
+			}
+			sender = in.readUTF();
+			type = in.readByte();
+			int count = in.readInt();
+			names = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				names.add(in.readUTF());
+			}
+		} catch (IOException e) {
+			log.warn("Ignoring malformed cache invalidation message. Cause: " + e);
+			return;
+		}
+		if (nodeId.equals(sender)) {
+			return;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Node " + sender + " invalidated " + (type == CLEAR ? "caches " : "tables ") + names);
+		}
+		if (type == CLEAR) {
+			for (String cacheId : names) {
+				if (configuration.hasCache(cacheId)) {
+					configuration.getCache(cacheId).clear();
+				}
+			}
+		} else if (type == TABLES) {
+			configuration.getTableDependencyRegistry().invalidate(names);
+		}
+	}
+}
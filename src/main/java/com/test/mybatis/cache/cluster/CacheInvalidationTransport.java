@@ -0,0 +1,32 @@
+package com.test.mybatis.cache.cluster;
+
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ *
+ * 在节点之间传递缓存失效消息，消息内容由{@link CacheInvalidationBus}编码
+ * <p>
+ * Implementations are configured with the {@code cacheInvalidationTransport}
+ * setting and receive the configuration's {@code <properties>} through
+ * {@link #setProperties(Properties)}. Delivery may be best effort; a message
+ * sent by a node may also be delivered back to it.
+ *
+ * @author ethan
+ *
+ */
+public interface CacheInvalidationTransport {
+
+	default void setProperties(Properties properties) {
+		// NOP
+	}
+
+	/**
+	 * 开始接收其他节点的消息
+	 */
+	void start(Consumer<byte[]> receiver);
+
+	void publish(byte[] message);
+
+	void close();
+}
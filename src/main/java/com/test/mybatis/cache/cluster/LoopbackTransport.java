@@ -0,0 +1,57 @@
+package com.test.mybatis.cache.cluster;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ *
+ * 同一个JVM内的传输方式，同一个channel上的所有Configuration互相通知，用于测试和单机多实例
+ * <p>
+ * Messages are delivered synchronously on the publishing thread. The channel is
+ * set with the {@code cacheInvalidation.channel} property.
+ *
+ * @author ethan
+ *
+ */
+public class LoopbackTransport implements CacheInvalidationTransport {
+
+	private static final Map<String, Set<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+	private String channel = "default";
+	private volatile Consumer<byte[]> receiver;
+
+	@Override
+	public void setProperties(Properties properties) {
+		channel = properties.getProperty("cacheInvalidation.channel", channel);
+	}
+
+	@Override
+	public void start(Consumer<byte[]> receiver) {
+		this.receiver = receiver;
+		CHANNELS.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet()).add(this);
+	}
+
+	@Override
+	public void publish(byte[] message) {
+		Set<LoopbackTransport> members = CHANNELS.get(channel);
+		if (members == null) {
+			return;
+		}
+		for (LoopbackTransport member : members) {
+			if (member != this) {
+				member.receiver.accept(message);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		Set<LoopbackTransport> members = CHANNELS.get(channel);
+		if (members != null) {
+			members.remove(this);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.test.mybatis.cache.cluster;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.logging.Log;
+import com.test.mybatis.logging.LogFactory;
+
+/**
+ *
+ * 通过UDP传递缓存失效消息，默认使用组播，也可以配置成向固定的节点单播
+ * <p>
+ * Properties:
+ * <ul>
+ * <li>{@code cacheInvalidation.port}: port to listen on and, for multicast, to
+ * send to (default 45566)</li>
+ * <li>{@code cacheInvalidation.group}: multicast group (default
+ * 230.0.0.1)</li>
+ * <li>{@code cacheInvalidation.peers}: comma separated {@code host:port} list;
+ * when set, messages are sent to every peer by unicast instead of
+ * multicast</li>
+ * <li>{@code cacheInvalidation.ttl}: multicast time to live (default 1)</li>
+ * <li>{@code cacheInvalidation.interface}: name of the network interface to
+ * join the multicast group on (default: the system's choice)</li>
+ * </ul>
+ * UDP does not guarantee delivery: a lost message leaves a node stale until its
+ * entries expire, so caches shared this way should also have a
+ * {@code flushInterval} or {@code timeToLive}.
+ *
+ * @author ethan
+ *
+ */
+public class UdpTransport implements CacheInvalidationTransport {
+
+	private static final Log log = LogFactory.getLog(UdpTransport.class);
+
+	private static final int MAX_MESSAGE_SIZE = 65507;
+
+	private int port = 45566;
+	private String group = "230.0.0.1";
+	private String peers;
+	private int ttl = 1;
+	private String networkInterface;
+
+	private DatagramSocket socket;
+	private final List<InetSocketAddress> targets = new ArrayList<>();
+	private InetSocketAddress joinedGroup;
+	private NetworkInterface joinedInterface;
+	private Thread receiverThread;
+
+	@Override
+	public void setProperties(Properties properties) {
+		port = Integer.parseInt(properties.getProperty("cacheInvalidation.port", String.valueOf(port)));
+		group = properties.getProperty("cacheInvalidation.group", group);
+		peers = properties.getProperty("cacheInvalidation.peers", peers);
+		ttl = Integer.parseInt(properties.getProperty("cacheInvalidation.ttl", String.valueOf(ttl)));
+		networkInterface = properties.getProperty("cacheInvalidation.interface", networkInterface);
+	}
+
+	@Override
+	public synchronized void start(Consumer<byte[]> receiver) {
+		try {
+			if (peers != null && !peers.trim().isEmpty()) {
+				socket = new DatagramSocket(port);
+				for (String peer : peers.split(",")) {
+					String address = peer.trim();
+					int colon = address.lastIndexOf(':');
+					targets.add(new InetSocketAddress(address.substring(0, colon),
+							Integer.parseInt(address.substring(colon + 1))));
+				}
+			} else {
+				MulticastSocket multicastSocket = new MulticastSocket(port);
+				multicastSocket.setTimeToLive(ttl);
+				InetSocketAddress groupAddress = new InetSocketAddress(InetAddress.getByName(group), port);
+				NetworkInterface joinInterface = null;
+				if (networkInterface != null && !networkInterface.trim().isEmpty()) {
+					joinInterface = NetworkInterface.getByName(networkInterface.trim());
+					if (joinInterface == null) {
+						multicastSocket.close();
+						throw new CacheException("Unknown network interface '" + networkInterface
+								+ "' for UDP cache invalidation transport.");
+					}
+					multicastSocket.setNetworkInterface(joinInterface);
+				}
+				// 为null时使用系统选择的网卡
+				multicastSocket.joinGroup(groupAddress, joinInterface);
+				socket = multicastSocket;
+				joinedGroup = groupAddress;
+				joinedInterface = joinInterface;
+				targets.add(groupAddress);
+			}
+		} catch (IOException e) {
+			throw new CacheException("Error starting UDP cache invalidation transport on port " + port + ". Cause: " + e,
+					e);
+		}
+		DatagramSocket receiving = socket;
+		receiverThread = new Thread(() -> receive(receiving, receiver), "CacheInvalidation-udp-" + port);
+		receiverThread.setDaemon(true);
+		receiverThread.start();
+	}
+
+	@Override
+	public void publish(byte[] message) {
+		if (message.length > MAX_MESSAGE_SIZE) {
+			log.warn("Cache invalidation message of " + message.length + " bytes is too large for UDP, not sent.");
+			return;
+		}
+		DatagramSocket sending = socket;
+		if (sending == null) {
+			return;
+		}
+		for (InetSocketAddress target : targets) {
+			try {
+				sending.send(new DatagramPacket(message, message.length, target));
+			} catch (IOException e) {
+				log.warn("Error sending cache invalidation message to " + target + ". Cause: " + e);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (socket != null) {
+			if (joinedGroup != null) {
+				try {
+					((MulticastSocket) socket).leaveGroup(joinedGroup, joinedInterface);
+				} catch (IOException e) {
+					// the socket is closed anyway
+				}
+				joinedGroup = null;
+				joinedInterface = null;
+			}
+			socket.close();
+			socket = null;
+		}
+		targets.clear();
+	}
+
+	private void receive(DatagramSocket receiving, Consumer<byte[]> receiver) {
+		byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+		while (!receiving.isClosed()) {
+			DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+			try {
+				receiving.receive(packet);
+				byte[] message = new byte[packet.getLength()];
+				System.arraycopy(packet.getData(), packet.getOffset(), message, 0, packet.getLength());
+				receiver.accept(message);
+			} catch (SocketException e) {
+				// closed
+			} catch (Exception e) {
+				log.warn("Error handling cache invalidation message. Cause: " + e);
+			}
+		}
+	}
+}
@@ -1,43 +1,55 @@
 package com.test.mybatis.cache.decorators;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
 
 import com.test.mybatis.cache.Cache;
 import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.logging.Log;
+import com.test.mybatis.logging.LogFactory;
 
 /**
- * 
- * 阻塞版缓存器，保证只有一个线程到数据库查找指定key对应的数据(对key读锁)
- * 
+ *
+ * 阻塞版缓存器，保证只有一个线程到数据库查找指定key对应的数据
+ * <p>
+ * The first thread that misses a key becomes its loader and queries the
+ * database; other threads missing the same key wait on the loader's future
+ * instead of a lock and read the result from the cache once the loader's
+ * transaction puts it there (or gives up on it). The in-flight entry is removed
+ * as soon as that happens, so nothing is kept for keys that are not loading.
+ * A waiter that exceeds {@code timeout} queries the database itself.
+ *
  * @author ethan
  *
  */
 public class BlockingCache implements Cache {
 
+	private static final Log log = LogFactory.getLog(BlockingCache.class);
+
 	/**
-	 * 阻塞超时时长
-	 * 
+	 * 等待超时时长，0表示一直等待
+	 *
 	 */
 	private long timeout;
-	
+
 	/**
 	 * Cache对象
-	 * 
+	 *
 	 */
 	private final Cache delegate;
-	
+
 	/**
-	 * 每个key都对应一个ReentrantLock对象,用ConcurrentHashMap来管理key，同时对key加锁
-	 * 
+	 * 正在从数据库加载的key，加载结果放入缓存(或者回滚)后立即删除
+	 *
 	 */
-	private final ConcurrentHashMap<Object, ReentrantLock> locks;
+	private final ConcurrentHashMap<Object, Load> loads;
 
 	public BlockingCache(Cache delegate) {
 		this.delegate = delegate;
-		this.locks = new ConcurrentHashMap<>();
+		this.loads = new ConcurrentHashMap<>();
 	}
 
 	@Override
@@ -50,35 +62,61 @@ public class BlockingCache implements Cache {
 		return delegate.getSize();
 	}
 
+	@Override
+	public boolean isReloadable() {
+		return delegate.isReloadable();
+	}
+
 	@Override
 	public void putObject(Object key, Object value) {
 		try {
 			delegate.putObject(key, value);
 		} finally {
-			releaseLock(key);
+			completeLoad(key);
 		}
 	}
 
 	/**
-	 * 
-	 * 假设线程A在BlockingCache中未找到KeyA对应的缓存项时，线程A会获取keyA对应的锁，
-	 * 后续线程在查找keyA时会发生阻塞，读锁
-	 * 
+	 *
+	 * 缓存未命中时，如果没有其他线程在加载该key，当前线程成为加载者并返回null；
+	 * 否则等待加载完成后重新读取缓存
+	 *
 	 */
 	@Override
 	public Object getObject(Object key) {
-		acquireLock(key);//获取key对应的锁
-		Object value = delegate.getObject(key);//查询key
-		if (value != null) {//缓存有key对应的缓存项	，释放锁，否则继续持有锁
-			releaseLock(key);
+		long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+		for (;;) {
+			Object value = delegate.getObject(key);
+			if (value != null) {
+				return value;
+			}
+			Load load = new Load();
+			Load current = loads.putIfAbsent(key, load);
+			if (current == null) {
+				// 登记之前其他线程可能刚好放入了结果
+				value = delegate.getObject(key);
+				if (value != null) {
+					completeLoad(key);
+				}
+				return value;
+			}
+			if (current.owner == Thread.currentThread()) {
+				return null;
+			}
+			if (!await(key, current, deadline)) {
+				if (log.isDebugEnabled()) {
+					log.debug("Timed out waiting for key " + key + " to be loaded into cache " + getId()
+							+ ", querying the database directly.");
+				}
+				return null;
+			}
 		}
-		return value;
 	}
 
 	@Override
 	public Object removeObject(Object key) {
 		// despite of its name, this method is called only to release locks
-		releaseLock(key);
+		completeLoad(key);
 		return null;
 	}
 
@@ -87,44 +125,45 @@ public class BlockingCache implements Cache {
 		delegate.clear();
 	}
 
-	private ReentrantLock getLockForKey(Object key) {
-		return locks.computeIfAbsent(key, k -> new ReentrantLock());
-	}
-
 	/**
-	 * 
-	 * 获取指定key对应的锁，如果该key没有对应的锁对象则创建新的ReentrantLock对象，再加锁，
-	 * 如果获取锁失败，则阻塞一段时间
-	 * 
-	 * @param key
+	 *
+	 * 等待加载完成
+	 *
+	 * @return False if the timeout elapsed first
 	 */
-	private void acquireLock(Object key) {
-		Lock lock = getLockForKey(key);//获取ReentrantLock对象
-		if (timeout > 0) {//获取锁，带超时时长
-			try {
-				boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-				if (!acquired) {// 超时，抛出异常
-					throw new CacheException("Couldn't get a lock in " + timeout + " for the key " + key
-							+ " at the cache " + delegate.getId());
-				}
-			} catch (InterruptedException e) {
-				throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+	private boolean await(Object key, Load load, long deadline) {
+		try {
+			if (deadline == 0) {
+				load.done.get();
+				return true;
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
 			}
-		} else {//获取锁，不带超时时长
-			lock.lock();
+			load.done.get(remaining, TimeUnit.NANOSECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CacheException("Got interrupted while waiting for key " + key + " to be loaded", e);
+		} catch (ExecutionException e) {
+			// never completed exceptionally
+			return true;
 		}
 	}
 
 	/**
-	 * 
-	 * 释放锁
-	 * 
+	 *
+	 * 结束key的加载，唤醒所有等待的线程
+	 *
 	 * @param key
 	 */
-	private void releaseLock(Object key) {
-		ReentrantLock lock = locks.get(key);
-		if (lock.isHeldByCurrentThread()) {
-			lock.unlock();
+	private void completeLoad(Object key) {
+		Load load = loads.remove(key);
+		if (load != null) {
+			load.done.complete(null);
 		}
 	}
 
@@ -135,4 +174,10 @@ public class BlockingCache implements Cache {
 	public void setTimeout(long timeout) {
 		this.timeout = timeout;
 	}
+
+	private static final class Load {
+
+		final Thread owner = Thread.currentThread();
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+	}
 }
@@ -4,6 +4,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
 
 /**
  * 先进先出缓存器，有时候为了控制缓存的大小，系统需要按照一定的规则清理缓存，FifoCache是先进先出版本的装饰器
@@ -20,6 +21,11 @@ public class FifoCache implements Cache {
 	 * 
 	 */
 	private final Cache delegate;
+
+	/**
+	 * 记录淘汰的缓存项
+	 */
+	private CacheMetrics metrics = CacheMetrics.NONE;
 	
 	/**
 	 * 
@@ -55,6 +61,10 @@ public class FifoCache implements Cache {
 		this.size = size;
 	}
 
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public void putObject(Object key, Object value) {
 		cycleKeyList(key);//检测并清理缓存
@@ -82,6 +92,7 @@ public class FifoCache implements Cache {
 		if (keyList.size() > size) {//从队列头部删除先进队列的key
 			Object oldestKey = keyList.removeFirst();
 			delegate.removeObject(oldestKey);
+			metrics.recordEviction();
 		}
 	}
 
@@ -0,0 +1,357 @@
+package com.test.mybatis.cache.decorators;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.TemporalAccessor;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.serializer.CacheSerializer;
+import com.test.mybatis.cache.serializer.CompactSerializer;
+import com.test.mybatis.reflection.DefaultReflectorFactory;
+import com.test.mybatis.reflection.Reflector;
+import com.test.mybatis.reflection.ReflectorFactory;
+import com.test.mybatis.reflection.invoker.Invoker;
+
+/**
+ * 不可变结果缓存器，放入缓存时冻结一次结果，命中时只按快照复制bean，不需要反序列化
+ * <p>
+ * A result is frozen once when it is put, so later changes made by the
+ * session that loaded it never reach the cache, and every hit gets an
+ * unmodifiable list. Lists whose elements are all immutable values (strings,
+ * numbers, java.time values, enums...) are shared as they are. For JavaBeans
+ * the property values are read once through {@link Reflector} getters, and
+ * each hit gets its own bean copies built through the setters, so beans are
+ * never shared between sessions. Nested beans, lists and {@code Date}s are
+ * copied the same way. Only results that cannot be copied like this (cycles,
+ * maps, classes without a default constructor...) are kept in their
+ * {@link CompactSerializer} form and deserialized on every hit; those that are
+ * not Serializable either are rejected, as in read-write caches. Enabled with
+ * {@code immutable="true"} on {@code <cache>}.
+ *
+ * @author ethan
+ *
+ */
+public class ImmutableCache implements ConcurrentCache {
+
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+			Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+			BigInteger.class, BigDecimal.class, UUID.class, Class.class));
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final Cache delegate;
+	private final CacheSerializer copier = new CompactSerializer();
+	private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+	private final Map<Class<?>, BeanType> beanTypes = new ConcurrentHashMap<>();
+
+	public ImmutableCache(Cache delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void putObject(Object key, Object object) {
+		delegate.putObject(key, freeze(object));
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		Object object = delegate.getObject(key);
+		if (object instanceof Frozen) {
+			return copier.deserialize(((Frozen) object).bytes);
+		}
+		if (object instanceof FrozenList) {
+			return Collections.unmodifiableList(((FrozenList) object).thaw());
+		}
+		if (object instanceof Snapshot) {
+			return ((Snapshot) object).thaw();
+		}
+		return object;
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		return delegate.removeObject(key);
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return delegate.equals(obj);
+	}
+
+	private Object freeze(Object object) {
+		if (isImmutable(object)) {
+			return object;
+		}
+		if (object instanceof List) {
+			List<?> list = (List<?>) object;
+			boolean values = true;
+			for (Object element : list) {
+				if (!isImmutable(element)) {
+					values = false;
+					break;
+				}
+			}
+			if (values) {
+				// 只含不可变值，所有会话共享同一个只读列表
+				return Collections.unmodifiableList(new ArrayList<>(list));
+			}
+		}
+		Object snapshot = snapshot(object, Collections.newSetFromMap(new IdentityHashMap<>()));
+		if (snapshot != null) {
+			return snapshot;
+		}
+		if (!(object instanceof Serializable)) {
+			throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
+		}
+		// 不能按bean复制的结果，每次命中反序列化得到自己的副本
+		return new Frozen(copier.serialize(object));
+	}
+
+	/*
+	 * 返回null表示这个值不能按属性复制
+	 */
+	private Object snapshot(Object value, Set<Object> visiting) {
+		if (isImmutable(value)) {
+			return value;
+		}
+		if (value instanceof Date) {
+			return new DateSnapshot((Date) ((Date) value).clone());
+		}
+		if (!visiting.add(value)) {
+			// 循环引用
+			return null;
+		}
+		try {
+			if (value instanceof List) {
+				List<?> list = (List<?>) value;
+				Object[] elements = new Object[list.size()];
+				int i = 0;
+				for (Object element : list) {
+					if ((elements[i++] = snapshot(element, visiting)) == null && element != null) {
+						return null;
+					}
+				}
+				return new FrozenList(elements);
+			}
+			BeanType beanType = beanTypes.computeIfAbsent(value.getClass(), BeanType::new);
+			if (!beanType.supported) {
+				return null;
+			}
+			Object[] values = new Object[beanType.getters.length];
+			for (int i = 0; i < values.length; i++) {
+				Object property = beanType.getters[i].invoke(value, NO_ARGUMENTS);
+				values[i] = snapshot(property, visiting);
+				if (values[i] == null && property != null) {
+					return null;
+				}
+				if (values[i] instanceof FrozenList && !beanType.setterTypes[i].isAssignableFrom(ArrayList.class)) {
+					// 复制出来的是ArrayList，属性必须能接收它
+					return null;
+				}
+			}
+			return new BeanSnapshot(beanType, values);
+		} catch (Exception e) {
+			return null;
+		} finally {
+			visiting.remove(value);
+		}
+	}
+
+	private static Object thaw(Object value) {
+		return value instanceof Snapshot ? ((Snapshot) value).thaw() : value;
+	}
+
+	private static boolean isImmutable(Object value) {
+		if (value == null || value instanceof Enum || IMMUTABLE_TYPES.contains(value.getClass())) {
+			return true;
+		}
+		// java.time下的日期时间类型都是不可变的
+		return value instanceof TemporalAccessor && value.getClass().getName().startsWith("java.time.");
+	}
+
+	/**
+	 * 放入缓存时冻结的值，每次命中时复制
+	 */
+	private interface Snapshot {
+
+		Object thaw();
+	}
+
+	private static final class DateSnapshot implements Snapshot {
+
+		private final Date date;
+
+		DateSnapshot(Date date) {
+			this.date = date;
+		}
+
+		@Override
+		public Object thaw() {
+			return date.clone();
+		}
+	}
+
+	/**
+	 * 冻结的列表，本身是只读的List，WeightedCache按行数估算它的大小
+	 */
+	private static final class FrozenList extends AbstractList<Object> implements Snapshot {
+
+		private final Object[] elements;
+
+		FrozenList(Object[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		public Object get(int index) {
+			return elements[index];
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+		@Override
+		public List<Object> thaw() {
+			List<Object> list = new ArrayList<>(elements.length);
+			for (Object element : elements) {
+				list.add(ImmutableCache.thaw(element));
+			}
+			return list;
+		}
+	}
+
+	private static final class BeanSnapshot implements Snapshot {
+
+		private final BeanType beanType;
+		private final Object[] values;
+
+		BeanSnapshot(BeanType beanType, Object[] values) {
+			this.beanType = beanType;
+			this.values = values;
+		}
+
+		@Override
+		public Object thaw() {
+			try {
+				Object bean = beanType.constructor.newInstance();
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null) {
+						beanType.setters[i].invoke(bean, new Object[] { ImmutableCache.thaw(values[i]) });
+					}
+				}
+				return bean;
+			} catch (Exception e) {
+				throw new CacheException("Error copying cached " + beanType.constructor.getDeclaringClass().getName()
+						+ ".  Cause: " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * 按JavaBean复制一个类需要的信息
+	 */
+	private final class BeanType {
+
+		final boolean supported;
+		Invoker[] getters;
+		Invoker[] setters;
+		Class<?>[] setterTypes;
+		Constructor<?> constructor;
+
+		BeanType(Class<?> type) {
+			this.supported = isBean(type) && describe(type);
+		}
+
+		private boolean isBean(Class<?> type) {
+			// 集合、Map和延迟加载的代理等交给序列化处理
+			return !(type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+					|| Proxy.isProxyClass(type) || type.getName().contains("$$") || type.getName().startsWith("java"));
+		}
+
+		private boolean describe(Class<?> type) {
+			Reflector reflector = reflectorFactory.findForClass(type);
+			if (!reflector.hasDefaultConstructor()) {
+				return false;
+			}
+			constructor = reflector.getDefaultConstructor();
+			try {
+				constructor.setAccessible(true);
+			} catch (Exception e) {
+				return false;
+			}
+			List<String> names = new ArrayList<>();
+			for (String name : reflector.getGetablePropertyNames()) {
+				if (!"class".equals(name) && reflector.hasSetter(name)) {
+					names.add(name);
+				}
+			}
+			getters = new Invoker[names.size()];
+			setters = new Invoker[names.size()];
+			setterTypes = new Class<?>[names.size()];
+			for (int i = 0; i < getters.length; i++) {
+				getters[i] = reflector.getGetInvoker(names.get(i));
+				setters[i] = reflector.getSetInvoker(names.get(i));
+				setterTypes[i] = reflector.getSetterType(names.get(i));
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 序列化后的结果，WeightedCache按字节数估算它的大小
+	 */
+	static final class Frozen implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] bytes;
+
+		Frozen(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		int getLength() {
+			return bytes.length;
+		}
+	}
+}
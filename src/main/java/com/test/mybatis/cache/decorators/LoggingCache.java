@@ -1,21 +1,30 @@
 package com.test.mybatis.cache.decorators;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
 import com.test.mybatis.logging.Log;
 import com.test.mybatis.logging.LogFactory;
 
-public class LoggingCache implements Cache {
+public class LoggingCache implements ConcurrentCache {
 
 	private final Log log;
 	private final Cache delegate;
-	protected int requests = 0;
-	protected int hits = 0;
+	protected final LongAdder requests = new LongAdder();
+	protected final LongAdder hits = new LongAdder();
+	private CacheMetrics metrics = CacheMetrics.NONE;
 
 	public LoggingCache(Cache delegate) {
 		this.delegate = delegate;
 		this.log = LogFactory.getLog(getId());
 	}
 
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public String getId() {
 		return delegate.getId();
@@ -29,14 +38,21 @@ public class LoggingCache implements Cache {
 	@Override
 	public void putObject(Object key, Object object) {
 		delegate.putObject(key, object);
+		if (object != null) {
+			// 未命中的key在事务结束时也会放入null，不算一次放入
+			metrics.recordPut();
+		}
 	}
 
 	@Override
 	public Object getObject(Object key) {
-		requests++;
+		requests.increment();
 		final Object value = delegate.getObject(key);
 		if (value != null) {
-			hits++;
+			hits.increment();
+			metrics.recordHit();
+		} else {
+			metrics.recordMiss();
 		}
 		if (log.isDebugEnabled()) {
 			log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -65,6 +81,6 @@ public class LoggingCache implements Cache {
 	}
 
 	private double getHitRatio() {
-		return (double) hits / (double) requests;
+		return (double) hits.sum() / (double) requests.sum();
 	}
 }
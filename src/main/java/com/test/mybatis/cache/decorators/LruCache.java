@@ -1,40 +1,55 @@
 package com.test.mybatis.cache.decorators;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
 
 /**
  * LRU，最近最少未使用缓存器，进行缓存清理在需要请求缓存的时候，会清除最近最少使用的缓存项
- * 
- * 
+ * <p>
+ * This is a sampled LRU: when the cache is full, the least recently used of a
+ * few randomly sampled entries is evicted, which is close to true LRU without
+ * keeping the keys in access order. Reads only store the entry's access time,
+ * they never take a lock; puts, removals and evictions are serialized on this
+ * decorator. So the decorator is as thread-safe as its delegate and a
+ * concurrent base cache does not need {@code SynchronizedCache}.
+ *
  * @author ethan
  *
  */
-public class LruCache implements Cache {
+public class LruCache implements ConcurrentCache {
+
+	/**
+	 * 每次淘汰时随机抽样的缓存项个数
+	 */
+	private static final int SAMPLE_SIZE = 8;
 
 	/**
-	 * 
+	 *
 	 * 缓存对象
-	 * 
+	 *
 	 */
 	private final Cache delegate;
 
 	/**
-	 * 
-	 * LinkedHashMap<Object, Object>类型对象，它是一个有序的HashMap，用于记录key最近的使用情况
-	 * 
+	 * 被跟踪的缓存项，读操作只访问这个Map
 	 */
-	private Map<Object, Object> keyMap;
+	private final ConcurrentHashMap<Object, Node> nodes = new ConcurrentHashMap<>();
 
 	/**
-	 * 
-	 * 最少被使用的缓存项key
-	 * 
+	 * 被跟踪的缓存项，保持紧凑以便随机抽样，只在持有this锁时修改
 	 */
-	private Object eldestKey;
+	private Node[] entries;
+	private int count;
+
+	/**
+	 * 记录淘汰的缓存项
+	 */
+	private CacheMetrics metrics = CacheMetrics.NONE;
 
 	public LruCache(Cache delegate) {
 		this.delegate = delegate;
@@ -51,22 +66,14 @@ public class LruCache implements Cache {
 		return delegate.getSize();
 	}
 
-	public void setSize(final int size) {// 重新设置缓存大小，会重制keyMap字段
-		//构造函数的第三个参数，true表示该LinkedHashMap记录的顺序是access-order，
-		//也就是说LinkedHashMap.get()方法会改变其记录的顺序
-		keyMap = new LinkedHashMap<Object, Object>(size, .75F, true) {
-			private static final long serialVersionUID = 4267176411845948333L;
-			//当调用LinkedHashMap.put()方法时，会调用该方法
-			@Override
-			protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
-				System.out.println(eldest.getKey() + " --- " + eldest.getValue());
-				boolean tooBig = size() > size;
-				if (tooBig) {//如果已经达到缓存上限，则更新eldestKey字段，后面会删除该项
-					eldestKey = eldest.getKey();
-				}
-				return tooBig;
-			}
-		};
+	public synchronized void setSize(final int size) {// 重新设置缓存大小，不再跟踪之前的缓存项
+		entries = new Node[Math.max(1, size)];
+		count = 0;
+		nodes.clear();
+	}
+
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
 	}
 
 	@Override
@@ -77,19 +84,30 @@ public class LruCache implements Cache {
 
 	@Override
 	public Object getObject(Object key) {
-		keyMap.get(key); // 该key被访问过之后会被放在链表的后面
+		Node node = nodes.get(key);
+		if (node != null) {
+			node.accessTime = System.nanoTime(); // 只记录访问时间，淘汰时再比较
+		}
 		return delegate.getObject(key);
 	}
 
 	@Override
-	public Object removeObject(Object key) {
+	public synchronized Object removeObject(Object key) {
+		Node node = nodes.remove(key);
+		if (node != null) {
+			removeEntry(node);
+		}
 		return delegate.removeObject(key);
 	}
 
 	@Override
-	public void clear() {
+	public synchronized void clear() {
 		delegate.clear();
-		keyMap.clear();
+		nodes.clear();
+		for (int i = 0; i < count; i++) {
+			entries[i] = null;
+		}
+		count = 0;
 	}
 
 	@Override
@@ -97,11 +115,72 @@ public class LruCache implements Cache {
 		return null;
 	}
 
-	private void cycleKeyList(Object key) {
-		keyMap.put(key, key);
-		if (eldestKey != null) {
-			delegate.removeObject(eldestKey);
-			eldestKey = null;
+	private synchronized void cycleKeyList(Object key) {
+		Node node = nodes.get(key);
+		if (node != null) {
+			node.accessTime = System.nanoTime();
+			return;
+		}
+		if (count == entries.length) {// 如果已经达到缓存上限，删除抽样中最久没有访问的缓存项
+			Node eldest = sampleEldest();
+			removeEntry(eldest);
+			nodes.remove(eldest.key, eldest);
+			delegate.removeObject(eldest.key);
+			metrics.recordEviction();
+		}
+		node = new Node(key);
+		node.slot = count;
+		entries[count++] = node;
+		nodes.put(key, node);
+	}
+
+	private Node sampleEldest() {
+		if (count <= SAMPLE_SIZE) {
+			// 缓存项不多时直接比较全部
+			Node eldest = entries[0];
+			for (int i = 1; i < count; i++) {
+				if (entries[i].accessTime - eldest.accessTime < 0) {
+					eldest = entries[i];
+				}
+			}
+			return eldest;
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Node eldest = entries[random.nextInt(count)];
+		for (int i = 1; i < SAMPLE_SIZE; i++) {
+			Node node = entries[random.nextInt(count)];
+			if (node.accessTime - eldest.accessTime < 0) {
+				eldest = node;
+			}
+		}
+		return eldest;
+	}
+
+	private void removeEntry(Node node) {
+		// 用最后一项填补空位
+		Node last = entries[--count];
+		entries[node.slot] = last;
+		last.slot = node.slot;
+		entries[count] = null;
+	}
+
+	private static final class Node {
+
+		final Object key;
+
+		/**
+		 * 最近一次访问的时间，读线程不加锁更新
+		 */
+		volatile long accessTime;
+
+		/**
+		 * 在entries数组中的下标
+		 */
+		int slot;
+
+		Node(Object key) {
+			this.key = key;
+			this.accessTime = System.nanoTime();
 		}
 	}
 }
@@ -0,0 +1,123 @@
+package com.test.mybatis.cache.decorators;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheListener;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.ObservableCache;
+import com.test.mybatis.cache.impl.ConcurrentPerpetualCache;
+
+/**
+ * 两级缓存，本节点的小容量缓存(L1)放在共享的大容量缓存(L2)前面，热点缓存项不用每次都访问L2
+ * <p>
+ * Reads go to L1 first and fall back to L2, copying what they find into L1.
+ * Writes and removals go to both tiers. L1 is a concurrent W-TinyLFU cache of
+ * {@code nearSize} entries. When L2 is an {@link ObservableCache} every change
+ * it reports, including those made by other nodes, also drops the L1 copy;
+ * otherwise L1 is only kept consistent with the writes made through this node
+ * (and with clears sent by the cache invalidation bus).
+ *
+ * @author ethan
+ *
+ */
+public class NearCache implements ConcurrentCache {
+
+	private final Cache delegate;
+
+	private final TinyLfuCache near;
+
+	/**
+	 * 每次淘汰L1时加一，读取L2期间发生了淘汰时不把读到的值放入L1
+	 */
+	private final AtomicLong invalidations = new AtomicLong();
+
+	public NearCache(Cache delegate) {
+		this.delegate = delegate;
+		this.near = new TinyLfuCache(new ConcurrentPerpetualCache(delegate.getId()));
+		setNearSize(256);
+		if (delegate instanceof ObservableCache) {
+			((ObservableCache) delegate).addListener(new CacheListener() {
+				@Override
+				public void onRemove(Object key) {
+					invalidate(key);
+				}
+
+				@Override
+				public void onClear() {
+					invalidations.incrementAndGet();
+					near.clear();
+				}
+			});
+		}
+	}
+
+	public void setNearSize(int nearSize) {
+		near.setSize(nearSize);
+	}
+
+	/**
+	 * L1中的缓存项个数
+	 */
+	public int getNearSize() {
+		return near.getSize();
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		delegate.putObject(key, value);
+		invalidate(key);
+		if (value != null) {
+			// 未命中的key放入的null只用于释放锁，不放入L1
+			near.putObject(key, value);
+		}
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		Object value = near.getObject(key);
+		if (value != null) {
+			return value;
+		}
+		long version = invalidations.get();
+		value = delegate.getObject(key);
+		if (value != null) {
+			near.putObject(key, value);
+			if (invalidations.get() != version) {
+				// 放入L1的同时L2发生了变化，丢弃可能过时的副本
+				near.removeObject(key);
+			}
+		}
+		return value;
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		// 先修改L2再淘汰L1，正在读取L2的线程才能发现变化
+		Object value = delegate.removeObject(key);
+		invalidate(key);
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		invalidations.incrementAndGet();
+		near.clear();
+	}
+
+	private void invalidate(Object key) {
+		invalidations.incrementAndGet();
+		near.removeObject(key);
+	}
+}
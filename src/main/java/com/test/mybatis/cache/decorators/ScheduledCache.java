@@ -1,25 +1,121 @@
 package com.test.mybatis.cache.decorators;
 
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+import com.test.mybatis.logging.Log;
+import com.test.mybatis.logging.LogFactory;
 
-public class ScheduledCache implements Cache {
+/**
+ * 定时清理缓存，每隔clearInterval清空整个缓存
+ * <p>
+ * With a {@code timeToLive} every entry also expires on its own. An entry older
+ * than {@code timeToLive} is still returned, but the first read after that
+ * re-runs the query that produced it on a background thread and replaces it.
+ * Entries older than {@code timeToLive + staleTimeToLive} are dropped. Only
+ * entries put with a reloadable {@link CacheKey} can be refreshed; others are
+ * simply served until they are dropped. CachingExecutor only attaches a
+ * reloader when {@link #isReloadable()} is true.
+ *
+ * @author ethan
+ *
+ */
+public class ScheduledCache implements ConcurrentCache {
+
+	private static final Log log = LogFactory.getLog(ScheduledCache.class);
+
+	private static final AtomicInteger REFRESHER_COUNT = new AtomicInteger();
+
+	/**
+	 * 所有缓存共用的后台刷新线程池，队列满了就放弃本次刷新
+	 */
+	private static volatile ThreadPoolExecutor refresher;
 
 	private final Cache delegate;
 	protected long clearInterval;
-	protected long lastClear;
+	protected volatile long lastClear;
+
+	/**
+	 * 缓存项的软过期时间，0表示不按缓存项过期
+	 */
+	protected long timeToLive;
+
+	/**
+	 * 软过期之后还可以继续返回旧值的时间
+	 */
+	protected long staleTimeToLive;
+
+	/**
+	 * 每个缓存项放入缓存的时间
+	 */
+	private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * 每次清空缓存加1，用来丢弃清空之前开始的刷新结果
+	 */
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private CacheMetrics metrics = CacheMetrics.NONE;
+
+	private LongSupplier clock = System::currentTimeMillis;
+
+	/**
+	 * 执行后台刷新的线程池，为null时使用共用的线程池
+	 */
+	private Executor executor;
 
 	public ScheduledCache(Cache delegate) {
 		this.delegate = delegate;
 		this.clearInterval = TimeUnit.HOURS.toMillis(1);
-		this.lastClear = System.currentTimeMillis();
+		this.lastClear = clock.getAsLong();
 	}
 
 	public void setClearInterval(long clearInterval) {
 		this.clearInterval = clearInterval;
 	}
 
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	public void setStaleTimeToLive(long staleTimeToLive) {
+		this.staleTimeToLive = staleTimeToLive;
+	}
+
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	void setClock(LongSupplier clock) {
+		this.clock = clock;
+		this.lastClear = clock.getAsLong();
+	}
+
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * 只有按缓存项过期时才会用到CacheKey中的reloader
+	 */
+	@Override
+	public boolean isReloadable() {
+		return timeToLive > 0;
+	}
+
 	@Override
 	public String getId() {
 		return delegate.getId();
@@ -35,22 +131,51 @@ public class ScheduledCache implements Cache {
 	public void putObject(Object key, Object object) {
 		clearWhenStale();
 		delegate.putObject(key, object);
+		if (timeToLive > 0) {
+			Callable<?> reloader = key instanceof CacheKey ? ((CacheKey) key).getReloader() : null;
+			track(key, new Entry(reloader, generation.get(), clock.getAsLong()));
+		}
 	}
 
 	@Override
 	public Object getObject(Object key) {
-		return clearWhenStale() ? null : delegate.getObject(key);
+		if (clearWhenStale()) {
+			return null;
+		}
+		Object value = delegate.getObject(key);
+		if (value == null || timeToLive <= 0) {
+			return value;
+		}
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return value;
+		}
+		long age = clock.getAsLong() - entry.createdTimestamp;
+		if (age >= timeToLive + staleTimeToLive) {
+			// 彻底过期
+			entries.remove(key, entry);
+			delegate.removeObject(key);
+			metrics.recordEviction();
+			return null;
+		}
+		if (age >= timeToLive) {
+			refresh(key, entry);
+		}
+		return value;
 	}
 
 	@Override
 	public Object removeObject(Object key) {
 		clearWhenStale();
+		entries.remove(key);
 		return delegate.removeObject(key);
 	}
 
 	@Override
 	public void clear() {
-		lastClear = System.currentTimeMillis();
+		lastClear = clock.getAsLong();
+		generation.incrementAndGet();
+		entries.clear();
 		delegate.clear();
 	}
 
@@ -65,10 +190,85 @@ public class ScheduledCache implements Cache {
 	}
 
 	private boolean clearWhenStale() {
-		if (System.currentTimeMillis() - lastClear > clearInterval) {
+		if (clock.getAsLong() - lastClear > clearInterval) {
 			clear();
 			return true;
 		}
 		return false;
 	}
+
+	private void track(Object key, Entry entry) {
+		entries.put(key, entry);
+		// 被淘汰策略删除的缓存项不会通知这里，超过一定数量时清理彻底过期的记录
+		if (entries.size() > 2 * delegate.getSize() + 64) {
+			long now = clock.getAsLong();
+			for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+				if (now - it.next().createdTimestamp >= timeToLive + staleTimeToLive) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/*
+	 * 每个过期的缓存项同时只有一个后台刷新
+	 */
+	private void refresh(Object key, Entry entry) {
+		if (entry.reloader == null || !entry.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			(executor != null ? executor : getRefresher()).execute(() -> {
+				try {
+					Object value = entry.reloader.call();
+					// 刷新期间缓存被清空或者缓存项被替换时丢弃结果
+					if (generation.get() == entry.generation && entries.get(key) == entry) {
+						delegate.putObject(key, value);
+						track(key, new Entry(entry.reloader, entry.generation, clock.getAsLong()));
+					}
+				} catch (Exception e) {
+					log.warn("Refreshing a stale entry of cache " + getId() + " failed. Cause: " + e);
+					entry.refreshing.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			entry.refreshing.set(false);
+		}
+	}
+
+	private static ThreadPoolExecutor getRefresher() {
+		ThreadPoolExecutor executor = refresher;
+		if (executor == null) {
+			synchronized (ScheduledCache.class) {
+				executor = refresher;
+				if (executor == null) {
+					int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+					executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+							new ArrayBlockingQueue<>(1024), r -> {
+								Thread thread = new Thread(r,
+										"ScheduledCache-refresh-" + REFRESHER_COUNT.incrementAndGet());
+								thread.setDaemon(true);
+								return thread;
+							});
+					executor.allowCoreThreadTimeOut(true);
+					refresher = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	private static final class Entry {
+
+		final long createdTimestamp;
+		final Callable<?> reloader;
+		final int generation;
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(Callable<?> reloader, int generation, long createdTimestamp) {
+			this.reloader = reloader;
+			this.generation = generation;
+			this.createdTimestamp = createdTimestamp;
+		}
+	}
 }
@@ -1,24 +1,39 @@
 package com.test.mybatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
 
 import com.test.mybatis.cache.Cache;
 import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.serializer.CacheSerializer;
+import com.test.mybatis.cache.serializer.JdkSerializer;
 import com.test.mybatis.io.Resources;
 
-public class SerializedCache implements Cache {
+public class SerializedCache implements ConcurrentCache {
 
 	private final Cache delegate;
+	private CacheSerializer serializer;
 
 	public SerializedCache(Cache delegate) {
+		this(delegate, new JdkSerializer());
+	}
+
+	public SerializedCache(Cache delegate, CacheSerializer serializer) {
 		this.delegate = delegate;
+		this.serializer = serializer;
+	}
+
+	/**
+	 * 设置序列化方式，jdk(默认)、compact或者CacheSerializer实现类的全限定名
+	 * 
+	 * @param serializer the serializer name
+	 */
+	public void setSerializer(String serializer) {
+		this.serializer = CacheSerializer.forName(serializer);
 	}
 
 	@Override
@@ -34,7 +49,7 @@ public class SerializedCache implements Cache {
 	@Override
 	public void putObject(Object key, Object object) {
 		if (object == null || object instanceof Serializable) {
-			delegate.putObject(key, serialize((Serializable) object));
+			delegate.putObject(key, object == null ? null : serializer.serialize(object));
 		} else {
 			throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
 		}
@@ -43,7 +58,7 @@ public class SerializedCache implements Cache {
 	@Override
 	public Object getObject(Object key) {
 		Object object = delegate.getObject(key);
-		return object == null ? null : deserialize((byte[]) object);
+		return object == null ? null : serializer.deserialize((byte[]) object);
 	}
 
 	@Override
@@ -66,28 +81,6 @@ public class SerializedCache implements Cache {
 		return delegate.equals(obj);
 	}
 
-	private byte[] serialize(Serializable value) {
-		try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-				ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-			oos.writeObject(value);
-			oos.flush();
-			return bos.toByteArray();
-		} catch (Exception e) {
-			throw new CacheException("Error serializing object.  Cause: " + e, e);
-		}
-	}
-
-	private Serializable deserialize(byte[] value) {
-		Serializable result;
-		try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-				ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-			result = (Serializable) ois.readObject();
-		} catch (Exception e) {
-			throw new CacheException("Error deserializing object.  Cause: " + e, e);
-		}
-		return result;
-	}
-
 	public static class CustomObjectInputStream extends ObjectInputStream {
 
 		public CustomObjectInputStream(InputStream in) throws IOException {
@@ -6,6 +6,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
 
 /**
  * 
@@ -69,6 +70,11 @@ public class SoftCache implements Cache {
 	 * 
 	 */
 	private final Cache delegate;
+
+	/**
+	 * 记录淘汰的缓存项
+	 */
+	private CacheMetrics metrics = CacheMetrics.NONE;
 	
 	/**
 	 * 
@@ -99,6 +105,10 @@ public class SoftCache implements Cache {
 		this.numberOfHardLinks = size;
 	}
 
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public void putObject(Object key, Object value) {
 		removeGarbageCollectedItems();
@@ -114,6 +124,7 @@ public class SoftCache implements Cache {
 			result = softReference.get();
 			if (result == null) {
 				delegate.removeObject(key);
+				metrics.recordEviction();
 			} else {
 				// See #586 (and #335) modifications need more than a read lock
 				synchronized (hardLinksToAvoidGarbageCollection) {
@@ -145,7 +156,9 @@ public class SoftCache implements Cache {
 	private void removeGarbageCollectedItems() {
 		SoftEntry sv;
 		while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-			delegate.removeObject(sv.key);
+			if (delegate.removeObject(sv.key) != null) {
+				metrics.recordEviction();
+			}
 		}
 	}
 
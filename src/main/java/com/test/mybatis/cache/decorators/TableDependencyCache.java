@@ -0,0 +1,145 @@
+package com.test.mybatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.ConcurrentCache;
+
+/**
+ *
+ * 记录每个缓存项依赖的表，修改这些表时只淘汰相关的缓存项
+ * <p>
+ * The tables come from the {@link CacheKey} of each entry, set by
+ * {@code CachingExecutor}. Entries whose tables are unknown are dropped on any
+ * invalidation. This decorator wraps the base cache directly so that evictions
+ * and expirations done by outer decorators also clean the index; invalidated
+ * entries are removed through the {@code entryPoint}, the outer decorators that
+ * keep the cache consistent.
+ *
+ * @author ethan
+ *
+ */
+public class TableDependencyCache implements ConcurrentCache {
+
+	private final Cache delegate;
+
+	/**
+	 * 淘汰缓存项时从这里删除，要经过淘汰策略和同步等装饰器
+	 */
+	private volatile Cache entryPoint = this;
+
+	private final ConcurrentHashMap<String, Set<Object>> keysByTable = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Object, Set<String>> tablesByKey = new ConcurrentHashMap<>();
+
+	/**
+	 * 不知道依赖哪些表的缓存项
+	 */
+	private final Set<Object> untrackedKeys = ConcurrentHashMap.newKeySet();
+
+	public TableDependencyCache(Cache delegate) {
+		this.delegate = delegate;
+	}
+
+	public void setEntryPoint(Cache entryPoint) {
+		this.entryPoint = entryPoint;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		index(key);
+		delegate.putObject(key, value);
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		return delegate.getObject(key);
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		unindex(key);
+		return delegate.removeObject(key);
+	}
+
+	@Override
+	public void clear() {
+		keysByTable.clear();
+		tablesByKey.clear();
+		untrackedKeys.clear();
+		delegate.clear();
+	}
+
+	/**
+	 *
+	 * 淘汰依赖指定表的缓存项
+	 *
+	 */
+	public void invalidate(Collection<String> tables) {
+		Set<Object> keys = new HashSet<>(untrackedKeys);
+		for (String table : tables) {
+			Set<Object> dependents = keysByTable.get(table);
+			if (dependents != null) {
+				keys.addAll(dependents);
+			}
+		}
+		for (Object key : keys) {
+			entryPoint.removeObject(key);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return delegate.equals(obj);
+	}
+
+	private void index(Object key) {
+		unindex(key);
+		Set<String> tables = key instanceof CacheKey ? ((CacheKey) key).getTables() : null;
+		if (tables == null) {
+			untrackedKeys.add(key);
+			return;
+		}
+		tablesByKey.put(key, tables);
+		for (String table : tables) {
+			keysByTable.compute(table, (t, keys) -> {
+				if (keys == null) {
+					keys = ConcurrentHashMap.newKeySet();
+				}
+				keys.add(key);
+				return keys;
+			});
+		}
+	}
+
+	private void unindex(Object key) {
+		untrackedKeys.remove(key);
+		Set<String> tables = tablesByKey.remove(key);
+		if (tables != null) {
+			for (String table : tables) {
+				keysByTable.computeIfPresent(table, (t, keys) -> {
+					keys.remove(key);
+					return keys.isEmpty() ? null : keys;
+				});
+			}
+		}
+	}
+}
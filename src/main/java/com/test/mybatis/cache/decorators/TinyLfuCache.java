@@ -0,0 +1,302 @@
+package com.test.mybatis.cache.decorators;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+
+/**
+ * W-TinyLFU缓存器，按访问频率决定新缓存项能否进入缓存，一次性的扫描查询不会把热点数据挤出去
+ * <p>
+ * New entries first go into a small FIFO admission window (about 1% of the
+ * size). An entry leaving the window is only admitted into the main region if
+ * it has been requested more often than the victim picked from the main region,
+ * where the victim is the least recently used of a few randomly sampled
+ * entries. Request frequencies are approximated with a count-min sketch of
+ * 4-bit counters that is halved periodically, so old popularity fades out.
+ * <p>
+ * Reads only bump the sketch and the entry's access time, they never take a
+ * lock; puts, removals and evictions are serialized on this decorator.
+ *
+ * @author ethan
+ *
+ */
+public class TinyLfuCache implements ConcurrentCache {
+
+	/**
+	 * 每次淘汰时随机抽样的缓存项个数
+	 */
+	private static final int SAMPLE_SIZE = 8;
+
+	private final Cache delegate;
+
+	/**
+	 * 记录淘汰的缓存项
+	 */
+	private CacheMetrics metrics = CacheMetrics.NONE;
+
+	/**
+	 * 被跟踪的缓存项，读操作只访问这个Map
+	 */
+	private final ConcurrentHashMap<Object, Node> nodes = new ConcurrentHashMap<>();
+
+	/**
+	 * 以下字段只在持有this锁时修改
+	 */
+	private Deque<Node> window;
+	private Node[] main;
+	private int mainCount;
+	private int windowMaximum;
+
+	private volatile FrequencySketch sketch;
+
+	public TinyLfuCache(Cache delegate) {
+		this.delegate = delegate;
+		setSize(1024);
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	public synchronized void setSize(final int size) {
+		int maximum = Math.max(2, size);
+		this.windowMaximum = Math.max(1, maximum / 100);
+		this.window = new ArrayDeque<>(windowMaximum + 1);
+		this.main = new Node[maximum - windowMaximum];
+		this.mainCount = 0;
+		this.sketch = new FrequencySketch(maximum);
+		for (Object key : nodes.keySet()) {
+			delegate.removeObject(key);
+		}
+		nodes.clear();
+	}
+
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		synchronized (this) {
+			delegate.putObject(key, value);
+			Node node = nodes.get(key);
+			if (node != null) {
+				node.accessTime = System.nanoTime();
+				return;
+			}
+			node = new Node(key);
+			nodes.put(key, node);
+			window.addLast(node);
+			if (window.size() > windowMaximum) {
+				admit(window.pollFirst());
+			}
+		}
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		sketch.increment(key);
+		Node node = nodes.get(key);
+		if (node != null) {
+			node.accessTime = System.nanoTime();
+		}
+		return delegate.getObject(key);
+	}
+
+	@Override
+	public synchronized Object removeObject(Object key) {
+		Node node = nodes.remove(key);
+		if (node != null) {
+			if (node.slot < 0) {
+				window.remove(node);
+			} else {
+				removeFromMain(node);
+			}
+		}
+		return delegate.removeObject(key);
+	}
+
+	@Override
+	public synchronized void clear() {
+		delegate.clear();
+		nodes.clear();
+		window.clear();
+		for (int i = 0; i < mainCount; i++) {
+			main[i] = null;
+		}
+		mainCount = 0;
+	}
+
+	/*
+	 * 窗口中淘汰出来的候选项与主区域的牺牲者比较访问频率，频率低的被移出缓存
+	 */
+	private void admit(Node candidate) {
+		if (mainCount < main.length) {
+			addToMain(candidate);
+			return;
+		}
+		Node victim = sampleVictim();
+		if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+			evict(victim);
+			addToMain(candidate);
+		} else {
+			evict(candidate);
+		}
+	}
+
+	private Node sampleVictim() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Node victim = main[random.nextInt(mainCount)];
+		for (int i = 1; i < SAMPLE_SIZE; i++) {
+			Node node = main[random.nextInt(mainCount)];
+			if (node.accessTime - victim.accessTime < 0) {
+				victim = node;
+			}
+		}
+		return victim;
+	}
+
+	private void evict(Node node) {
+		if (node.slot >= 0) {
+			removeFromMain(node);
+		}
+		nodes.remove(node.key, node);
+		delegate.removeObject(node.key);
+		metrics.recordEviction();
+	}
+
+	private void addToMain(Node node) {
+		node.slot = mainCount;
+		main[mainCount++] = node;
+	}
+
+	private void removeFromMain(Node node) {
+		// 用最后一项填补空位，保持数组紧凑以便随机抽样
+		Node last = main[--mainCount];
+		main[node.slot] = last;
+		last.slot = node.slot;
+		main[mainCount] = null;
+		node.slot = -1;
+	}
+
+	private static final class Node {
+
+		final Object key;
+
+		/**
+		 * 最近一次访问的时间，读线程不加锁更新
+		 */
+		volatile long accessTime;
+
+		/**
+		 * 在主区域数组中的下标，-1表示还在准入窗口中
+		 */
+		int slot = -1;
+
+		Node(Object key) {
+			this.key = key;
+			this.accessTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Count-min sketch，每个long保存16个4位计数器，计数器用CAS更新
+	 */
+	static final class FrequencySketch {
+
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+				0xcbf29ce484222325L };
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private final AtomicLongArray table;
+		private final int tableMask;
+		private final int sampleSize;
+		private final AtomicInteger additions = new AtomicInteger();
+
+		FrequencySketch(int maximum) {
+			int length = Integer.highestOneBit(Math.max(maximum, 16) - 1) << 1;
+			this.table = new AtomicLongArray(length);
+			this.tableMask = length - 1;
+			this.sampleSize = 10 * maximum;
+		}
+
+		int frequency(Object key) {
+			int hash = spread(key.hashCode());
+			int start = (hash & 3) << 2;
+			int frequency = Integer.MAX_VALUE;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int offset = (start + i) << 2;
+				int count = (int) ((table.get(index) >>> offset) & 0xfL);
+				frequency = Math.min(frequency, count);
+			}
+			return frequency;
+		}
+
+		void increment(Object key) {
+			int hash = spread(key.hashCode());
+			int start = (hash & 3) << 2;
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				added |= incrementAt(indexOf(hash, i), start + i);
+			}
+			if (added && additions.incrementAndGet() == sampleSize) {
+				reset();
+			}
+		}
+
+		private boolean incrementAt(int index, int counter) {
+			int offset = counter << 2;
+			long mask = 0xfL << offset;
+			for (;;) {
+				long current = table.get(index);
+				if ((current & mask) == mask) {
+					return false;
+				}
+				if (table.compareAndSet(index, current, current + (1L << offset))) {
+					return true;
+				}
+			}
+		}
+
+		/*
+		 * 所有计数器减半，让过去的热点逐渐失效
+		 */
+		private void reset() {
+			for (int i = 0; i < table.length(); i++) {
+				for (;;) {
+					long current = table.get(i);
+					if (table.compareAndSet(i, current, (current >>> 1) & RESET_MASK)) {
+						break;
+					}
+				}
+			}
+			additions.set(0);
+		}
+
+		private int indexOf(int hash, int i) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += h >>> 32;
+			return ((int) h) & tableMask;
+		}
+
+		private static int spread(int x) {
+			x = ((x >>> 16) ^ x) * 0x45d9f3b;
+			x = ((x >>> 16) ^ x) * 0x45d9f3b;
+			return (x >>> 16) ^ x;
+		}
+	}
+}
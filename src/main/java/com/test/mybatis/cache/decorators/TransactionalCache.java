@@ -6,23 +6,51 @@ import java.util.Map;
 import java.util.Set;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.cluster.CacheInvalidationBus;
 import com.test.mybatis.logging.Log;
 import com.test.mybatis.logging.LogFactory;
 
+/**
+ *
+ * 事务缓存，暂存一个事务中要放入二级缓存的结果，提交时才真正放入
+ * <p>
+ * The staging collections are created on first use and only emptied on commit
+ * or rollback, so a transaction that only hits the cache allocates nothing and
+ * later transactions of the same session reuse them.
+ *
+ */
 public class TransactionalCache implements Cache {
 
 	private static final Log log = LogFactory.getLog(TransactionalCache.class);
 
 	private final Cache delegate;
 	private boolean clearOnCommit;
-	private final Map<Object, Object> entriesToAddOnCommit;
-	private final Set<Object> entriesMissedInCache;
+
+	/**
+	 * 以下集合在第一次使用时才创建
+	 */
+	private Map<Object, Object> entriesToAddOnCommit;
+	private Set<Object> entriesMissedInCache;
+
+	/**
+	 * 本次事务中修改过的表，依赖它们的缓存项在提交之前不再返回
+	 */
+	private Set<String> invalidatedTables;
+
+	/**
+	 * 提交时把清空缓存通知其他节点，单机时为null
+	 */
+	private final CacheInvalidationBus invalidationBus;
 
 	public TransactionalCache(Cache delegate) {
+		this(delegate, null);
+	}
+
+	public TransactionalCache(Cache delegate, CacheInvalidationBus invalidationBus) {
 		this.delegate = delegate;
+		this.invalidationBus = invalidationBus;
 		this.clearOnCommit = false;
-		this.entriesToAddOnCommit = new HashMap<>();
-		this.entriesMissedInCache = new HashSet<>();
 	}
 
 	@Override
@@ -40,18 +68,33 @@ public class TransactionalCache implements Cache {
 		// issue #116
 		Object object = delegate.getObject(key);
 		if (object == null) {
-			entriesMissedInCache.add(key);
+			markMissed(key);
 		}
 		// issue #146
-		if (clearOnCommit) {
+		if (clearOnCommit || dependsOnInvalidatedTables(key)) {
 			return null;
 		} else {
 			return object;
 		}
 	}
 
+	/**
+	 *
+	 * 记录在缓存中没有找到的key，提交或者回滚时通知缓存(释放BlockingCache的加载)
+	 *
+	 */
+	public void markMissed(Object key) {
+		if (entriesMissedInCache == null) {
+			entriesMissedInCache = new HashSet<>();
+		}
+		entriesMissedInCache.add(key);
+	}
+
 	@Override
 	public void putObject(Object key, Object object) {
+		if (entriesToAddOnCommit == null) {
+			entriesToAddOnCommit = new HashMap<>();
+		}
 		entriesToAddOnCommit.put(key, object);
 	}
 
@@ -63,12 +106,32 @@ public class TransactionalCache implements Cache {
 	@Override
 	public void clear() {
 		clearOnCommit = true;
-		entriesToAddOnCommit.clear();
+		if (entriesToAddOnCommit != null) {
+			entriesToAddOnCommit.clear();
+		}
+	}
+
+	/**
+	 *
+	 * 事务中修改了这些表，丢弃依赖它们的待提交缓存项，提交时由TransactionalCacheManager淘汰已有的缓存项
+	 *
+	 */
+	public void invalidate(Set<String> tables) {
+		if (invalidatedTables == null) {
+			invalidatedTables = new HashSet<>();
+		}
+		invalidatedTables.addAll(tables);
+		if (entriesToAddOnCommit != null) {
+			entriesToAddOnCommit.keySet().removeIf(this::dependsOnInvalidatedTables);
+		}
 	}
 
 	public void commit() {
 		if (clearOnCommit) {
 			delegate.clear();
+			if (invalidationBus != null) {
+				invalidationBus.publishClear(getId());
+			}
 		}
 		flushPendingEntries();
 		reset();
@@ -81,22 +144,37 @@ public class TransactionalCache implements Cache {
 
 	private void reset() {
 		clearOnCommit = false;
-		entriesToAddOnCommit.clear();
-		entriesMissedInCache.clear();
+		// 保留已经创建的集合给下一个事务使用
+		if (entriesToAddOnCommit != null) {
+			entriesToAddOnCommit.clear();
+		}
+		if (entriesMissedInCache != null) {
+			entriesMissedInCache.clear();
+		}
+		if (invalidatedTables != null) {
+			invalidatedTables.clear();
+		}
 	}
 
 	private void flushPendingEntries() {
-		for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-			delegate.putObject(entry.getKey(), entry.getValue());
+		if (entriesToAddOnCommit != null) {
+			for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
+				delegate.putObject(entry.getKey(), entry.getValue());
+			}
 		}
-		for (Object entry : entriesMissedInCache) {
-			if (!entriesToAddOnCommit.containsKey(entry)) {
-				delegate.putObject(entry, null);
+		if (entriesMissedInCache != null) {
+			for (Object entry : entriesMissedInCache) {
+				if (entriesToAddOnCommit == null || !entriesToAddOnCommit.containsKey(entry)) {
+					delegate.putObject(entry, null);
+				}
 			}
 		}
 	}
 
 	private void unlockMissedEntries() {
+		if (entriesMissedInCache == null) {
+			return;
+		}
 		for (Object entry : entriesMissedInCache) {
 			try {
 				delegate.removeObject(entry);
@@ -107,4 +185,19 @@ public class TransactionalCache implements Cache {
 		}
 	}
 
+	private boolean dependsOnInvalidatedTables(Object key) {
+		if (invalidatedTables == null || invalidatedTables.isEmpty()) {
+			return false;
+		}
+		Set<String> tables = key instanceof CacheKey ? ((CacheKey) key).getTables() : null;
+		if (tables == null) {
+			return true;
+		}
+		for (String table : tables) {
+			if (invalidatedTables.contains(table)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
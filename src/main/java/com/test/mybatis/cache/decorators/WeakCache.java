@@ -6,12 +6,19 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
 
 public class WeakCache implements Cache {
 
 	private final Deque<Object> hardLinksToAvoidGarbageCollection;
 	private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
 	private final Cache delegate;
+
+	/**
+	 * 记录淘汰的缓存项
+	 */
+	private CacheMetrics metrics = CacheMetrics.NONE;
+
 	private int numberOfHardLinks;
 
 	public WeakCache(Cache delegate) {
@@ -36,6 +43,10 @@ public class WeakCache implements Cache {
 		this.numberOfHardLinks = size;
 	}
 
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public void putObject(Object key, Object value) {
 		removeGarbageCollectedItems();
@@ -51,6 +62,7 @@ public class WeakCache implements Cache {
 			result = weakReference.get();
 			if (result == null) {
 				delegate.removeObject(key);
+				metrics.recordEviction();
 			} else {
 				hardLinksToAvoidGarbageCollection.addFirst(result);
 				if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
@@ -77,7 +89,9 @@ public class WeakCache implements Cache {
 	private void removeGarbageCollectedItems() {
 		WeakEntry sv;
 		while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-			delegate.removeObject(sv.key);
+			if (delegate.removeObject(sv.key) != null) {
+				metrics.recordEviction();
+			}
 		}
 	}
 
@@ -0,0 +1,170 @@
+package com.test.mybatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+
+/**
+ * 按估算的字节数限制缓存大小的装饰器，超过上限时清理最近最少使用的缓存项
+ * <p>
+ * A cached list is weighed as its size times {@code estimatedRowSize}. When the
+ * cache is read-write the values reaching this decorator are the
+ * {@code byte[]} produced by {@link SerializedCache}, and those are weighed by
+ * their actual length; the serialized results of an {@link ImmutableCache} are
+ * weighed the same way.
+ *
+ * @author ethan
+ *
+ */
+public class WeightedCache implements Cache {
+
+	/**
+	 *
+	 * 缓存对象
+	 *
+	 */
+	private final Cache delegate;
+
+	/**
+	 * 记录淘汰的缓存项
+	 */
+	private CacheMetrics metrics = CacheMetrics.NONE;
+
+	/**
+	 *
+	 * 按访问顺序记录每个缓存项的估算字节数
+	 *
+	 */
+	private final LinkedHashMap<Object, Long> weights;
+
+	/**
+	 *
+	 * 所有缓存项的估算字节数之和
+	 *
+	 */
+	private long totalBytes;
+
+	/**
+	 *
+	 * 字节数上限
+	 *
+	 */
+	private long maxBytes;
+
+	/**
+	 *
+	 * 未序列化的结果中，每一行的估算字节数
+	 *
+	 */
+	private int estimatedRowSize;
+
+	public WeightedCache(Cache delegate) {
+		this.delegate = delegate;
+		this.weights = new LinkedHashMap<>(16, .75F, true);
+		this.maxBytes = 64L * 1024 * 1024;
+		this.estimatedRowSize = 256;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evict();
+	}
+
+	public void setEstimatedRowSize(int estimatedRowSize) {
+		this.estimatedRowSize = estimatedRowSize;
+	}
+
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		long weight = weigh(value, estimatedRowSize);
+		Long previous = weights.remove(key);
+		if (previous != null) {
+			totalBytes -= previous;
+		}
+		if (weight > maxBytes) {// 单个结果就超过上限，不缓存
+			delegate.removeObject(key);
+			return;
+		}
+		delegate.putObject(key, value);
+		weights.put(key, weight);
+		totalBytes += weight;
+		evict();
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		weights.get(key); // 该key被访问过之后会被放在链表的后面
+		return delegate.getObject(key);
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		Long weight = weights.remove(key);
+		if (weight != null) {
+			totalBytes -= weight;
+		}
+		return delegate.removeObject(key);
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		weights.clear();
+		totalBytes = 0;
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<Object, Long>> it = weights.entrySet().iterator();
+		while (totalBytes > maxBytes && it.hasNext()) {
+			Map.Entry<Object, Long> eldest = it.next();
+			it.remove();
+			totalBytes -= eldest.getValue();
+			delegate.removeObject(eldest.getKey());
+			metrics.recordEviction();
+		}
+	}
+
+	/**
+	 * 估算一个缓存值的字节数，byte[]按实际长度计算
+	 */
+	public static long weigh(Object value, int estimatedRowSize) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		}
+		if (value instanceof ImmutableCache.Frozen) {
+			return ((ImmutableCache.Frozen) value).getLength();
+		}
+		if (value instanceof Collection) {
+			return (long) ((Collection<?>) value).size() * estimatedRowSize;
+		}
+		if (value instanceof Map) {
+			return (long) ((Map<?, ?>) value).size() * estimatedRowSize;
+		}
+		return estimatedRowSize;
+	}
+}
@@ -0,0 +1,91 @@
+package com.test.mybatis.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.ConcurrentCache;
+
+/**
+ * 
+ * 线程安全的PerpetualCache，基于ConcurrentHashMap，读操作不加锁，
+ * 可以在 &lt;cache type="CONCURRENT"/&gt; 中使用
+ * <p>
+ * ConcurrentHashMap does not accept null values, but the core stores null for
+ * entries that were missed in the cache (so a blocking cache can release its
+ * lock), so null is kept as a private marker.
+ * 
+ * @author ethan
+ *
+ */
+public class ConcurrentPerpetualCache implements ConcurrentCache {
+
+	private static final Object NULL_VALUE = new Object();
+
+	private final String id;
+
+	private final ConcurrentMap<Object, Object> cache = new ConcurrentHashMap<Object, Object>();
+
+	public ConcurrentPerpetualCache(String id) {
+		this.id = id;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public int getSize() {
+		return cache.size();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		cache.put(key, value == null ? NULL_VALUE : value);
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		return unmask(cache.get(key));
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		return unmask(cache.remove(key));
+	}
+
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	private Object unmask(Object value) {
+		return value == NULL_VALUE ? null : value;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Cache)) {
+			return false;
+		}
+
+		Cache otherCache = (Cache) o;
+		return getId().equals(otherCache.getId());
+	}
+
+	@Override
+	public int hashCode() {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		return getId().hashCode();
+	}
+}
@@ -0,0 +1,311 @@
+package com.test.mybatis.cache.impl;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.CacheListener;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.ObservableCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+import com.test.mybatis.cache.serializer.CacheSerializer;
+import com.test.mybatis.cache.serializer.JdkSerializer;
+import com.test.mybatis.logging.Log;
+import com.test.mybatis.logging.LogFactory;
+
+/**
+ *
+ * 堆外缓存，缓存结果序列化后保存在直接内存(direct ByteBuffer)中，不占用堆空间，
+ * 可以在 &lt;cache type="OFF_HEAP"/&gt; 中使用
+ * <p>
+ * Memory is split into slabs of {@code slabSize} bytes, up to {@code capacity}
+ * bytes in total. Values are appended to the current slab; when every slab is
+ * full the oldest slab is emptied and reused, dropping the entries it holds.
+ * Only the index (key to slab and offset) lives on the heap.
+ * <p>
+ * Like any custom cache type it gets no decorators from {@code CacheBuilder},
+ * so it is thread-safe on its own and always hands out copies, i.e. it behaves
+ * as a read-write cache whatever the readOnly setting is. Sizes are set with
+ * {@code <property name="capacity">} and {@code <property name="slabSize">},
+ * and the serializer with {@code <property name="serializer">}.
+ * <p>
+ * Every overwrite, removal, dropped slab entry and clear is reported to its
+ * {@link CacheListener}s, so {@code nearSize} can put a small on-heap L1 in
+ * front of it that saves deserializing the hottest entries.
+ *
+ * @author ethan
+ *
+ */
+public class OffHeapCache implements ConcurrentCache, ObservableCache {
+
+	private static final Log log = LogFactory.getLog(OffHeapCache.class);
+
+	private final String id;
+
+	/**
+	 * key到堆外存储位置的索引
+	 */
+	private final ConcurrentHashMap<Object, Location> index = new ConcurrentHashMap<>();
+
+	/**
+	 * 以下字段只在持有this锁时访问
+	 */
+	private final List<Slab> slabs = new ArrayList<>();
+	private int current;
+
+	private long capacity = 64L * 1024 * 1024;
+	private int slabSize = 4 * 1024 * 1024;
+	private volatile CacheSerializer serializer = new JdkSerializer();
+	private volatile CacheMetrics metrics = CacheMetrics.NONE;
+	private final List<CacheListener> listeners = new CopyOnWriteArrayList<>();
+
+	public OffHeapCache(String id) {
+		this.id = id;
+	}
+
+	public synchronized void setCapacity(long capacity) {
+		this.capacity = capacity;
+		reset();
+	}
+
+	public synchronized void setSlabSize(int slabSize) {
+		this.slabSize = slabSize;
+		reset();
+	}
+
+	public void setSerializer(String serializer) {
+		this.serializer = CacheSerializer.forName(serializer);
+	}
+
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void addListener(CacheListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public int getSize() {
+		return index.size();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		if (value == null) {
+			// 缓存未命中时core会放入null，只需要去掉旧值
+			removeObject(key);
+			return;
+		}
+		if (!(value instanceof Serializable)) {
+			throw new CacheException("OffHeapCache failed to store a non-serializable object: " + value);
+		}
+		byte[] bytes = serializer.serialize(value);
+		if (bytes.length > slabSize) {
+			if (log.isDebugEnabled()) {
+				log.debug("Value of " + bytes.length + " bytes does not fit a slab of cache " + id + ", not cached.");
+			}
+			if (index.remove(key) != null) {
+				fireRemove(key);
+			}
+			return;
+		}
+		Location previous;
+		synchronized (this) {
+			Slab slab = slabFor(bytes.length);
+			Location location = new Location(key, slab, slab.position, bytes.length);
+			ByteBuffer buffer = slab.buffer.duplicate();
+			buffer.position(slab.position);
+			buffer.put(bytes);
+			slab.position += bytes.length;
+			slab.locations.add(location);
+			previous = index.put(key, location);
+		}
+		if (previous != null) {
+			fireRemove(key);
+		}
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		Location location = index.get(key);
+		if (location == null) {
+			return null;
+		}
+		byte[] bytes = new byte[location.length];
+		ReentrantReadWriteLock.ReadLock lock = location.slab.lock.readLock();
+		lock.lock();
+		try {
+			if (!location.valid) {
+				// 所在的slab刚被回收
+				return null;
+			}
+			ByteBuffer buffer = location.slab.buffer.duplicate();
+			buffer.position(location.offset);
+			buffer.get(bytes);
+		} finally {
+			lock.unlock();
+		}
+		return serializer.deserialize(bytes);
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		// 空间在slab被回收时才释放
+		if (index.remove(key) != null) {
+			fireRemove(key);
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		synchronized (this) {
+			index.clear();
+			for (Slab slab : slabs) {
+				recycle(slab, false);
+			}
+			current = 0;
+		}
+		for (CacheListener listener : listeners) {
+			listener.onClear();
+		}
+	}
+
+	/*
+	 * 找到能放下length字节的slab，必要时分配新的slab或者回收最老的slab
+	 */
+	private Slab slabFor(int length) {
+		if (!slabs.isEmpty()) {
+			Slab slab = slabs.get(current);
+			if (slab.buffer.capacity() - slab.position >= length) {
+				return slab;
+			}
+		}
+		long allocated = (long) slabs.size() * slabSize;
+		if (slabs.isEmpty() || allocated + slabSize <= capacity) {
+			slabs.add(new Slab(ByteBuffer.allocateDirect(slabSize)));
+			current = slabs.size() - 1;
+			return slabs.get(current);
+		}
+		current = (current + 1) % slabs.size();
+		Slab oldest = slabs.get(current);
+		if (log.isDebugEnabled()) {
+			log.debug("Cache " + id + " is full, dropping " + oldest.locations.size() + " entries of its oldest slab.");
+		}
+		for (int dropped = recycle(oldest, true); dropped > 0; dropped--) {
+			metrics.recordEviction();
+		}
+		return oldest;
+	}
+
+	/*
+	 * 返回被丢弃的缓存项个数
+	 */
+	private int recycle(Slab slab, boolean notify) {
+		int dropped = 0;
+		slab.lock.writeLock().lock();
+		try {
+			for (Location location : slab.locations) {
+				location.valid = false;
+				if (index.remove(location.key, location)) {
+					dropped++;
+					if (notify) {
+						fireRemove(location.key);
+					}
+				}
+			}
+		} finally {
+			slab.lock.writeLock().unlock();
+		}
+		slab.locations.clear();
+		slab.position = 0;
+		return dropped;
+	}
+
+	private synchronized void reset() {
+		clear();
+		slabs.clear();
+	}
+
+	private void fireRemove(Object key) {
+		for (CacheListener listener : listeners) {
+			listener.onRemove(key);
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Cache)) {
+			return false;
+		}
+
+		Cache otherCache = (Cache) o;
+		return getId().equals(otherCache.getId());
+	}
+
+	@Override
+	public int hashCode() {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		return getId().hashCode();
+	}
+
+	/**
+	 * 一块堆外内存，缓存值依次追加写入
+	 */
+	private static final class Slab {
+
+		final ByteBuffer buffer;
+
+		/**
+		 * 回收slab时持有写锁，读取缓存值时持有读锁
+		 */
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		/**
+		 * 写入位置和写入的缓存项，只在持有OffHeapCache锁时访问
+		 */
+		int position;
+		final List<Location> locations = new ArrayList<>();
+
+		Slab(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+	}
+
+	private static final class Location {
+
+		final Object key;
+		final Slab slab;
+		final int offset;
+		final int length;
+		volatile boolean valid = true;
+
+		Location(Object key, Slab slab, int offset, int length) {
+			this.key = key;
+			this.slab = slab;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
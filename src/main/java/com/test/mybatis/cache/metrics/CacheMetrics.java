@@ -0,0 +1,47 @@
+package com.test.mybatis.cache.metrics;
+
+/**
+ *
+ * 缓存统计，由缓存装饰器和执行器调用，可以实现这个接口把数据交给其他监控系统
+ * <p>
+ * Hits, misses and puts are recorded by {@code LoggingCache}, evictions by the
+ * eviction decorators ({@code LRU}, {@code FIFO}, {@code TINYLFU},
+ * {@code SOFT}, {@code WEAK}, {@code maxBytes}, entry expiry and the
+ * {@code OFF_HEAP} cache) and load times by the executors. Methods are called
+ * concurrently and on hot paths, so implementations must be thread-safe and
+ * cheap.
+ *
+ * @author ethan
+ *
+ */
+public interface CacheMetrics {
+
+	/**
+	 * 不做任何统计，没有开启cacheMetricsEnabled时使用
+	 */
+	CacheMetrics NONE = new CacheMetrics() {
+	};
+
+	default void recordHit() {
+		// NOP
+	}
+
+	default void recordMiss() {
+		// NOP
+	}
+
+	default void recordPut() {
+		// NOP
+	}
+
+	default void recordEviction() {
+		// NOP
+	}
+
+	/**
+	 * 缓存未命中时从数据库加载的耗时
+	 */
+	default void recordLoad(long nanos) {
+		// NOP
+	}
+}
@@ -0,0 +1,13 @@
+package com.test.mybatis.cache.metrics;
+
+/**
+ *
+ * 为每个缓存(namespace以及LocalCache)创建统计对象，通过cacheMetricsFactory设置
+ *
+ * @author ethan
+ *
+ */
+public interface CacheMetricsFactory {
+
+	CacheMetrics newMetrics(String cacheId);
+}
@@ -0,0 +1,69 @@
+package com.test.mybatis.cache.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.test.mybatis.cache.Cache;
+
+/**
+ *
+ * 所有缓存的统计对象，以缓存id(namespace，一级缓存为LocalCache)区分
+ *
+ * @author ethan
+ *
+ */
+public class CacheMetricsRegistry {
+
+	public static final String LOCAL_CACHE_ID = "LocalCache";
+
+	private final Map<String, CacheMetrics> metrics = new ConcurrentHashMap<>();
+
+	/**
+	 * 用于读取缓存项个数
+	 */
+	private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+	private volatile CacheMetricsFactory factory = DefaultCacheMetrics::new;
+
+	public void setFactory(CacheMetricsFactory factory) {
+		this.factory = factory;
+	}
+
+	public CacheMetrics getMetrics(String cacheId) {
+		return metrics.computeIfAbsent(cacheId, id -> factory.newMetrics(id));
+	}
+
+	public void register(Cache cache) {
+		caches.put(cache.getId(), cache);
+	}
+
+	public Collection<String> getCacheIds() {
+		return Collections.unmodifiableSet(metrics.keySet());
+	}
+
+	/**
+	 * 缓存项个数，不知道时返回-1
+	 */
+	public int getSize(String cacheId) {
+		Cache cache = caches.get(cacheId);
+		return cache == null ? -1 : cache.getSize();
+	}
+
+	/**
+	 *
+	 * 以Map形式导出所有{@link DefaultCacheMetrics}的当前数据，可以直接交给其他监控系统
+	 *
+	 */
+	public Map<String, Map<String, Number>> snapshot() {
+		Map<String, Map<String, Number>> snapshot = new LinkedHashMap<>();
+		for (Map.Entry<String, CacheMetrics> entry : metrics.entrySet()) {
+			if (entry.getValue() instanceof DefaultCacheMetrics) {
+				snapshot.put(entry.getKey(), ((DefaultCacheMetrics) entry.getValue()).toMap(getSize(entry.getKey())));
+			}
+		}
+		return snapshot;
+	}
+}
@@ -0,0 +1,29 @@
+package com.test.mybatis.cache.metrics;
+
+/**
+ *
+ * 通过JMX查看的缓存统计
+ *
+ * @author ethan
+ *
+ */
+public interface CacheStatsMXBean {
+
+	String getCacheId();
+
+	long getHits();
+
+	long getMisses();
+
+	double getHitRatio();
+
+	long getPuts();
+
+	long getEvictions();
+
+	long getLoads();
+
+	double getAverageLoadTimeMillis();
+
+	int getSize();
+}
@@ -0,0 +1,108 @@
+package com.test.mybatis.cache.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * 默认的统计实现，计数保存在内存中，可以通过{@link CacheMetricsRegistry#snapshot()}或者JMX读取
+ *
+ * @author ethan
+ *
+ */
+public class DefaultCacheMetrics implements CacheMetrics {
+
+	private final String cacheId;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadTime = new LongAdder();
+
+	public DefaultCacheMetrics(String cacheId) {
+		this.cacheId = cacheId;
+	}
+
+	public String getCacheId() {
+		return cacheId;
+	}
+
+	@Override
+	public void recordHit() {
+		hits.increment();
+	}
+
+	@Override
+	public void recordMiss() {
+		misses.increment();
+	}
+
+	@Override
+	public void recordPut() {
+		puts.increment();
+	}
+
+	@Override
+	public void recordEviction() {
+		evictions.increment();
+	}
+
+	@Override
+	public void recordLoad(long nanos) {
+		loads.increment();
+		loadTime.add(nanos);
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getPuts() {
+		return puts.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getLoads() {
+		return loads.sum();
+	}
+
+	public long getTotalLoadTimeNanos() {
+		return loadTime.sum();
+	}
+
+	public double getHitRatio() {
+		long hitCount = getHits();
+		long requests = hitCount + getMisses();
+		return requests == 0 ? 0 : (double) hitCount / requests;
+	}
+
+	public double getAverageLoadTimeMillis() {
+		long loadCount = getLoads();
+		return loadCount == 0 ? 0 : getTotalLoadTimeNanos() / 1e6 / loadCount;
+	}
+
+	/**
+	 * 当前的统计数据，size为-1表示不知道缓存项个数
+	 */
+	public Map<String, Number> toMap(int size) {
+		Map<String, Number> map = new LinkedHashMap<>();
+		map.put("hits", getHits());
+		map.put("misses", getMisses());
+		map.put("hitRatio", getHitRatio());
+		map.put("puts", getPuts());
+		map.put("evictions", getEvictions());
+		map.put("loads", getLoads());
+		map.put("averageLoadTimeMillis", getAverageLoadTimeMillis());
+		map.put("size", size);
+		return map;
+	}
+}
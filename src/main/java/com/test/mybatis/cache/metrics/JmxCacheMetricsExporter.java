@@ -0,0 +1,121 @@
+package com.test.mybatis.cache.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.test.mybatis.cache.CacheException;
+
+/**
+ *
+ * 把每个缓存的{@link DefaultCacheMetrics}注册成一个MBean，
+ * 名字是 com.test.mybatis:type=CacheMetrics,name="缓存id"
+ * <p>
+ * Export after the mappers are loaded; caches that first record metrics later
+ * are picked up by calling {@link #export()} again.
+ *
+ * @author ethan
+ *
+ */
+public class JmxCacheMetricsExporter {
+
+	private final CacheMetricsRegistry registry;
+	private final MBeanServer server;
+	private final List<ObjectName> exported = new ArrayList<>();
+
+	public JmxCacheMetricsExporter(CacheMetricsRegistry registry) {
+		this(registry, ManagementFactory.getPlatformMBeanServer());
+	}
+
+	public JmxCacheMetricsExporter(CacheMetricsRegistry registry, MBeanServer server) {
+		this.registry = registry;
+		this.server = server;
+	}
+
+	public synchronized void export() {
+		for (String cacheId : registry.getCacheIds()) {
+			CacheMetrics metrics = registry.getMetrics(cacheId);
+			if (!(metrics instanceof DefaultCacheMetrics)) {
+				continue;
+			}
+			try {
+				ObjectName name = new ObjectName("com.test.mybatis:type=CacheMetrics,name=" + ObjectName.quote(cacheId));
+				if (!server.isRegistered(name)) {
+					server.registerMBean(new CacheStats((DefaultCacheMetrics) metrics), name);
+					exported.add(name);
+				}
+			} catch (JMException e) {
+				throw new CacheException("Error exporting metrics of cache " + cacheId + ". Cause: " + e, e);
+			}
+		}
+	}
+
+	public synchronized void unexport() {
+		for (ObjectName name : exported) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				// already unregistered
+			}
+		}
+		exported.clear();
+	}
+
+	private class CacheStats implements CacheStatsMXBean {
+
+		private final DefaultCacheMetrics metrics;
+
+		CacheStats(DefaultCacheMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		@Override
+		public String getCacheId() {
+			return metrics.getCacheId();
+		}
+
+		@Override
+		public long getHits() {
+			return metrics.getHits();
+		}
+
+		@Override
+		public long getMisses() {
+			return metrics.getMisses();
+		}
+
+		@Override
+		public double getHitRatio() {
+			return metrics.getHitRatio();
+		}
+
+		@Override
+		public long getPuts() {
+			return metrics.getPuts();
+		}
+
+		@Override
+		public long getEvictions() {
+			return metrics.getEvictions();
+		}
+
+		@Override
+		public long getLoads() {
+			return metrics.getLoads();
+		}
+
+		@Override
+		public double getAverageLoadTimeMillis() {
+			return metrics.getAverageLoadTimeMillis();
+		}
+
+		@Override
+		public int getSize() {
+			return registry.getSize(metrics.getCacheId());
+		}
+	}
+}
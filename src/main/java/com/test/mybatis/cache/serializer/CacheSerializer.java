@@ -0,0 +1,42 @@
+package com.test.mybatis.cache.serializer;
+
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.io.Resources;
+
+/**
+ * 
+ * 缓存值的序列化接口，SerializedCache和OffHeapCache通过它把查询结果转换成字节数组
+ * <p>
+ * Implementations must be thread-safe and must return an equal but independent
+ * copy from {@link #deserialize(byte[])}, since callers rely on it to keep
+ * cached results from being modified.
+ * 
+ * @author ethan
+ *
+ */
+public interface CacheSerializer {
+
+	byte[] serialize(Object value);
+
+	Object deserialize(byte[] bytes);
+
+	/**
+	 * 根据名称获取序列化实现，可以是jdk、compact或者实现类的全限定名
+	 * 
+	 * @param name the serializer name
+	 * @return a new serializer
+	 */
+	static CacheSerializer forName(String name) {
+		if ("jdk".equalsIgnoreCase(name)) {
+			return new JdkSerializer();
+		}
+		if ("compact".equalsIgnoreCase(name)) {
+			return new CompactSerializer();
+		}
+		try {
+			return (CacheSerializer) Resources.classForName(name).getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			throw new CacheException("Could not instantiate cache serializer (" + name + "). Cause: " + e, e);
+		}
+	}
+}
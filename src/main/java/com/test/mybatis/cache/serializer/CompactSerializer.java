@@ -0,0 +1,610 @@
+package com.test.mybatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.io.Resources;
+import com.test.mybatis.reflection.DefaultReflectorFactory;
+import com.test.mybatis.reflection.Reflector;
+import com.test.mybatis.reflection.ReflectorFactory;
+import com.test.mybatis.reflection.invoker.Invoker;
+
+/**
+ *
+ * 紧凑的二进制序列化实现，针对常见的查询结果(JavaBean、List、Map、基本类型包装类、日期时间)，
+ * 不写类描述信息，比JDK序列化更快、结果更小
+ * <p>
+ * Beans are written as their readable and writable properties found by
+ * {@link Reflector}; each class name and its property names are written once
+ * per value. Shared and circular references are kept. Anything the codec does
+ * not know exactly (other collection classes, proxies, classes with custom
+ * serialization or without a default constructor) is embedded as JDK
+ * serialization, so every Serializable value still round-trips.
+ *
+ * @author ethan
+ *
+ */
+public class CompactSerializer implements CacheSerializer {
+
+	private static final byte NULL = 0;
+	private static final byte TRUE = 1;
+	private static final byte FALSE = 2;
+	private static final byte BYTE = 3;
+	private static final byte SHORT = 4;
+	private static final byte INT = 5;
+	private static final byte LONG = 6;
+	private static final byte FLOAT = 7;
+	private static final byte DOUBLE = 8;
+	private static final byte CHAR = 9;
+	private static final byte STRING = 10;
+	private static final byte BIG_DECIMAL = 11;
+	private static final byte BIG_INTEGER = 12;
+	private static final byte BYTES = 13;
+	private static final byte DATE = 14;
+	private static final byte SQL_DATE = 15;
+	private static final byte SQL_TIME = 16;
+	private static final byte SQL_TIMESTAMP = 17;
+	private static final byte LOCAL_DATE = 18;
+	private static final byte LOCAL_TIME = 19;
+	private static final byte LOCAL_DATE_TIME = 20;
+	private static final byte INSTANT = 21;
+	private static final byte OFFSET_DATE_TIME = 22;
+	private static final byte ENUM = 23;
+	private static final byte ARRAY_LIST = 24;
+	private static final byte LINKED_LIST = 25;
+	private static final byte HASH_MAP = 26;
+	private static final byte LINKED_HASH_MAP = 27;
+	private static final byte HASH_SET = 28;
+	private static final byte LINKED_HASH_SET = 29;
+	private static final byte BEAN = 30;
+	private static final byte REFERENCE = 31;
+	private static final byte JAVA = 32;
+
+	private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+	private final JdkSerializer fallback = new JdkSerializer();
+
+	/**
+	 * 每个类是否可以按JavaBean处理，以及按名称读取时使用的描述信息
+	 */
+	private final Map<Class<?>, BeanType> beanTypes = new ConcurrentHashMap<>();
+	private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+	@Override
+	public byte[] serialize(Object value) {
+		try {
+			Writer writer = new Writer();
+			writer.writeObject(value);
+			return writer.toByteArray();
+		} catch (CacheException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CacheException("Error serializing object.  Cause: " + e, e);
+		}
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		try {
+			return new Reader(bytes).readObject();
+		} catch (CacheException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CacheException("Error deserializing object.  Cause: " + e, e);
+		}
+	}
+
+	private BeanType beanType(Class<?> type) {
+		BeanType beanType = beanTypes.get(type);
+		if (beanType == null) {
+			beanType = new BeanType(type);
+			beanTypes.put(type, beanType);
+		}
+		return beanType;
+	}
+
+	private Class<?> classForName(String name) throws ClassNotFoundException {
+		Class<?> type = classes.get(name);
+		if (type == null) {
+			type = Resources.classForName(name);
+			classes.put(name, type);
+		}
+		return type;
+	}
+
+	private final class Writer {
+
+		private byte[] buffer = new byte[256];
+		private int position;
+		private final Map<Object, Integer> references = new IdentityHashMap<>();
+		private final Map<Class<?>, Integer> classIds = new HashMap<>();
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+
+		void writeObject(Object value) throws Exception {
+			if (value == null) {
+				writeByte(NULL);
+				return;
+			}
+			Class<?> type = value.getClass();
+			if (type == String.class) {
+				writeByte(STRING);
+				writeString((String) value);
+			} else if (type == Integer.class) {
+				writeByte(INT);
+				writeVarLong(zigZag((Integer) value));
+			} else if (type == Long.class) {
+				writeByte(LONG);
+				writeVarLong(zigZag((Long) value));
+			} else if (type == Boolean.class) {
+				writeByte((Boolean) value ? TRUE : FALSE);
+			} else if (type == Double.class) {
+				writeByte(DOUBLE);
+				writeFixedLong(Double.doubleToRawLongBits((Double) value));
+			} else if (type == BigDecimal.class) {
+				BigDecimal decimal = (BigDecimal) value;
+				writeByte(BIG_DECIMAL);
+				writeVarLong(zigZag(decimal.scale()));
+				writeBytes(decimal.unscaledValue().toByteArray());
+			} else if (type == java.sql.Timestamp.class) {
+				java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+				writeByte(SQL_TIMESTAMP);
+				writeVarLong(zigZag(timestamp.getTime()));
+				writeVarLong(timestamp.getNanos());
+			} else if (type == java.util.Date.class || type == java.sql.Date.class || type == java.sql.Time.class) {
+				writeByte(type == java.util.Date.class ? DATE : type == java.sql.Date.class ? SQL_DATE : SQL_TIME);
+				writeVarLong(zigZag(((java.util.Date) value).getTime()));
+			} else if (type == LocalDate.class) {
+				writeByte(LOCAL_DATE);
+				writeVarLong(zigZag(((LocalDate) value).toEpochDay()));
+			} else if (type == LocalTime.class) {
+				writeByte(LOCAL_TIME);
+				writeVarLong(((LocalTime) value).toNanoOfDay());
+			} else if (type == LocalDateTime.class) {
+				writeByte(LOCAL_DATE_TIME);
+				writeLocalDateTime((LocalDateTime) value);
+			} else if (type == OffsetDateTime.class) {
+				OffsetDateTime dateTime = (OffsetDateTime) value;
+				writeByte(OFFSET_DATE_TIME);
+				writeLocalDateTime(dateTime.toLocalDateTime());
+				writeVarLong(zigZag(dateTime.getOffset().getTotalSeconds()));
+			} else if (type == Instant.class) {
+				Instant instant = (Instant) value;
+				writeByte(INSTANT);
+				writeVarLong(zigZag(instant.getEpochSecond()));
+				writeVarLong(instant.getNano());
+			} else if (type == Float.class) {
+				writeByte(FLOAT);
+				writeFixedLong(Float.floatToRawIntBits((Float) value));
+			} else if (type == Short.class) {
+				writeByte(SHORT);
+				writeVarLong(zigZag((Short) value));
+			} else if (type == Byte.class) {
+				writeByte(BYTE);
+				writeByte((Byte) value);
+			} else if (type == Character.class) {
+				writeByte(CHAR);
+				writeVarLong((Character) value);
+			} else if (type == BigInteger.class) {
+				writeByte(BIG_INTEGER);
+				writeBytes(((BigInteger) value).toByteArray());
+			} else if (type == byte[].class) {
+				writeByte(BYTES);
+				writeBytes((byte[]) value);
+			} else if (value instanceof Enum) {
+				writeByte(ENUM);
+				writeClass(((Enum<?>) value).getDeclaringClass(), null);
+				writeString(((Enum<?>) value).name());
+			} else if (!writeReference(value)) {
+				writeComposite(type, value);
+			}
+		}
+
+		private void writeComposite(Class<?> type, Object value) throws Exception {
+			if (type == ArrayList.class || type == LinkedList.class || type == HashSet.class
+					|| type == LinkedHashSet.class) {
+				Collection<?> collection = (Collection<?>) value;
+				writeByte(type == ArrayList.class ? ARRAY_LIST
+						: type == LinkedList.class ? LINKED_LIST : type == HashSet.class ? HASH_SET : LINKED_HASH_SET);
+				writeVarLong(collection.size());
+				for (Object element : collection) {
+					writeObject(element);
+				}
+			} else if (type == HashMap.class || type == LinkedHashMap.class) {
+				Map<?, ?> map = (Map<?, ?>) value;
+				writeByte(type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+				writeVarLong(map.size());
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					writeObject(entry.getKey());
+					writeObject(entry.getValue());
+				}
+			} else if (beanType(type).supported) {
+				BeanType beanType = beanType(type);
+				writeByte(BEAN);
+				writeClass(type, beanType.properties);
+				for (Invoker getter : beanType.getters) {
+					writeObject(getter.invoke(value, null));
+				}
+			} else {
+				// 不认识的类型交给JDK序列化
+				writeByte(JAVA);
+				writeBytes(fallback.serialize(value));
+			}
+		}
+
+		/*
+		 * 同一个对象第二次出现时只写引用编号
+		 */
+		private boolean writeReference(Object value) {
+			Integer id = references.get(value);
+			if (id != null) {
+				writeByte(REFERENCE);
+				writeVarLong(id);
+				return true;
+			}
+			references.put(value, references.size());
+			return false;
+		}
+
+		private void writeClass(Class<?> type, String[] properties) {
+			Integer id = classIds.get(type);
+			if (id != null) {
+				writeVarLong(id + 1);
+				return;
+			}
+			classIds.put(type, classIds.size());
+			writeVarLong(0);
+			writeString(type.getName());
+			if (properties != null) {
+				writeVarLong(properties.length);
+				for (String property : properties) {
+					writeString(property);
+				}
+			}
+		}
+
+		private void writeLocalDateTime(LocalDateTime dateTime) {
+			writeVarLong(zigZag(dateTime.toLocalDate().toEpochDay()));
+			writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+		}
+
+		private void writeString(String value) {
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void writeBytes(byte[] bytes) {
+			writeVarLong(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, position, bytes.length);
+			position += bytes.length;
+		}
+
+		private void writeFixedLong(long value) {
+			ensureCapacity(8);
+			for (int i = 0; i < 8; i++) {
+				buffer[position++] = (byte) (value >>> (i << 3));
+			}
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			buffer[position++] = (byte) value;
+		}
+
+		private void ensureCapacity(int length) {
+			if (position + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+			}
+		}
+	}
+
+	private final class Reader {
+
+		private final byte[] buffer;
+		private int position;
+		private final List<Object> references = new ArrayList<>();
+		private final List<ClassEntry> classEntries = new ArrayList<>();
+
+		Reader(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Object readObject() throws Exception {
+			byte tag = buffer[position++];
+			switch (tag) {
+			case NULL:
+				return null;
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case BYTE:
+				return buffer[position++];
+			case SHORT:
+				return (short) unZigZag(readVarLong());
+			case INT:
+				return (int) unZigZag(readVarLong());
+			case LONG:
+				return unZigZag(readVarLong());
+			case FLOAT:
+				return Float.intBitsToFloat((int) readFixedLong());
+			case DOUBLE:
+				return Double.longBitsToDouble(readFixedLong());
+			case CHAR:
+				return (char) readVarLong();
+			case STRING:
+				return readString();
+			case BIG_DECIMAL: {
+				int scale = (int) unZigZag(readVarLong());
+				return new BigDecimal(new BigInteger(readBytes()), scale);
+			}
+			case BIG_INTEGER:
+				return new BigInteger(readBytes());
+			case BYTES:
+				return readBytes();
+			case DATE:
+				return new java.util.Date(unZigZag(readVarLong()));
+			case SQL_DATE:
+				return new java.sql.Date(unZigZag(readVarLong()));
+			case SQL_TIME:
+				return new java.sql.Time(unZigZag(readVarLong()));
+			case SQL_TIMESTAMP: {
+				java.sql.Timestamp timestamp = new java.sql.Timestamp(unZigZag(readVarLong()));
+				timestamp.setNanos((int) readVarLong());
+				return timestamp;
+			}
+			case LOCAL_DATE:
+				return LocalDate.ofEpochDay(unZigZag(readVarLong()));
+			case LOCAL_TIME:
+				return LocalTime.ofNanoOfDay(readVarLong());
+			case LOCAL_DATE_TIME:
+				return readLocalDateTime();
+			case OFFSET_DATE_TIME: {
+				LocalDateTime dateTime = readLocalDateTime();
+				return OffsetDateTime.of(dateTime, ZoneOffset.ofTotalSeconds((int) unZigZag(readVarLong())));
+			}
+			case INSTANT: {
+				long seconds = unZigZag(readVarLong());
+				return Instant.ofEpochSecond(seconds, readVarLong());
+			}
+			case ENUM: {
+				Class<? extends Enum> type = (Class<? extends Enum>) readClass(false).type;
+				return Enum.valueOf(type, readString());
+			}
+			case ARRAY_LIST:
+			case LINKED_LIST:
+			case HASH_SET:
+			case LINKED_HASH_SET: {
+				int size = (int) readVarLong();
+				Collection<Object> collection = tag == ARRAY_LIST ? new ArrayList<>(size)
+						: tag == LINKED_LIST ? new LinkedList<>()
+								: tag == HASH_SET ? new HashSet<>(capacityFor(size)) : new LinkedHashSet<>(capacityFor(size));
+				references.add(collection);
+				for (int i = 0; i < size; i++) {
+					collection.add(readObject());
+				}
+				return collection;
+			}
+			case HASH_MAP:
+			case LINKED_HASH_MAP: {
+				int size = (int) readVarLong();
+				Map<Object, Object> map = tag == HASH_MAP ? new HashMap<>(capacityFor(size))
+						: new LinkedHashMap<>(capacityFor(size));
+				references.add(map);
+				for (int i = 0; i < size; i++) {
+					Object key = readObject();
+					map.put(key, readObject());
+				}
+				return map;
+			}
+			case BEAN:
+				return readBean();
+			case REFERENCE:
+				return references.get((int) readVarLong());
+			case JAVA: {
+				Object value = fallback.deserialize(readBytes());
+				references.add(value);
+				return value;
+			}
+			default:
+				throw new CacheException("Unknown type tag " + tag + " in cached value.");
+			}
+		}
+
+		private Object readBean() throws Exception {
+			ClassEntry entry = readClass(true);
+			BeanType beanType = beanType(entry.type);
+			if (!beanType.supported) {
+				throw new CacheException("Class " + entry.type.getName() + " can no longer be read as a bean.");
+			}
+			Object bean = beanType.constructor.newInstance();
+			references.add(bean);
+			Object[] args = new Object[1];
+			for (String property : entry.properties) {
+				Object value = readObject();
+				Invoker setter = beanType.setters.get(property);
+				if (setter != null && (value != null || !setter.getType().isPrimitive())) {
+					args[0] = value;
+					setter.invoke(bean, args);
+				}
+			}
+			return bean;
+		}
+
+		private ClassEntry readClass(boolean withProperties) throws ClassNotFoundException {
+			int id = (int) readVarLong();
+			if (id > 0) {
+				return classEntries.get(id - 1);
+			}
+			ClassEntry entry = new ClassEntry(classForName(readString()));
+			if (withProperties) {
+				entry.properties = new String[(int) readVarLong()];
+				for (int i = 0; i < entry.properties.length; i++) {
+					entry.properties[i] = readString();
+				}
+			}
+			classEntries.add(entry);
+			return entry;
+		}
+
+		private LocalDateTime readLocalDateTime() {
+			LocalDate date = LocalDate.ofEpochDay(unZigZag(readVarLong()));
+			return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong()));
+		}
+
+		private String readString() {
+			int length = (int) readVarLong();
+			String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+
+		private byte[] readBytes() {
+			int length = (int) readVarLong();
+			byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+			position += length;
+			return bytes;
+		}
+
+		private long readFixedLong() {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value |= (buffer[position++] & 0xFFL) << (i << 3);
+			}
+			return value;
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = buffer[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static int capacityFor(int size) {
+		return Math.max(16, (int) (size / .75f) + 1);
+	}
+
+	private static final class ClassEntry {
+
+		final Class<?> type;
+		String[] properties;
+
+		ClassEntry(Class<?> type) {
+			this.type = type;
+		}
+	}
+
+	/**
+	 * 按JavaBean读写一个类需要的信息
+	 */
+	private final class BeanType {
+
+		final boolean supported;
+		String[] properties;
+		Invoker[] getters;
+		Map<String, Invoker> setters;
+		Constructor<?> constructor;
+
+		BeanType(Class<?> type) {
+			this.supported = isBean(type) && describe(type);
+		}
+
+		private boolean isBean(Class<?> type) {
+			if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+					|| type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+					|| Proxy.isProxyClass(type) || type.getName().contains("$$") || type.getName().startsWith("java")) {
+				return false;
+			}
+			// 自定义了序列化过程的类交给JDK处理
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+				for (Method method : c.getDeclaredMethods()) {
+					String name = method.getName();
+					if ("writeObject".equals(name) || "readObject".equals(name) || "writeReplace".equals(name)
+							|| "readResolve".equals(name)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private boolean describe(Class<?> type) {
+			Reflector reflector = reflectorFactory.findForClass(type);
+			if (!reflector.hasDefaultConstructor()) {
+				return false;
+			}
+			constructor = reflector.getDefaultConstructor();
+			try {
+				constructor.setAccessible(true);
+			} catch (Exception e) {
+				return false;
+			}
+			List<String> names = new ArrayList<>();
+			for (String name : reflector.getGetablePropertyNames()) {
+				if (!"class".equals(name) && reflector.hasSetter(name)) {
+					names.add(name);
+				}
+			}
+			names.sort(null);
+			properties = names.toArray(new String[0]);
+			getters = new Invoker[properties.length];
+			setters = new HashMap<>();
+			for (int i = 0; i < properties.length; i++) {
+				getters[i] = reflector.getGetInvoker(properties[i]);
+				setters.put(properties[i], reflector.getSetInvoker(properties[i]));
+			}
+			return true;
+		}
+	}
+}
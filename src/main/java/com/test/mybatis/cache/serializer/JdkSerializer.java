@@ -0,0 +1,41 @@
+package com.test.mybatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.decorators.SerializedCache.CustomObjectInputStream;
+
+/**
+ * 
+ * 基于JDK序列化的实现，SerializedCache的默认序列化方式
+ * 
+ * @author ethan
+ *
+ */
+public class JdkSerializer implements CacheSerializer {
+
+	@Override
+	public byte[] serialize(Object value) {
+		try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeObject(value);
+			oos.flush();
+			return bos.toByteArray();
+		} catch (Exception e) {
+			throw new CacheException("Error serializing object.  Cause: " + e, e);
+		}
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+				ObjectInputStream ois = new CustomObjectInputStream(bis)) {
+			return ois.readObject();
+		} catch (Exception e) {
+			throw new CacheException("Error deserializing object.  Cause: " + e, e);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.test.mybatis.cursor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 在遍历Cursor的同时收集每一行，完整遍历之后把所有行交给二级缓存
+ * <p>
+ * The rows are only handed over when the delegate reports it is consumed, so a
+ * cursor that is closed early or fails while fetching never publishes a partial
+ * result. Results longer than {@code maxRows} stop being collected, and are not
+ * cached, so a large export does not end up in memory twice.
+ *
+ * @author ethan
+ *
+ */
+public class CachingCursor<T> implements Cursor<T> {
+
+	private final Cursor<T> delegate;
+	private final int maxRows;
+	private final Consumer<List<T>> onComplete;
+
+	/**
+	 * 超过maxRows或者已经交给缓存之后为null
+	 */
+	private List<T> rows = new ArrayList<>();
+
+	public CachingCursor(Cursor<T> delegate, int maxRows, Consumer<List<T>> onComplete) {
+		this.delegate = delegate;
+		this.maxRows = maxRows;
+		this.onComplete = onComplete;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public boolean isConsumed() {
+		return delegate.isConsumed();
+	}
+
+	@Override
+	public int getCurrentIndex() {
+		return delegate.getCurrentIndex();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		final Iterator<T> iterator = delegate.iterator();
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				boolean hasNext = iterator.hasNext();
+				if (!hasNext) {
+					complete();
+				}
+				return hasNext;
+			}
+
+			@Override
+			public T next() {
+				T row = iterator.next();
+				if (rows != null) {
+					if (rows.size() < maxRows) {
+						rows.add(row);
+					} else {
+						rows = null;
+					}
+				}
+				// 达到RowBounds.limit时取出最后一行的同时就结束了
+				complete();
+				return row;
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		rows = null;
+		delegate.close();
+	}
+
+	private void complete() {
+		if (rows != null && delegate.isConsumed()) {
+			List<T> completed = rows;
+			rows = null;
+			onComplete.accept(completed);
+		}
+	}
+}
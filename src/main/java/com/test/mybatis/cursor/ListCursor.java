@@ -0,0 +1,73 @@
+package com.test.mybatis.cursor;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 遍历已经缓存的查询结果的Cursor，二级缓存命中时代替DefaultCursor返回
+ *
+ * @author ethan
+ *
+ */
+public class ListCursor<T> implements Cursor<T> {
+
+	private final List<T> rows;
+	private final int offset;
+	private int index = -1;
+	private boolean iteratorRetrieved;
+	private boolean closed;
+
+	/**
+	 * @param offset 缓存结果的第一行在整个结果集中的位置，即RowBounds.offset
+	 */
+	public ListCursor(List<T> rows, int offset) {
+		this.rows = rows;
+		this.offset = offset;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return iteratorRetrieved && !closed && !isConsumed();
+	}
+
+	@Override
+	public boolean isConsumed() {
+		return index + 1 >= rows.size();
+	}
+
+	@Override
+	public int getCurrentIndex() {
+		return offset + index;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		if (iteratorRetrieved) {
+			throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+		}
+		if (closed) {
+			throw new IllegalStateException("A Cursor is already closed.");
+		}
+		iteratorRetrieved = true;
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return !closed && index + 1 < rows.size();
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return rows.get(++index);
+			}
+		};
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+}
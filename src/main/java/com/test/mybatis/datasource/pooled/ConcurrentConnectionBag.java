@@ -0,0 +1,346 @@
+package com.test.mybatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁连接容器，供 PooledDataSource 的 poolLockFree 模式使用。
+ * <p>
+ * Every physical connection is an {@link Entry} kept in a copy-on-write shared
+ * list for its whole life; borrowing and returning only flip the entry state
+ * with a CAS. Entries returned by a thread are remembered in a thread-local
+ * list so the same thread usually gets them back without scanning, and
+ * threads that have to wait receive returned entries through a handoff queue
+ * instead of parking on a shared monitor.
+ *
+ * @author ethan
+ */
+class ConcurrentConnectionBag {
+
+	static final int STATE_REMOVED = -1;
+	static final int STATE_IDLE = 0;
+	static final int STATE_IN_USE = 1;
+
+	private static final int THREAD_LIST_SIZE = 16;
+
+	private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<List<Entry>> threadList = ThreadLocal
+			.withInitial(() -> new ArrayList<>(THREAD_LIST_SIZE));
+	private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger totalCount = new AtomicInteger();
+
+	/*
+	 * Claims an idle entry without blocking, preferring the entries recently
+	 * returned by the calling thread.
+	 *
+	 * @return the claimed entry (in use), or null if none is idle
+	 */
+	Entry poll() {
+		List<Entry> list = threadList.get();
+		for (int i = list.size() - 1; i >= 0; i--) {
+			Entry entry = list.remove(i);
+			if (claim(entry)) {
+				return entry;
+			}
+		}
+		return scan();
+	}
+
+	/*
+	 * Waits for an entry to be returned to the bag.
+	 *
+	 * @param timeoutMillis - the maximum time to wait
+	 *
+	 * @return the claimed entry (in use), or null if the timeout elapsed
+	 */
+	Entry await(long timeoutMillis) throws InterruptedException {
+		waiters.incrementAndGet();
+		try {
+			// an entry may have been returned before this thread was counted as a waiter
+			Entry entry = scan();
+			if (entry != null) {
+				return entry;
+			}
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			long remaining = deadline - System.nanoTime();
+			while (remaining > 0) {
+				entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+				if (entry == null) {
+					return null;
+				}
+				if (claim(entry)) {
+					return entry;
+				}
+				remaining = deadline - System.nanoTime();
+			}
+			return null;
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	/*
+	 * Reserves room for a new physical connection.
+	 *
+	 * @param maximum - the maximum number of connections in the bag
+	 *
+	 * @return True if a new connection may be created
+	 */
+	boolean reserve(int maximum) {
+		for (;;) {
+			int current = totalCount.get();
+			if (current >= maximum) {
+				return false;
+			}
+			if (totalCount.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Gives back room reserved by a connection that could not be created.
+	 */
+	void cancelReserve() {
+		totalCount.decrementAndGet();
+	}
+
+	/*
+	 * Adds a newly created connection, already in use by the caller.
+	 *
+	 * @param connection - the physical connection
+	 *
+	 * @return the new entry
+	 */
+	Entry add(Connection connection) {
+		Entry entry = new Entry(connection);
+		sharedList.add(entry);
+		return entry;
+	}
+
+	/*
+	 * Takes an in-use entry back from its holder before it is returned. Each
+	 * checkout gets its own PooledConnection, so whoever detaches it first (the
+	 * holder closing it or another thread claiming it as overdue) owns the entry.
+	 *
+	 * @param entry - the entry
+	 *
+	 * @param conn - the pooled connection that is returning it
+	 *
+	 * @return True if the caller now owns the entry
+	 */
+	boolean release(Entry entry, PooledConnection conn) {
+		return entry != null && conn != null && entry.current.compareAndSet(conn, null);
+	}
+
+	/*
+	 * Makes an owned entry available again, handing it directly to a waiting
+	 * thread when there is one.
+	 *
+	 * @param entry - the entry
+	 */
+	void requite(Entry entry) {
+		idleCount.incrementAndGet();
+		entry.state.set(STATE_IDLE);
+		for (int i = 0; waiters.get() > 0; i++) {
+			if (entry.state.get() != STATE_IDLE || handoffQueue.offer(entry)) {
+				return;
+			} else if ((i & 0xff) == 0xff) {
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+			} else {
+				Thread.yield();
+			}
+		}
+		List<Entry> list = threadList.get();
+		if (list.size() < THREAD_LIST_SIZE) {
+			list.add(entry);
+		}
+	}
+
+	/*
+	 * Takes over the in-use entry that has been checked out the longest, if it
+	 * has been checked out longer than the given time.
+	 *
+	 * @param maximumCheckoutTime - the overdue threshold
+	 *
+	 * @return the overdue pooled connection, already detached from its entry, or
+	 * null if no connection is overdue
+	 */
+	PooledConnection reclaimOverdue(long maximumCheckoutTime) {
+		Entry oldest = null;
+		PooledConnection oldestConnection = null;
+		long oldestCheckoutTime = maximumCheckoutTime;
+		for (Entry entry : sharedList) {
+			PooledConnection current = entry.current.get();
+			if (current != null && current.getCheckoutTime() > oldestCheckoutTime) {
+				oldest = entry;
+				oldestConnection = current;
+				oldestCheckoutTime = current.getCheckoutTime();
+			}
+		}
+		if (oldest != null && release(oldest, oldestConnection)) {
+			return oldestConnection;
+		}
+		return null;
+	}
+
+	/*
+	 * Removes an entry from the bag for good.
+	 *
+	 * @param entry - the entry
+	 *
+	 * @return True if the entry was still part of the bag
+	 */
+	boolean remove(Entry entry) {
+		int previous = entry.state.getAndSet(STATE_REMOVED);
+		if (previous == STATE_REMOVED) {
+			return false;
+		}
+		if (previous == STATE_IDLE) {
+			idleCount.decrementAndGet();
+		}
+		sharedList.remove(entry);
+		totalCount.decrementAndGet();
+		return true;
+	}
+
+	/*
+	 * Removes every entry from the bag.
+	 *
+	 * @return the entries that were removed
+	 */
+	List<Entry> removeAll() {
+		List<Entry> removed = new ArrayList<>();
+		for (Entry entry : sharedList) {
+			if (remove(entry)) {
+				removed.add(entry);
+			}
+		}
+		return removed;
+	}
+
+	/*
+	 * Gets every entry currently in the bag, idle or not
+	 *
+	 * @return a snapshot of the entries
+	 */
+	List<Entry> getEntries() {
+		return new ArrayList<>(sharedList);
+	}
+
+	int getIdleCount() {
+		return Math.max(0, idleCount.get());
+	}
+
+	int getActiveCount() {
+		return Math.max(0, totalCount.get() - idleCount.get());
+	}
+
+	int getWaitingCount() {
+		return waiters.get();
+	}
+
+	private Entry scan() {
+		for (Entry entry : sharedList) {
+			if (claim(entry)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Claims the given entry if it is idle.
+	 *
+	 * @param entry - the entry
+	 *
+	 * @return True if the caller now has the entry in use
+	 */
+	boolean claim(Entry entry) {
+		if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+			idleCount.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A physical connection owned by the bag.
+	 */
+	static final class Entry {
+
+		private final Connection realConnection;
+		private final long createdTimestamp;
+		private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+		private volatile long lastUsedTimestamp;
+		private volatile long lastValidatedTimestamp;
+		private final AtomicReference<PooledConnection> current = new AtomicReference<>();
+		private volatile StatementCache statementCache;
+
+		Entry(Connection realConnection) {
+			this.realConnection = realConnection;
+			this.createdTimestamp = System.currentTimeMillis();
+			this.lastUsedTimestamp = createdTimestamp;
+		}
+
+		Connection getRealConnection() {
+			return realConnection;
+		}
+
+		long getCreatedTimestamp() {
+			return createdTimestamp;
+		}
+
+		long getLastUsedTimestamp() {
+			return lastUsedTimestamp;
+		}
+
+		void setLastUsedTimestamp(long lastUsedTimestamp) {
+			this.lastUsedTimestamp = lastUsedTimestamp;
+		}
+
+		long getLastValidatedTimestamp() {
+			return lastValidatedTimestamp;
+		}
+
+		void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+			this.lastValidatedTimestamp = lastValidatedTimestamp;
+		}
+
+		/*
+		 * The pooled connection handed out for this entry, or null while it is
+		 * idle or changing hands
+		 */
+		PooledConnection getCurrent() {
+			return current.get();
+		}
+
+		void setCurrent(PooledConnection conn) {
+			current.set(conn);
+		}
+
+		int getState() {
+			return state.get();
+		}
+
+		/*
+		 * The statement cache of the physical connection, kept across checkouts
+		 */
+		StatementCache getStatementCache() {
+			return statementCache;
+		}
+
+		void setStatementCache(StatementCache statementCache) {
+			this.statementCache = statementCache;
+		}
+	}
+}
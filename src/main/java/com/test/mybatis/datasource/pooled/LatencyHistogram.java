@@ -0,0 +1,63 @@
+package com.test.mybatis.datasource.pooled;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的耗时直方图（毫秒），记录与读取都不加锁。
+ * <p>
+ * Percentiles are reported as the upper bound of the bucket that holds the
+ * requested rank, which is accurate enough for pool monitoring and keeps
+ * recording to a single striped increment.
+ *
+ * @author ethan
+ */
+class LatencyHistogram {
+
+	private static final long[] BOUNDS = { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000,
+			60000, Long.MAX_VALUE };
+
+	private final LongAdder[] buckets = new LongAdder[BOUNDS.length];
+
+	LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	void record(long millis) {
+		int i = 0;
+		while (millis > BOUNDS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+	}
+
+	/*
+	 * Gets the value below which the given fraction of the recorded times fall
+	 *
+	 * @param fraction - between 0 and 1, e.g. 0.99 for the 99th percentile
+	 *
+	 * @return the upper bound of the matching bucket, or 0 if nothing was recorded
+	 */
+	long percentile(double fraction) {
+		long[] counts = new long[buckets.length];
+		long total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// the overflow bucket has no upper bound, report the last finite one
+				return i == BOUNDS.length - 1 ? BOUNDS[i - 1] : BOUNDS[i];
+			}
+		}
+		return BOUNDS[BOUNDS.length - 2];
+	}
+}
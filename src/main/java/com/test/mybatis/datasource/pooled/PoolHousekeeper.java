@@ -0,0 +1,214 @@
+package com.test.mybatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.test.mybatis.logging.Log;
+import com.test.mybatis.logging.LogFactory;
+
+/**
+ * PooledDataSource 的后台维护任务：校验空闲连接、回收过期连接并补足最小空闲连接数。
+ * <p>
+ * Idle connections are taken out of the pool while they are pinged, so the
+ * round trip never happens under the pool monitor and request threads only
+ * ever receive connections that were checked here. The data source is only
+ * weakly referenced, so a pool that is no longer used can still be collected;
+ * the housekeeper then shuts its executor down.
+ *
+ * @author ethan
+ */
+class PoolHousekeeper implements Runnable {
+
+	private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+
+	private final WeakReference<PooledDataSource> dataSourceReference;
+	private final ExecutorService executor;
+
+	PoolHousekeeper(PooledDataSource dataSource, ExecutorService executor) {
+		this.dataSourceReference = new WeakReference<>(dataSource);
+		this.executor = executor;
+	}
+
+	@Override
+	public void run() {
+		PooledDataSource dataSource = dataSourceReference.get();
+		if (dataSource == null) {
+			executor.shutdown();
+			return;
+		}
+		try {
+			if (dataSource.poolLockFree) {
+				housekeepBag(dataSource);
+			} else {
+				housekeepLists(dataSource);
+			}
+		} catch (Exception e) {
+			// keep the schedule alive, the next run will try again
+			log.warn("PooledDataSource housekeeping failed: " + e.getMessage());
+		}
+	}
+
+	private void housekeepLists(PooledDataSource dataSource) throws SQLException {
+		PoolState state = dataSource.getPoolState();
+		List<PooledConnection> evicted = new ArrayList<>();
+		List<PooledConnection> toValidate = new ArrayList<>();
+		synchronized (state) {
+			int idle = state.idleConnections.size();
+			for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+				PooledConnection conn = it.next();
+				if (dataSource.isPastMaximumLifetime(conn)
+						|| (isIdleTooLong(dataSource, conn) && idle > dataSource.poolMinimumIdleConnections)) {
+					it.remove();
+					idle--;
+					evicted.add(conn);
+				} else if (needsValidation(dataSource, conn)) {
+					toValidate.add(conn);
+				}
+			}
+			state.updateConnectionCounts();
+		}
+		for (PooledConnection conn : evicted) {
+			close(conn.getRealConnection());
+			conn.invalidate();
+		}
+		// take the connections out one at a time so the pool is never drained by validation
+		for (PooledConnection conn : toValidate) {
+			synchronized (state) {
+				if (!removeIdentical(state.idleConnections, conn)) {
+					// checked out meanwhile
+					continue;
+				}
+				state.updateConnectionCounts();
+			}
+			boolean returned = false;
+			if (dataSource.pingConnection(conn, true)) {
+				// not pinged again until another interval has passed
+				conn.setLastValidatedTimestamp(System.currentTimeMillis());
+				synchronized (state) {
+					if (state.idleConnections.size() < dataSource.poolMaximumIdleConnections) {
+						state.idleConnections.add(conn);
+						state.updateConnectionCounts();
+						state.notifyAll();
+						returned = true;
+					}
+				}
+			}
+			if (!returned) {
+				// bad, or the pool refilled while it was being checked
+				close(conn.getRealConnection());
+				conn.invalidate();
+			}
+		}
+		fillLists(dataSource, state);
+	}
+
+	private void fillLists(PooledDataSource dataSource, PoolState state) throws SQLException {
+		while (true) {
+			synchronized (state) {
+				int idle = state.idleConnections.size();
+				if (idle >= Math.min(dataSource.poolMinimumIdleConnections, dataSource.poolMaximumIdleConnections)
+						|| idle + state.activeConnections.size() >= dataSource.poolMaximumActiveConnections) {
+					return;
+				}
+			}
+			PooledConnection conn = new PooledConnection(dataSource.newRealConnection(), dataSource);
+			synchronized (state) {
+				if (state.idleConnections.size() < dataSource.poolMinimumIdleConnections) {
+					state.idleConnections.add(conn);
+					state.updateConnectionCounts();
+					state.notifyAll();
+					conn = null;
+				}
+			}
+			if (conn != null) {
+				close(conn.getRealConnection());
+				return;
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("Housekeeper added an idle connection to the pool.");
+			}
+		}
+	}
+
+	private void housekeepBag(PooledDataSource dataSource) throws SQLException {
+		ConcurrentConnectionBag bag = dataSource.getPoolState().bag;
+		for (ConcurrentConnectionBag.Entry entry : bag.getEntries()) {
+			if (entry.getState() != ConcurrentConnectionBag.STATE_IDLE) {
+				continue;
+			}
+			PooledConnection conn = new PooledConnection(entry.getRealConnection(), dataSource);
+			conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+			conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+			conn.setLastValidatedTimestamp(entry.getLastValidatedTimestamp());
+			boolean evict = dataSource.isPastMaximumLifetime(conn) || (isIdleTooLong(dataSource, conn)
+					&& bag.getIdleCount() > dataSource.poolMinimumIdleConnections);
+			if (!evict && !needsValidation(dataSource, conn)) {
+				continue;
+			}
+			if (!bag.claim(entry)) {
+				// just checked out by a request thread
+				continue;
+			}
+			if (!evict && dataSource.pingConnection(conn, true)) {
+				entry.setLastValidatedTimestamp(System.currentTimeMillis());
+				bag.requite(entry);
+			} else {
+				dataSource.discardConcurrentConnection(entry);
+			}
+			conn.invalidate();
+		}
+		int minimumIdle = Math.min(dataSource.poolMinimumIdleConnections, dataSource.poolMaximumIdleConnections);
+		while (bag.getIdleCount() < minimumIdle && bag.reserve(dataSource.poolMaximumActiveConnections)) {
+			Connection realConn;
+			try {
+				realConn = dataSource.newRealConnection();
+			} catch (SQLException e) {
+				bag.cancelReserve();
+				throw e;
+			}
+			bag.requite(bag.add(realConn));
+			if (log.isDebugEnabled()) {
+				log.debug("Housekeeper added an idle connection to the pool.");
+			}
+		}
+	}
+
+	/*
+	 * PooledConnection.equals compares the real connection, but only this exact
+	 * wrapper is known to be idle.
+	 */
+	private boolean removeIdentical(List<PooledConnection> connections, PooledConnection conn) {
+		for (Iterator<PooledConnection> it = connections.iterator(); it.hasNext();) {
+			if (it.next() == conn) {
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isIdleTooLong(PooledDataSource dataSource, PooledConnection conn) {
+		return dataSource.poolIdleTimeout > 0 && conn.getTimeElapsedSinceLastUse() >= dataSource.poolIdleTimeout;
+	}
+
+	private boolean needsValidation(PooledDataSource dataSource, PooledConnection conn) {
+		return dataSource.poolPingEnabled && dataSource.poolPingConnectionsNotUsedFor >= 0
+				&& conn.getTimeElapsedSinceLastValidation() > dataSource.poolPingConnectionsNotUsedFor;
+	}
+
+	private void close(Connection realConn) {
+		try {
+			if (!realConn.getAutoCommit()) {
+				realConn.rollback();
+			}
+			realConn.close();
+		} catch (SQLException e) {
+			// ignore
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.test.mybatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 
 public class PoolState {
@@ -10,63 +11,127 @@ public class PoolState {
 
 	protected final List<PooledConnection> idleConnections = new ArrayList<>();
 	protected final List<PooledConnection> activeConnections = new ArrayList<>();
-	protected long requestCount = 0;
-	protected long accumulatedRequestTime = 0;
-	protected long accumulatedCheckoutTime = 0;
-	protected long claimedOverdueConnectionCount = 0;
-	protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-	protected long accumulatedWaitTime = 0;
-	protected long hadToWaitCount = 0;
-	protected long badConnectionCount = 0;
+	protected final ConcurrentConnectionBag bag = new ConcurrentConnectionBag();
+	// striped counters, updated without holding the pool monitor
+	protected final LongAdder requestCount = new LongAdder();
+	protected final LongAdder accumulatedRequestTime = new LongAdder();
+	protected final LongAdder accumulatedCheckoutTime = new LongAdder();
+	protected final LongAdder claimedOverdueConnectionCount = new LongAdder();
+	protected final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+	protected final LongAdder accumulatedWaitTime = new LongAdder();
+	protected final LongAdder hadToWaitCount = new LongAdder();
+	protected final LongAdder badConnectionCount = new LongAdder();
+	protected final LongAdder statementCacheHitCount = new LongAdder();
+	protected final LongAdder statementCacheMissCount = new LongAdder();
+	protected final LongAdder statementCacheEvictionCount = new LongAdder();
+	protected final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+	protected final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
+	// sizes of the two lists, refreshed under the pool monitor and read without it
+	private volatile int idleConnectionCount;
+	private volatile int activeConnectionCount;
 
 	public PoolState(PooledDataSource dataSource) {
 		this.dataSource = dataSource;
 	}
 
-	public synchronized long getRequestCount() {
-		return requestCount;
+	public long getRequestCount() {
+		return requestCount.sum();
 	}
 
-	public synchronized long getAverageRequestTime() {
-		return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+	public long getAverageRequestTime() {
+		long requests = requestCount.sum();
+		return requests == 0 ? 0 : accumulatedRequestTime.sum() / requests;
 	}
 
-	public synchronized long getAverageWaitTime() {
-		return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+	public long getAverageWaitTime() {
+		long waits = hadToWaitCount.sum();
+		return waits == 0 ? 0 : accumulatedWaitTime.sum() / waits;
 
 	}
 
-	public synchronized long getHadToWaitCount() {
-		return hadToWaitCount;
+	public long getHadToWaitCount() {
+		return hadToWaitCount.sum();
 	}
 
-	public synchronized long getBadConnectionCount() {
-		return badConnectionCount;
+	public long getBadConnectionCount() {
+		return badConnectionCount.sum();
 	}
 
-	public synchronized long getClaimedOverdueConnectionCount() {
-		return claimedOverdueConnectionCount;
+	public long getClaimedOverdueConnectionCount() {
+		return claimedOverdueConnectionCount.sum();
 	}
 
-	public synchronized long getAverageOverdueCheckoutTime() {
-		return claimedOverdueConnectionCount == 0 ? 0
-				: accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+	public long getAverageOverdueCheckoutTime() {
+		long overdue = claimedOverdueConnectionCount.sum();
+		return overdue == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.sum() / overdue;
 	}
 
-	public synchronized long getAverageCheckoutTime() {
-		return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+	public long getAverageCheckoutTime() {
+		long requests = requestCount.sum();
+		return requests == 0 ? 0 : accumulatedCheckoutTime.sum() / requests;
 	}
 
-	public synchronized int getIdleConnectionCount() {
-		return idleConnections.size();
+	public long getStatementCacheHitCount() {
+		return statementCacheHitCount.sum();
 	}
 
-	public synchronized int getActiveConnectionCount() {
-		return activeConnections.size();
+	public long getStatementCacheMissCount() {
+		return statementCacheMissCount.sum();
+	}
+
+	public long getStatementCacheEvictionCount() {
+		return statementCacheEvictionCount.sum();
+	}
+
+	/*
+	 * Neither count takes the pool monitor, which popConnection holds while it
+	 * opens a connection or waits, so monitoring never stalls behind a checkout.
+	 * The lock-free bag keeps atomic counts; the sizes of the lists of the
+	 * synchronized pool are published by updateConnectionCounts.
+	 */
+	public int getIdleConnectionCount() {
+		return dataSource.poolLockFree ? bag.getIdleCount() : idleConnectionCount;
+	}
+
+	public int getActiveConnectionCount() {
+		return dataSource.poolLockFree ? bag.getActiveCount() : activeConnectionCount;
+	}
+
+	/*
+	 * Must be called under the pool monitor after each change to the lists
+	 */
+	void updateConnectionCounts() {
+		idleConnectionCount = idleConnections.size();
+		activeConnectionCount = activeConnections.size();
+	}
+
+	public long getP50WaitTime() {
+		return waitTimeHistogram.percentile(0.5);
+	}
+
+	public long getP99WaitTime() {
+		return waitTimeHistogram.percentile(0.99);
+	}
+
+	public long getP50CheckoutTime() {
+		return checkoutTimeHistogram.percentile(0.5);
+	}
+
+	public long getP99CheckoutTime() {
+		return checkoutTimeHistogram.percentile(0.99);
+	}
+
+	/*
+	 * Takes a consistent-enough copy of all statistics for monitoring
+	 *
+	 * @return the snapshot
+	 */
+	public PoolStatistics snapshot() {
+		return new PoolStatistics(this);
 	}
 
 	@Override
-	public synchronized String toString() {
+	public String toString() {
 		StringBuilder builder = new StringBuilder();
 		builder.append("\n===CONFINGURATION==============================================");
 		builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -78,6 +143,12 @@ public class PoolState {
 		builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
 		builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
 		builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
+		builder.append("\n poolLockFree                   ").append(dataSource.poolLockFree);
+		builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+		builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+		builder.append("\n poolIdleTimeout                ").append(dataSource.poolIdleTimeout);
+		builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+		builder.append("\n poolStatementCacheSize         ").append(dataSource.poolStatementCacheSize);
 		builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
 		builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
 		builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
@@ -87,11 +158,18 @@ public class PoolState {
 		builder.append("\n requestCount                   ").append(getRequestCount());
 		builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
 		builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
+		builder.append("\n p50/p99CheckoutTime            ").append(getP50CheckoutTime()).append('/')
+				.append(getP99CheckoutTime());
 		builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
 		builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
 		builder.append("\n hadToWait                      ").append(getHadToWaitCount());
 		builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
+		builder.append("\n p50/p99WaitTime                ").append(getP50WaitTime()).append('/')
+				.append(getP99WaitTime());
 		builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+		builder.append("\n statementCacheHits/Misses      ").append(getStatementCacheHitCount()).append('/')
+				.append(getStatementCacheMissCount());
+		builder.append("\n statementCacheEvictions        ").append(getStatementCacheEvictionCount());
 		builder.append("\n===============================================================");
 		return builder.toString();
 	}
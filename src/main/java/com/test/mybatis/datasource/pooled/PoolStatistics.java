@@ -0,0 +1,125 @@
+package com.test.mybatis.datasource.pooled;
+
+/**
+ * PoolState 在某一时刻的统计快照，读取时不会阻塞连接的获取与归还。
+ *
+ * @author ethan
+ */
+public class PoolStatistics {
+
+	private final int activeConnectionCount;
+	private final int idleConnectionCount;
+	private final long requestCount;
+	private final long averageRequestTime;
+	private final long hadToWaitCount;
+	private final long averageWaitTime;
+	private final long p50WaitTime;
+	private final long p99WaitTime;
+	private final long averageCheckoutTime;
+	private final long p50CheckoutTime;
+	private final long p99CheckoutTime;
+	private final long claimedOverdueConnectionCount;
+	private final long averageOverdueCheckoutTime;
+	private final long badConnectionCount;
+	private final long statementCacheHitCount;
+	private final long statementCacheMissCount;
+	private final long statementCacheEvictionCount;
+
+	PoolStatistics(PoolState state) {
+		this.activeConnectionCount = state.getActiveConnectionCount();
+		this.idleConnectionCount = state.getIdleConnectionCount();
+		this.requestCount = state.getRequestCount();
+		this.averageRequestTime = state.getAverageRequestTime();
+		this.hadToWaitCount = state.getHadToWaitCount();
+		this.averageWaitTime = state.getAverageWaitTime();
+		this.p50WaitTime = state.waitTimeHistogram.percentile(0.5);
+		this.p99WaitTime = state.waitTimeHistogram.percentile(0.99);
+		this.averageCheckoutTime = state.getAverageCheckoutTime();
+		this.p50CheckoutTime = state.checkoutTimeHistogram.percentile(0.5);
+		this.p99CheckoutTime = state.checkoutTimeHistogram.percentile(0.99);
+		this.claimedOverdueConnectionCount = state.getClaimedOverdueConnectionCount();
+		this.averageOverdueCheckoutTime = state.getAverageOverdueCheckoutTime();
+		this.badConnectionCount = state.getBadConnectionCount();
+		this.statementCacheHitCount = state.getStatementCacheHitCount();
+		this.statementCacheMissCount = state.getStatementCacheMissCount();
+		this.statementCacheEvictionCount = state.getStatementCacheEvictionCount();
+	}
+
+	public int getActiveConnectionCount() {
+		return activeConnectionCount;
+	}
+
+	public int getIdleConnectionCount() {
+		return idleConnectionCount;
+	}
+
+	public long getRequestCount() {
+		return requestCount;
+	}
+
+	public long getAverageRequestTime() {
+		return averageRequestTime;
+	}
+
+	public long getHadToWaitCount() {
+		return hadToWaitCount;
+	}
+
+	public long getAverageWaitTime() {
+		return averageWaitTime;
+	}
+
+	public long getP50WaitTime() {
+		return p50WaitTime;
+	}
+
+	public long getP99WaitTime() {
+		return p99WaitTime;
+	}
+
+	public long getAverageCheckoutTime() {
+		return averageCheckoutTime;
+	}
+
+	public long getP50CheckoutTime() {
+		return p50CheckoutTime;
+	}
+
+	public long getP99CheckoutTime() {
+		return p99CheckoutTime;
+	}
+
+	public long getClaimedOverdueConnectionCount() {
+		return claimedOverdueConnectionCount;
+	}
+
+	public long getAverageOverdueCheckoutTime() {
+		return averageOverdueCheckoutTime;
+	}
+
+	public long getBadConnectionCount() {
+		return badConnectionCount;
+	}
+
+	public long getStatementCacheHitCount() {
+		return statementCacheHitCount;
+	}
+
+	public long getStatementCacheMissCount() {
+		return statementCacheMissCount;
+	}
+
+	public long getStatementCacheEvictionCount() {
+		return statementCacheEvictionCount;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStatistics [active=" + activeConnectionCount + ", idle=" + idleConnectionCount + ", requests="
+				+ requestCount + ", hadToWait=" + hadToWaitCount + ", waitTime(avg/p50/p99)=" + averageWaitTime + "/"
+				+ p50WaitTime + "/" + p99WaitTime + ", checkoutTime(avg/p50/p99)=" + averageCheckoutTime + "/"
+				+ p50CheckoutTime + "/" + p99CheckoutTime + ", claimedOverdue=" + claimedOverdueConnectionCount
+				+ ", badConnections=" + badConnectionCount + ", statementCache(hits/misses/evictions)="
+				+ statementCacheHitCount + "/" + statementCacheMissCount + "/" + statementCacheEvictionCount + "]";
+	}
+}
@@ -19,8 +19,11 @@ class PooledConnection implements InvocationHandler {
 	private long checkoutTimestamp;
 	private long createdTimestamp;
 	private long lastUsedTimestamp;
+	private long lastValidatedTimestamp;
 	private int connectionTypeCode;
 	private boolean valid;
+	private ConcurrentConnectionBag.Entry bagEntry;
+	private StatementCache statementCache;
 
 	/*
 	 * Constructor for SimplePooledConnection that uses the Connection and
@@ -147,6 +150,33 @@ class PooledConnection implements InvocationHandler {
 		return System.currentTimeMillis() - lastUsedTimestamp;
 	}
 
+	/*
+	 * Getter for the time that the housekeeper last pinged this connection
+	 *
+	 * @return the timestamp, 0 if it was never pinged
+	 */
+	public long getLastValidatedTimestamp() {
+		return lastValidatedTimestamp;
+	}
+
+	/*
+	 * Setter for the time that the housekeeper last pinged this connection
+	 *
+	 * @param lastValidatedTimestamp - the timestamp
+	 */
+	public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+		this.lastValidatedTimestamp = lastValidatedTimestamp;
+	}
+
+	/*
+	 * Getter for the time since this connection was last used or pinged
+	 *
+	 * @return the time since the last use or ping
+	 */
+	public long getTimeElapsedSinceLastValidation() {
+		return System.currentTimeMillis() - Math.max(lastUsedTimestamp, lastValidatedTimestamp);
+	}
+
 	/*
 	 * Getter for the age of the connection
 	 *
@@ -183,6 +213,60 @@ class PooledConnection implements InvocationHandler {
 		return System.currentTimeMillis() - checkoutTimestamp;
 	}
 
+	/*
+	 * Getter for the lock-free bag entry that owns the real connection (null
+	 * when the pool is not lock-free)
+	 *
+	 * @return the entry
+	 */
+	public ConcurrentConnectionBag.Entry getBagEntry() {
+		return bagEntry;
+	}
+
+	/*
+	 * Setter for the lock-free bag entry that owns the real connection
+	 *
+	 * @param bagEntry - the entry
+	 */
+	public void setBagEntry(ConcurrentConnectionBag.Entry bagEntry) {
+		this.bagEntry = bagEntry;
+	}
+
+	/*
+	 * Getter for the statement cache of the real connection, created on first
+	 * use (null when poolStatementCacheSize is 0)
+	 *
+	 * @return the statement cache
+	 */
+	public StatementCache getStatementCache() {
+		if (statementCache == null && dataSource.poolStatementCacheSize > 0) {
+			statementCache = new StatementCache(dataSource.poolStatementCacheSize, dataSource.getPoolState());
+			if (bagEntry != null) {
+				bagEntry.setStatementCache(statementCache);
+			}
+		}
+		return statementCache;
+	}
+
+	/*
+	 * Getter for the statement cache that does not create one
+	 *
+	 * @return the statement cache, or null if it was never used
+	 */
+	StatementCache peekStatementCache() {
+		return statementCache;
+	}
+
+	/*
+	 * Setter for the statement cache, handed over when the real connection is
+	 * wrapped again
+	 *
+	 * @param statementCache - the statement cache
+	 */
+	public void setStatementCache(StatementCache statementCache) {
+		this.statementCache = statementCache;
+	}
+
 	@Override
 	public int hashCode() {
 		return hashCode;
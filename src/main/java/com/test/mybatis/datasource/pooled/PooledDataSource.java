@@ -8,7 +8,16 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -33,6 +42,15 @@ public class PooledDataSource implements DataSource {
 	protected String poolPingQuery = "NO PING QUERY SET";
 	protected boolean poolPingEnabled = false;
 	protected int poolPingConnectionsNotUsedFor = 0;
+	protected boolean poolLockFree = false;
+	protected int poolHousekeepingInterval = 0;
+	protected int poolMinimumIdleConnections = 0;
+	protected int poolIdleTimeout = 0;
+	protected int poolMaximumLifetime = 0;
+	protected int poolWarmUpConnections = 0;
+	protected int poolStatementCacheSize = 0;
+
+	private volatile ScheduledExecutorService housekeeper;
 
 	private int expectedConnectionTypeCode;
 
@@ -207,6 +225,85 @@ public class PooledDataSource implements DataSource {
 		forceCloseAll();
 	}
 
+	/*
+	 * Determines if connections are borrowed and returned through the lock-free
+	 * bag instead of the synchronized idle/active lists.
+	 *
+	 * @param poolLockFree True to use the lock-free pool
+	 */
+	public void setPoolLockFree(boolean poolLockFree) {
+		this.poolLockFree = poolLockFree;
+		forceCloseAll();
+	}
+
+	/*
+	 * How often the background housekeeper validates idle connections, evicts
+	 * expired ones and refills the pool. While it runs, the ping query is no
+	 * longer executed on checkout or return.
+	 *
+	 * @param milliseconds the delay between two runs, 0 to disable housekeeping
+	 */
+	public void setPoolHousekeepingInterval(int milliseconds) {
+		this.poolHousekeepingInterval = milliseconds;
+		stopHousekeeper();
+		forceCloseAll();
+	}
+
+	/*
+	 * The number of idle connections the housekeeper keeps open
+	 *
+	 * @param poolMinimumIdleConnections The minimum number of idle connections
+	 */
+	public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+		this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+		forceCloseAll();
+	}
+
+	/*
+	 * If an idle connection has not been used in this many milliseconds, the
+	 * housekeeper closes it (as long as the minimum idle count is kept).
+	 *
+	 * @param milliseconds the idle timeout, 0 to keep idle connections forever
+	 */
+	public void setPoolIdleTimeout(int milliseconds) {
+		this.poolIdleTimeout = milliseconds;
+		forceCloseAll();
+	}
+
+	/*
+	 * Connections older than this are closed when they are returned or found
+	 * idle by the housekeeper.
+	 *
+	 * @param milliseconds the maximum lifetime, 0 for no limit
+	 */
+	public void setPoolMaximumLifetime(int milliseconds) {
+		this.poolMaximumLifetime = milliseconds;
+		forceCloseAll();
+	}
+
+	/*
+	 * The number of connections opened in parallel by warmUp(), which
+	 * SqlSessionFactoryBuilder calls once the configuration is built
+	 *
+	 * @param poolWarmUpConnections The number of connections, 0 to open them lazily
+	 */
+	public void setPoolWarmUpConnections(int poolWarmUpConnections) {
+		this.poolWarmUpConnections = poolWarmUpConnections;
+	}
+
+	/*
+	 * The number of prepared statements ReuseExecutor keeps open on each
+	 * physical connection, so that sessions borrowing the same connection reuse
+	 * them. The least recently used statement is closed when the limit is
+	 * reached.
+	 *
+	 * @param poolStatementCacheSize The cache size per connection, 0 to disable
+	 */
+	public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+		this.poolStatementCacheSize = poolStatementCacheSize;
+		forceCloseAll();
+	}
+
 	public String getDriver() {
 		return dataSource.getDriver();
 	}
@@ -263,6 +360,34 @@ public class PooledDataSource implements DataSource {
 		return poolPingConnectionsNotUsedFor;
 	}
 
+	public boolean isPoolLockFree() {
+		return poolLockFree;
+	}
+
+	public int getPoolHousekeepingInterval() {
+		return poolHousekeepingInterval;
+	}
+
+	public int getPoolMinimumIdleConnections() {
+		return poolMinimumIdleConnections;
+	}
+
+	public int getPoolIdleTimeout() {
+		return poolIdleTimeout;
+	}
+
+	public int getPoolMaximumLifetime() {
+		return poolMaximumLifetime;
+	}
+
+	public int getPoolStatementCacheSize() {
+		return poolStatementCacheSize;
+	}
+
+	public int getPoolWarmUpConnections() {
+		return poolWarmUpConnections;
+	}
+
 	/*
 	 * Closes all active and idle connections in the pool
 	 */
@@ -273,6 +398,7 @@ public class PooledDataSource implements DataSource {
 			for (int i = state.activeConnections.size(); i > 0; i--) {
 				try {
 					PooledConnection conn = state.activeConnections.remove(i - 1);
+					state.updateConnectionCounts();
 					conn.invalidate();
 
 					Connection realConn = conn.getRealConnection();
@@ -287,6 +413,7 @@ public class PooledDataSource implements DataSource {
 			for (int i = state.idleConnections.size(); i > 0; i--) {
 				try {
 					PooledConnection conn = state.idleConnections.remove(i - 1);
+					state.updateConnectionCounts();
 					conn.invalidate();
 
 					Connection realConn = conn.getRealConnection();
@@ -299,6 +426,22 @@ public class PooledDataSource implements DataSource {
 				}
 			}
 		}
+		for (ConcurrentConnectionBag.Entry entry : state.bag.removeAll()) {
+			try {
+				PooledConnection conn = entry.getCurrent();
+				if (conn != null) {
+					conn.invalidate();
+				}
+
+				Connection realConn = entry.getRealConnection();
+				if (!realConn.getAutoCommit()) {
+					realConn.rollback();
+				}
+				realConn.close();
+			} catch (Exception e) {
+				// ignore
+			}
+		}
 		if (log.isDebugEnabled()) {
 			log.debug("PooledDataSource forcefully closed/removed all connections.");
 		}
@@ -308,23 +451,116 @@ public class PooledDataSource implements DataSource {
 		return state;
 	}
 
+	/*
+	 * Opens poolWarmUpConnections physical connections in parallel and adds them
+	 * to the pool as idle connections, so the first requests after startup do
+	 * not pay for connecting. Never opens more than the pool would keep idle.
+	 * Waits at most poolTimeToWait; connections that open later are still added
+	 * to the pool in the background.
+	 */
+	public void warmUp() {
+		int count = Math.min(poolWarmUpConnections, Math.min(poolMaximumIdleConnections, poolMaximumActiveConnections));
+		if (count <= 0) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(count, r -> {
+			Thread thread = new Thread(r, "PooledDataSource-warmup");
+			thread.setDaemon(true);
+			return thread;
+		});
+		int added = 0;
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				futures.add(executor.submit(() -> addIdleConnection(newRealConnection())));
+			}
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(poolTimeToWait);
+			for (Future<Boolean> future : futures) {
+				try {
+					if (future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+						added++;
+					}
+				} catch (ExecutionException e) {
+					log.warn("PooledDataSource could not open a connection during warm-up: " + e.getCause());
+				} catch (TimeoutException e) {
+					log.warn("PooledDataSource warm-up did not finish within " + poolTimeToWait
+							+ " milliseconds, continuing without waiting for the remaining connections.");
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdown();
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("PooledDataSource warmed up with " + added + " connections.");
+		}
+	}
+
+	/*
+	 * Adds a newly opened connection to the idle connections, or closes it if
+	 * the pool is already full
+	 *
+	 * @param realConn - the physical connection
+	 *
+	 * @return True if the connection was added
+	 */
+	boolean addIdleConnection(Connection realConn) {
+		boolean added = false;
+		if (poolLockFree) {
+			ConcurrentConnectionBag bag = state.bag;
+			if (bag.getIdleCount() < poolMaximumIdleConnections && bag.reserve(poolMaximumActiveConnections)) {
+				bag.requite(bag.add(realConn));
+				added = true;
+			}
+		} else {
+			synchronized (state) {
+				if (state.idleConnections.size() < poolMaximumIdleConnections && state.idleConnections.size()
+						+ state.activeConnections.size() < poolMaximumActiveConnections) {
+					state.idleConnections.add(new PooledConnection(realConn, this));
+					state.updateConnectionCounts();
+					state.notifyAll();
+					added = true;
+				}
+			}
+		}
+		if (!added) {
+			try {
+				realConn.close();
+			} catch (SQLException e) {
+				// ignore
+			}
+		}
+		return added;
+	}
+
 	private int assembleConnectionTypeCode(String url, String username, String password) {
 		return ("" + url + username + password).hashCode();
 	}
 
 	protected void pushConnection(PooledConnection conn) throws SQLException {
+		if (poolLockFree) {
+			pushConcurrentConnection(conn);
+			return;
+		}
 
 		synchronized (state) {
 			state.activeConnections.remove(conn);
+			state.updateConnectionCounts();
 			if (conn.isValid()) {
 				if (state.idleConnections.size() < poolMaximumIdleConnections
-						&& conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-					state.accumulatedCheckoutTime += conn.getCheckoutTime();
+						&& conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isPastMaximumLifetime(conn)) {
+					long checkoutTime = conn.getCheckoutTime();
+					state.accumulatedCheckoutTime.add(checkoutTime);
+					state.checkoutTimeHistogram.record(checkoutTime);
 					if (!conn.getRealConnection().getAutoCommit()) {
 						conn.getRealConnection().rollback();
 					}
 					PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+					newConn.setStatementCache(conn.peekStatementCache());
 					state.idleConnections.add(newConn);
+					state.updateConnectionCounts();
 					newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
 					newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
 					conn.invalidate();
@@ -333,7 +569,9 @@ public class PooledDataSource implements DataSource {
 					}
 					state.notifyAll();
 				} else {
-					state.accumulatedCheckoutTime += conn.getCheckoutTime();
+					long checkoutTime = conn.getCheckoutTime();
+					state.accumulatedCheckoutTime.add(checkoutTime);
+					state.checkoutTimeHistogram.record(checkoutTime);
 					if (!conn.getRealConnection().getAutoCommit()) {
 						conn.getRealConnection().rollback();
 					}
@@ -348,102 +586,324 @@ public class PooledDataSource implements DataSource {
 					log.debug("A bad connection (" + conn.getRealHashCode()
 							+ ") attempted to return to the pool, discarding connection.");
 				}
-				state.badConnectionCount++;
+				state.badConnectionCount.increment();
 			}
 		}
 	}
 
 	private PooledConnection popConnection(String username, String password) throws SQLException {
+		if (poolHousekeepingInterval > 0 && housekeeper == null) {
+			startHousekeeper();
+		}
+		if (poolLockFree) {
+			return popConcurrentConnection(username, password);
+		}
 		boolean countedWait = false;
 		PooledConnection conn = null;
 		long t = System.currentTimeMillis();
 		int localBadConnectionCount = 0;
+		long localWaitTime = 0;
 
-		while (conn == null) {
-			synchronized (state) {
-				if (!state.idleConnections.isEmpty()) {
-					// Pool has available connection
-					conn = state.idleConnections.remove(0);
-					if (log.isDebugEnabled()) {
-						log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
-					}
-				} else {
-					// Pool does not have available connection
-					if (state.activeConnections.size() < poolMaximumActiveConnections) {
-						// Can create new connection
-						conn = new PooledConnection(dataSource.getConnection(), this);
+		try {
+			while (conn == null) {
+				synchronized (state) {
+					if (!state.idleConnections.isEmpty()) {
+						// Pool has available connection
+						conn = state.idleConnections.remove(0);
+						state.updateConnectionCounts();
 						if (log.isDebugEnabled()) {
-							log.debug("Created connection " + conn.getRealHashCode() + ".");
+							log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
 						}
 					} else {
-						// Cannot create new connection
-						PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-						long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-						if (longestCheckoutTime > poolMaximumCheckoutTime) {
-							// Can claim overdue connection
-							state.claimedOverdueConnectionCount++;
-							state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-							state.accumulatedCheckoutTime += longestCheckoutTime;
-							state.activeConnections.remove(oldestActiveConnection);
-							if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-								oldestActiveConnection.getRealConnection().rollback();
-							}
-							conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-							oldestActiveConnection.invalidate();
+						// Pool does not have available connection
+						if (state.activeConnections.size() < poolMaximumActiveConnections) {
+							// Can create new connection
+							conn = new PooledConnection(dataSource.getConnection(), this);
 							if (log.isDebugEnabled()) {
-								log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+								log.debug("Created connection " + conn.getRealHashCode() + ".");
 							}
 						} else {
-							// Must wait
-							try {
-								if (!countedWait) {
-									state.hadToWaitCount++;
-									countedWait = true;
+							// Cannot create new connection
+							PooledConnection oldestActiveConnection = state.activeConnections.get(0);
+							long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+							if (longestCheckoutTime > poolMaximumCheckoutTime) {
+								// Can claim overdue connection
+								state.claimedOverdueConnectionCount.increment();
+								state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+								state.accumulatedCheckoutTime.add(longestCheckoutTime);
+								state.checkoutTimeHistogram.record(longestCheckoutTime);
+								state.activeConnections.remove(oldestActiveConnection);
+								state.updateConnectionCounts();
+								if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+									oldestActiveConnection.getRealConnection().rollback();
 								}
+								conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+								// the overdue holder may still be using its statements
+								StatementCache statementCache = oldestActiveConnection.peekStatementCache();
+								if (statementCache != null) {
+									statementCache.close();
+								}
+								oldestActiveConnection.invalidate();
+								if (log.isDebugEnabled()) {
+									log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+								}
+							} else {
+								// Must wait
+								try {
+									if (!countedWait) {
+										state.hadToWaitCount.increment();
+										countedWait = true;
+									}
+									if (log.isDebugEnabled()) {
+										log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+									}
+									long wt = System.currentTimeMillis();
+									state.wait(poolTimeToWait);
+									long waited = System.currentTimeMillis() - wt;
+									state.accumulatedWaitTime.add(waited);
+									localWaitTime += waited;
+								} catch (InterruptedException e) {
+									break;
+								}
+							}
+						}
+					}
+					if (conn != null) {
+						if (conn.isValid()) {
+							if (!conn.getRealConnection().getAutoCommit()) {
+								conn.getRealConnection().rollback();
+							}
+							conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+							conn.setCheckoutTimestamp(System.currentTimeMillis());
+							conn.setLastUsedTimestamp(System.currentTimeMillis());
+							state.activeConnections.add(conn);
+							state.updateConnectionCounts();
+							state.requestCount.increment();
+							state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
+						} else {
+							if (log.isDebugEnabled()) {
+								log.debug("A bad connection (" + conn.getRealHashCode()
+										+ ") was returned from the pool, getting another connection.");
+							}
+							state.badConnectionCount.increment();
+							localBadConnectionCount++;
+							conn = null;
+							if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
 								if (log.isDebugEnabled()) {
-									log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+									log.debug("PooledDataSource: Could not get a good connection to the database.");
 								}
-								long wt = System.currentTimeMillis();
-								state.wait(poolTimeToWait);
-								state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-							} catch (InterruptedException e) {
-								break;
+								throw new SQLException(
+										"PooledDataSource: Could not get a good connection to the database.");
 							}
 						}
 					}
 				}
-				if (conn != null) {
+
+			}
+		} finally {
+			// waits that end in an exception count as well
+			if (countedWait) {
+				state.waitTimeHistogram.record(localWaitTime);
+			}
+		}
+		if (conn == null) {
+			if (log.isDebugEnabled()) {
+				log.debug(
+						"PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+			}
+			throw new SQLException(
+					"PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+		}
+
+		return conn;
+	}
+
+	/*
+	 * Returns a connection to the lock-free bag. The caller's PooledConnection is
+	 * always invalidated; the physical connection either becomes idle again or is
+	 * closed when there are enough idle connections already.
+	 *
+	 * @param conn - the connection being closed by its holder
+	 */
+	private void pushConcurrentConnection(PooledConnection conn) throws SQLException {
+		ConcurrentConnectionBag bag = state.bag;
+		ConcurrentConnectionBag.Entry entry = conn.getBagEntry();
+		if (!bag.release(entry, conn)) {
+			// closed twice, or claimed as overdue by another thread
+			if (log.isDebugEnabled()) {
+				log.debug("A bad connection (" + conn.getRealHashCode()
+						+ ") attempted to return to the pool, discarding connection.");
+			}
+			state.badConnectionCount.increment();
+			return;
+		}
+		if (!conn.isValid()) {
+			if (log.isDebugEnabled()) {
+				log.debug("A bad connection (" + conn.getRealHashCode()
+						+ ") attempted to return to the pool, discarding connection.");
+			}
+			state.badConnectionCount.increment();
+			conn.invalidate();
+			discardConcurrentConnection(entry);
+			return;
+		}
+		long checkoutTime = conn.getCheckoutTime();
+		state.accumulatedCheckoutTime.add(checkoutTime);
+		state.checkoutTimeHistogram.record(checkoutTime);
+		conn.invalidate();
+		try {
+			if (!entry.getRealConnection().getAutoCommit()) {
+				entry.getRealConnection().rollback();
+			}
+		} catch (SQLException e) {
+			discardConcurrentConnection(entry);
+			throw e;
+		}
+		if ((bag.getIdleCount() < poolMaximumIdleConnections || bag.getWaitingCount() > 0)
+				&& conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isPastMaximumLifetime(conn)) {
+			entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+			bag.requite(entry);
+			if (log.isDebugEnabled()) {
+				log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+			}
+		} else {
+			discardConcurrentConnection(entry);
+			if (log.isDebugEnabled()) {
+				log.debug("Closed connection " + conn.getRealHashCode() + ".");
+			}
+		}
+	}
+
+	/*
+	 * Checks out a connection from the lock-free bag. Follows the same steps as
+	 * the synchronized pool (idle, new, overdue, wait), but none of them holds a
+	 * pool-wide lock.
+	 */
+	private PooledConnection popConcurrentConnection(String username, String password) throws SQLException {
+		ConcurrentConnectionBag bag = state.bag;
+		boolean countedWait = false;
+		PooledConnection conn = null;
+		long t = System.currentTimeMillis();
+		int localBadConnectionCount = 0;
+		long localWaitTime = 0;
+
+		try {
+			while (conn == null) {
+				ConcurrentConnectionBag.Entry entry = bag.poll();
+				if (entry != null) {
+					if (log.isDebugEnabled()) {
+						log.debug("Checked out connection " + entry.getRealConnection().hashCode() + " from pool.");
+					}
+				} else if (bag.reserve(poolMaximumActiveConnections)) {
+					// Can create new connection
+					Connection realConn;
+					try {
+						realConn = dataSource.getConnection();
+					} catch (SQLException e) {
+						bag.cancelReserve();
+						throw e;
+					}
+					entry = bag.add(realConn);
+					if (log.isDebugEnabled()) {
+						log.debug("Created connection " + realConn.hashCode() + ".");
+					}
+				} else {
+					PooledConnection overdue = bag.reclaimOverdue(poolMaximumCheckoutTime);
+					if (overdue != null) {
+						// Can claim overdue connection
+						entry = overdue.getBagEntry();
+						long longestCheckoutTime = overdue.getCheckoutTime();
+						overdue.invalidate();
+						// the overdue holder may still be using its statements
+						StatementCache statementCache = entry.getStatementCache();
+						if (statementCache != null) {
+							statementCache.close();
+							entry.setStatementCache(null);
+						}
+						state.claimedOverdueConnectionCount.increment();
+						state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+						state.accumulatedCheckoutTime.add(longestCheckoutTime);
+						state.checkoutTimeHistogram.record(longestCheckoutTime);
+						try {
+							if (!entry.getRealConnection().getAutoCommit()) {
+								entry.getRealConnection().rollback();
+							}
+						} catch (SQLException e) {
+							discardConcurrentConnection(entry);
+							throw e;
+						}
+						if (log.isDebugEnabled()) {
+							log.debug("Claimed overdue connection " + entry.getRealConnection().hashCode() + ".");
+						}
+					} else {
+						// Must wait
+						if (!countedWait) {
+							state.hadToWaitCount.increment();
+							countedWait = true;
+						}
+						if (log.isDebugEnabled()) {
+							log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+						}
+						long wt = System.currentTimeMillis();
+						try {
+							entry = bag.await(poolTimeToWait);
+						} catch (InterruptedException e) {
+							break;
+						} finally {
+							long waited = System.currentTimeMillis() - wt;
+							state.accumulatedWaitTime.add(waited);
+							localWaitTime += waited;
+						}
+					}
+				}
+				if (entry != null) {
+					conn = new PooledConnection(entry.getRealConnection(), this);
+					conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+					conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+					conn.setBagEntry(entry);
+					conn.setStatementCache(entry.getStatementCache());
 					if (conn.isValid()) {
-						if (!conn.getRealConnection().getAutoCommit()) {
-							conn.getRealConnection().rollback();
+						try {
+							if (!conn.getRealConnection().getAutoCommit()) {
+								conn.getRealConnection().rollback();
+							}
+						} catch (SQLException e) {
+							// nobody holds the entry yet, so it would never be returned
+							conn.invalidate();
+							discardConcurrentConnection(entry);
+							throw e;
 						}
 						conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
 						conn.setCheckoutTimestamp(System.currentTimeMillis());
 						conn.setLastUsedTimestamp(System.currentTimeMillis());
-						state.activeConnections.add(conn);
-						state.requestCount++;
-						state.accumulatedRequestTime += System.currentTimeMillis() - t;
+						entry.setCurrent(conn);
+						state.requestCount.increment();
+						state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
 					} else {
 						if (log.isDebugEnabled()) {
 							log.debug("A bad connection (" + conn.getRealHashCode()
 									+ ") was returned from the pool, getting another connection.");
 						}
-						state.badConnectionCount++;
+						state.badConnectionCount.increment();
 						localBadConnectionCount++;
+						conn.invalidate();
+						discardConcurrentConnection(entry);
 						conn = null;
 						if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
 							if (log.isDebugEnabled()) {
 								log.debug("PooledDataSource: Could not get a good connection to the database.");
 							}
-							throw new SQLException(
-									"PooledDataSource: Could not get a good connection to the database.");
+							throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
 						}
 					}
 				}
 			}
-
+		} finally {
+			// waits that end in an exception count as well
+			if (countedWait) {
+				state.waitTimeHistogram.record(localWaitTime);
+			}
 		}
-
 		if (conn == null) {
 			if (log.isDebugEnabled()) {
 				log.debug(
@@ -456,6 +916,21 @@ public class PooledDataSource implements DataSource {
 		return conn;
 	}
 
+	/*
+	 * Removes a connection from the lock-free bag and closes it
+	 *
+	 * @param entry - the entry owned by the caller
+	 */
+	void discardConcurrentConnection(ConcurrentConnectionBag.Entry entry) {
+		if (state.bag.remove(entry)) {
+			try {
+				entry.getRealConnection().close();
+			} catch (SQLException e) {
+				// ignore
+			}
+		}
+	}
+
 	/*
 	 * Method to check to see if a connection is still usable
 	 *
@@ -464,6 +939,20 @@ public class PooledDataSource implements DataSource {
 	 * @return True if the connection is still usable
 	 */
 	protected boolean pingConnection(PooledConnection conn) {
+		// with a housekeeper, idle connections are pinged in the background instead
+		return pingConnection(conn, poolPingEnabled && poolHousekeepingInterval <= 0);
+	}
+
+	/*
+	 * Method to check to see if a connection is still usable
+	 *
+	 * @param conn - the connection to check
+	 *
+	 * @param runPingQuery - whether the ping query may be executed
+	 *
+	 * @return True if the connection is still usable
+	 */
+	boolean pingConnection(PooledConnection conn, boolean runPingQuery) {
 		boolean result = true;
 
 		try {
@@ -476,7 +965,7 @@ public class PooledDataSource implements DataSource {
 		}
 
 		if (result) {
-			if (poolPingEnabled) {
+			if (runPingQuery) {
 				if (poolPingConnectionsNotUsedFor >= 0
 						&& conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
 					try {
@@ -530,8 +1019,66 @@ public class PooledDataSource implements DataSource {
 		return conn;
 	}
 
-	protected void finalize() throws Throwable {
+	/*
+	 * Gets the statement cache of the physical connection behind a pooled
+	 * connection
+	 *
+	 * @param conn - the pooled connection
+	 * 
+	 * @return The statement cache, or null if the connection is not pooled or
+	 * statement caching is disabled
+	 */
+	public static StatementCache getStatementCache(Connection conn) {
+		if (Proxy.isProxyClass(conn.getClass())) {
+			InvocationHandler handler = Proxy.getInvocationHandler(conn);
+			if (handler instanceof PooledConnection) {
+				return ((PooledConnection) handler).getStatementCache();
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Opens a new physical connection with the default credentials
+	 */
+	Connection newRealConnection() throws SQLException {
+		return dataSource.getConnection();
+	}
+
+	boolean isPastMaximumLifetime(PooledConnection conn) {
+		return poolMaximumLifetime > 0 && conn.getAge() >= poolMaximumLifetime;
+	}
+
+	private synchronized void startHousekeeper() {
+		if (housekeeper == null) {
+			housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "PooledDataSource-housekeeper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			housekeeper.scheduleWithFixedDelay(new PoolHousekeeper(this, housekeeper), 0, poolHousekeepingInterval,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized void stopHousekeeper() {
+		if (housekeeper != null) {
+			housekeeper.shutdownNow();
+			housekeeper = null;
+		}
+	}
+
+	/*
+	 * Stops the housekeeper and closes all connections. The pool can still be
+	 * used afterwards; it then opens new connections and restarts housekeeping.
+	 */
+	public void close() {
+		stopHousekeeper();
 		forceCloseAll();
+	}
+
+	protected void finalize() throws Throwable {
+		close();
 		super.finalize();
 	}
 
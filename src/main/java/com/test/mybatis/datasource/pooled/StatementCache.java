@@ -0,0 +1,119 @@
+package com.test.mybatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个物理连接上的Statement缓存，随连接在池中流转，多个会话借用同一连接时可以复用已经预编译的Statement。
+ * <p>
+ * 执行器用 {@link #take(String)} 取出Statement，用完后 {@link #release(String, Statement)} 放回，
+ * 正在使用的Statement不在缓存中，所以LRU淘汰只会关闭空闲的Statement。
+ *
+ * @author ethan
+ */
+public class StatementCache {
+
+	private final int maxSize;
+	private final PoolState state;
+	private final Map<String, Statement> statements = new LinkedHashMap<>(16, 0.75f, true);
+	// 连接被收回后不再缓存，原来的持有者之后放回的Statement直接关闭
+	private boolean closed;
+
+	StatementCache(int maxSize, PoolState state) {
+		this.maxSize = maxSize;
+		this.state = state;
+	}
+
+	/*
+	 * Removes the cached statement for the sql so that it is owned by the caller
+	 * until it is released
+	 *
+	 * @param sql the sql the statement was prepared for
+	 *
+	 * @return the statement, or null if none is cached
+	 */
+	public synchronized Statement take(String sql) {
+		Statement stmt = statements.remove(sql);
+		if (stmt != null && !isClosed(stmt)) {
+			state.statementCacheHitCount.increment();
+			return stmt;
+		}
+		state.statementCacheMissCount.increment();
+		return null;
+	}
+
+	/*
+	 * Returns a statement to the cache, closing the least recently used one when
+	 * the cache is full
+	 *
+	 * @param sql the sql the statement was prepared for
+	 *
+	 * @param stmt the statement
+	 */
+	public synchronized void release(String sql, Statement stmt) {
+		if (closed) {
+			close(stmt);
+			return;
+		}
+		Statement previous = statements.put(sql, stmt);
+		if (previous != null && previous != stmt) {
+			close(previous);
+		}
+		Iterator<Statement> iterator = statements.values().iterator();
+		while (statements.size() > maxSize) {
+			close(iterator.next());
+			iterator.remove();
+			state.statementCacheEvictionCount.increment();
+		}
+	}
+
+	/*
+	 * Closes all cached statements
+	 */
+	public synchronized void clear() {
+		for (Statement stmt : statements.values()) {
+			close(stmt);
+		}
+		statements.clear();
+	}
+
+	/*
+	 * Closes all cached statements and stops caching, used when the connection is
+	 * claimed from an overdue holder that may still release statements into it
+	 */
+	public synchronized void close() {
+		closed = true;
+		clear();
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	public synchronized int getSize() {
+		return statements.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	private static boolean isClosed(Statement stmt) {
+		try {
+			return stmt.isClosed();
+		} catch (SQLException e) {
+			return true;
+		}
+	}
+
+	private static void close(Statement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+			// ignore
+		}
+	}
+}
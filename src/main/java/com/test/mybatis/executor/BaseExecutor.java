@@ -8,6 +8,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.test.mybatis.cache.CacheKey;
 import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+import com.test.mybatis.cache.metrics.CacheMetricsRegistry;
 import com.test.mybatis.cursor.Cursor;
 import com.test.mybatis.executor.statement.StatementUtil;
 import com.test.mybatis.logging.Log;
@@ -49,6 +51,9 @@ public abstract class BaseExecutor implements Executor {
 	
 	//本地缓存，即一级缓存
 	protected PerpetualCache localCache;
+
+	//一级缓存的统计，所有会话共用
+	protected CacheMetrics localCacheMetrics;
 	
 	//本地输出类型的参数的缓存
 	protected PerpetualCache localOutputParameterCache;
@@ -65,10 +70,11 @@ public abstract class BaseExecutor implements Executor {
 	protected BaseExecutor(Configuration configuration, Transaction transaction) {
 		this.transaction = transaction;
 		this.deferredLoads = new ConcurrentLinkedQueue<>();
-		this.localCache = new PerpetualCache("LocalCache");
 		this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
 		this.closed = false;
 		this.configuration = configuration;
+		this.localCacheMetrics = configuration.getCacheMetrics(CacheMetricsRegistry.LOCAL_CACHE_ID);
+		this.localCache = newLocalCache();
 		this.wrapper = this;
 	}
 
@@ -153,8 +159,12 @@ public abstract class BaseExecutor implements Executor {
 			queryStack++;
 			list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
 			if (list != null) {
+				localCacheMetrics.recordHit();
 				handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
 			} else {
+				if (resultHandler == null) {
+					localCacheMetrics.recordMiss();
+				}
 				list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
 			}
 		} finally {
@@ -169,6 +179,8 @@ public abstract class BaseExecutor implements Executor {
 			if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
 				// issue #482
 				clearLocalCache();
+			} else {
+				evictLocalCache();
 			}
 		}
 		return list;
@@ -200,13 +212,12 @@ public abstract class BaseExecutor implements Executor {
 		if (closed) {
 			throw new ExecutorException("Executor was closed.");
 		}
-		CacheKey cacheKey = new CacheKey();
-		cacheKey.update(ms.getId());
-		cacheKey.update(rowBounds.getOffset());
-		cacheKey.update(rowBounds.getLimit());
-		cacheKey.update(boundSql.getSql());
 		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+		// 语句id和分页参数使用预先计算好的前缀，再加上sql、参数和环境id
+		CacheKey cacheKey = new CacheKey(ms.getCacheKeyPrefix(rowBounds), parameterMappings.size() + 2);
+		cacheKey.update(boundSql.getSql());
 		TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
+		MetaObject metaObject = null;
 		// mimic DefaultParameterHandler logic
 		for (ParameterMapping parameterMapping : parameterMappings) {
 			if (parameterMapping.getMode() != ParameterMode.OUT) {
@@ -219,7 +230,9 @@ public abstract class BaseExecutor implements Executor {
 				} else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
 					value = parameterObject;
 				} else {
-					MetaObject metaObject = configuration.newMetaObject(parameterObject);
+					if (metaObject == null) {
+						metaObject = configuration.newMetaObject(parameterObject);
+					}
 					value = metaObject.getValue(propertyName);
 				}
 				cacheKey.update(value);
@@ -322,16 +335,42 @@ public abstract class BaseExecutor implements Executor {
 		}
 	}
 
+	private PerpetualCache newLocalCache() {
+		Integer size = configuration.getLocalCacheSize();
+		Long maxBytes = configuration.getLocalCacheMaxBytes();
+		if (size == null && maxBytes == null) {
+			return new PerpetualCache("LocalCache");
+		}
+		BoundedLocalCache cache = new BoundedLocalCache("LocalCache", localOutputParameterCache);
+		cache.setMaxEntries(size == null ? 0 : size);
+		cache.setMaxBytes(maxBytes == null ? 0 : maxBytes);
+		cache.setMetrics(localCacheMetrics);
+		return cache;
+	}
+
+	private void evictLocalCache() {
+		if (localCache instanceof BoundedLocalCache) {
+			((BoundedLocalCache) localCache).evict();
+		}
+	}
+
 	private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds,
 			ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
 		List<E> list;
 		localCache.putObject(key, EXECUTION_PLACEHOLDER);
+		long start = System.nanoTime();
 		try {
 			list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
 		} finally {
 			localCache.removeObject(key);
 		}
+		localCacheMetrics.recordLoad(System.nanoTime() - start);
 		localCache.putObject(key, list);
+		localCacheMetrics.recordPut();
+		if (deferredLoads.isEmpty()) {
+			// 还有延迟加载时不能淘汰，它们之后要从一级缓存中读取结果
+			evictLocalCache();
+		}
 		if (ms.getStatementType() == StatementType.CALLABLE) {
 			localOutputParameterCache.putObject(key, parameter);
 		}
@@ -6,7 +6,10 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.test.mybatis.cursor.Cursor;
 import com.test.mybatis.executor.keygen.Jdbc3KeyGenerator;
@@ -15,6 +18,8 @@ import com.test.mybatis.executor.keygen.NoKeyGenerator;
 import com.test.mybatis.executor.statement.StatementHandler;
 import com.test.mybatis.mapping.BoundSql;
 import com.test.mybatis.mapping.MappedStatement;
+import com.test.mybatis.mapping.ParameterMapping;
+import com.test.mybatis.reflection.MetaObject;
 import com.test.mybatis.session.Configuration;
 import com.test.mybatis.session.ResultHandler;
 import com.test.mybatis.session.RowBounds;
@@ -28,6 +33,14 @@ public class BatchExecutor extends BaseExecutor {
 	private final List<BatchResult> batchResultList = new ArrayList<>();
 	private String currentSql;
 	private MappedStatement currentStatement;
+	// batchReordering时每个sql最后打开的批次，以及每个批次修改的表
+	private final Map<String, Integer> openBatches = new HashMap<>();
+	private final List<Set<String>> batchTables = new ArrayList<>();
+	// 自动执行过的批次，每个语句合并成一个结果，下一次flushStatements时返回
+	private final List<BatchResult> flushedResults = new ArrayList<>();
+	private long pendingBytes;
+	// 改写成多行insert的批次，没有打开的Statement；其他批次为null
+	private final List<MultiRowInsert> rewrites = new ArrayList<>();
 
 	public BatchExecutor(Configuration configuration, Transaction transaction) {
 		super(configuration, transaction);
@@ -41,26 +54,188 @@ public class BatchExecutor extends BaseExecutor {
 		final BoundSql boundSql = handler.getBoundSql();
 		final String sql = boundSql.getSql();
 		final Statement stmt;
-		if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-			int last = statementList.size() - 1;
-			stmt = statementList.get(last);
-			applyTransactionTimeout(stmt);
-			handler.parameterize(stmt);// fix Issues 322
-			BatchResult batchResult = batchResultList.get(last);
+		final int batch = findBatch(ms, sql, boundSql);
+		if (batch >= 0) {
+			MultiRowInsert rewrite = rewrites.get(batch);
+			stmt = statementList.get(batch);
+			if (rewrite != null) {
+				rewrite.add(boundSql);
+			} else {
+				applyTransactionTimeout(stmt);
+				handler.parameterize(stmt);// fix Issues 322
+			}
+			BatchResult batchResult = batchResultList.get(batch);
 			batchResult.addParameterObject(parameterObject);
 		} else {
-			Connection connection = getConnection(ms.getStatementLog());
-			stmt = handler.prepare(connection, transaction.getTimeout());
-			handler.parameterize(stmt); // fix Issues 322
+			MultiRowInsert rewrite = newRewrite(ms, boundSql);
+			if (rewrite != null) {
+				// 执行时才生成语句
+				stmt = null;
+				rewrite.add(boundSql);
+			} else {
+				Connection connection = getConnection(ms.getStatementLog());
+				stmt = handler.prepare(connection, transaction.getTimeout());
+				handler.parameterize(stmt); // fix Issues 322
+			}
 			currentSql = sql;
 			currentStatement = ms;
 			statementList.add(stmt);
+			rewrites.add(rewrite);
 			batchResultList.add(new BatchResult(ms, sql, parameterObject));
+			if (configuration.isBatchReordering()) {
+				openBatches.put(sql, statementList.size() - 1);
+				batchTables.add(ms.getTables(boundSql));
+			}
+		}
+		if (stmt != null) {
+			handler.batch(stmt);
+		}
+		if (isFlushNeeded(batch >= 0 ? batch : statementList.size() - 1, boundSql, parameterObject)) {
+			for (BatchResult result : doFlushStatements(false)) {
+				retainFlushed(result);
+			}
 		}
-		handler.batch(stmt);
 		return BATCH_UPDATE_RETURN_VALUE;
 	}
 
+	/*
+	 * Aggregates an automatically flushed batch into the result kept for the
+	 * same statement and sql. The parameter objects are dropped and the update
+	 * counts are summed into a single element (SUCCESS_NO_INFO when the driver
+	 * did not report them), so a bulk load keeps one small result per statement
+	 * no matter how many times it is flushed before flushStatements.
+	 */
+	private void retainFlushed(BatchResult result) {
+		result.releaseParameterObjects();
+		int updated = sumUpdateCounts(result.getUpdateCounts(), 0);
+		for (BatchResult flushed : flushedResults) {
+			if (flushed.getMappedStatement().equals(result.getMappedStatement())
+					&& flushed.getSql().equals(result.getSql())) {
+				flushed.setUpdateCounts(new int[] { sumUpdateCounts(flushed.getUpdateCounts(), updated) });
+				return;
+			}
+		}
+		result.setUpdateCounts(new int[] { updated });
+		flushedResults.add(result);
+	}
+
+	private static int sumUpdateCounts(int[] updateCounts, int total) {
+		if (updateCounts == null) {
+			return total;
+		}
+		for (int count : updateCounts) {
+			if (count < 0 || total < 0) {
+				return Statement.SUCCESS_NO_INFO;
+			}
+			total += count;
+		}
+		return total;
+	}
+
+	private MultiRowInsert newRewrite(MappedStatement ms, BoundSql boundSql) {
+		Integer chunkSize = configuration.getBatchRewriteChunkSize();
+		return chunkSize != null && chunkSize > 1 ? MultiRowInsert.of(ms, boundSql) : null;
+	}
+
+	private boolean isFlushNeeded(int batch, BoundSql boundSql, Object parameterObject) {
+		Integer maxRows = configuration.getBatchFlushRows();
+		if (maxRows != null && batchResultList.get(batch).getParameterObjects().size() >= maxRows) {
+			return true;
+		}
+		Integer maxStatements = configuration.getBatchFlushStatements();
+		if (maxStatements != null && statementList.size() >= maxStatements) {
+			return true;
+		}
+		Long maxBytes = configuration.getBatchFlushBytes();
+		if (maxBytes != null) {
+			pendingBytes += estimateSize(boundSql, parameterObject);
+			return pendingBytes >= maxBytes;
+		}
+		return false;
+	}
+
+	/*
+	 * Roughly weighs the values bound to the statement, the same way
+	 * DefaultParameterHandler looks them up
+	 */
+	private long estimateSize(BoundSql boundSql, Object parameterObject) {
+		long size = 16;
+		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+		if (parameterMappings == null || parameterObject == null) {
+			return size;
+		}
+		boolean simple = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
+		MetaObject metaObject = null;
+		for (ParameterMapping parameterMapping : parameterMappings) {
+			String propertyName = parameterMapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(propertyName)) {
+				value = boundSql.getAdditionalParameter(propertyName);
+			} else if (simple) {
+				value = parameterObject;
+			} else {
+				if (metaObject == null) {
+					metaObject = configuration.newMetaObject(parameterObject);
+				}
+				value = metaObject.getValue(propertyName);
+			}
+			if (value instanceof CharSequence) {
+				size += 40 + 2L * ((CharSequence) value).length();
+			} else if (value instanceof byte[]) {
+				size += 16 + ((byte[]) value).length;
+			} else {
+				size += 16;
+			}
+		}
+		return size;
+	}
+
+	/*
+	 * Finds the batch the statement can be added to. Without reordering that is
+	 * only the last batch. With reordering it is the open batch for the same sql,
+	 * as long as running the statement ahead of the batches opened after it
+	 * cannot change the outcome. Foreign keys are not visible here, so a
+	 * statement only moves ahead of a batch on other tables when both statements
+	 * declare batchDependsOn; otherwise a child insert could join an earlier
+	 * batch and run before the parent row it references.
+	 *
+	 * @return the batch index, or -1 to start a new batch
+	 */
+	private int findBatch(MappedStatement ms, String sql, BoundSql boundSql) {
+		if (!configuration.isBatchReordering()) {
+			return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+		}
+		Integer batch = openBatches.get(sql);
+		if (batch == null || !ms.equals(batchResultList.get(batch).getMappedStatement())) {
+			return -1;
+		}
+		Set<String> tables = ms.getTables(boundSql);
+		for (int i = batch + 1, n = batchResultList.size(); i < n; i++) {
+			if (mustFollow(ms, tables, batchResultList.get(i).getMappedStatement(), batchTables.get(i))) {
+				return -1;
+			}
+		}
+		return batch;
+	}
+
+	private static boolean mustFollow(MappedStatement ms, Set<String> tables, MappedStatement other,
+			Set<String> otherTables) {
+		if (ms.getBatchDependsOn().contains(other.getId())) {
+			return true;
+		}
+		// 表无法确定时保持原来的顺序
+		if (tables == null || otherTables == null) {
+			return true;
+		}
+		for (String table : tables) {
+			if (otherTables.contains(table)) {
+				return true;
+			}
+		}
+		// 外键之类的依赖只能由语句自己声明，任何一方没有声明时保持原来的顺序
+		return !ms.isBatchDependsOnDeclared() || !other.isBatchDependsOnDeclared();
+	}
+
 	@Override
 	public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds,
 			ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
@@ -96,29 +271,37 @@ public class BatchExecutor extends BaseExecutor {
 	@Override
 	public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
 		try {
-			List<BatchResult> results = new ArrayList<>();
+			List<BatchResult> results = new ArrayList<>(flushedResults);
+			flushedResults.clear();
 			if (isRollback) {
 				return Collections.emptyList();
 			}
 			for (int i = 0, n = statementList.size(); i < n; i++) {
 				Statement stmt = statementList.get(i);
-				applyTransactionTimeout(stmt);
+				MultiRowInsert rewrite = rewrites.get(i);
 				BatchResult batchResult = batchResultList.get(i);
 				try {
-					batchResult.setUpdateCounts(stmt.executeBatch());
 					MappedStatement ms = batchResult.getMappedStatement();
 					List<Object> parameterObjects = batchResult.getParameterObjects();
-					KeyGenerator keyGenerator = ms.getKeyGenerator();
-					if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-						Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-						jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-					} else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { // issue #141
-						for (Object parameter : parameterObjects) {
-							keyGenerator.processAfter(this, ms, stmt, parameter);
+					if (rewrite != null) {
+						// 生成的主键在每块执行后取回
+						batchResult.setUpdateCounts(rewrite.execute(getConnection(ms.getStatementLog()),
+								transaction.getTimeout(), configuration.getBatchRewriteChunkSize(), parameterObjects));
+					} else {
+						applyTransactionTimeout(stmt);
+						batchResult.setUpdateCounts(stmt.executeBatch());
+						KeyGenerator keyGenerator = ms.getKeyGenerator();
+						if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+							Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+							jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+						} else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { // issue #141
+							for (Object parameter : parameterObjects) {
+								keyGenerator.processAfter(this, ms, stmt, parameter);
+							}
 						}
+						// Close statement to close cursor #1109
+						closeStatement(stmt);
 					}
-					// Close statement to close cursor #1109
-					closeStatement(stmt);
 				} catch (BatchUpdateException e) {
 					StringBuilder message = new StringBuilder();
 					message.append(batchResult.getMappedStatement().getId()).append(" (batch index #").append(i + 1)
@@ -138,7 +321,11 @@ public class BatchExecutor extends BaseExecutor {
 			}
 			currentSql = null;
 			statementList.clear();
+			rewrites.clear();
 			batchResultList.clear();
+			openBatches.clear();
+			batchTables.clear();
+			pendingBytes = 0;
 		}
 	}
 
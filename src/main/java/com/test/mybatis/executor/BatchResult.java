@@ -1,6 +1,7 @@
 package com.test.mybatis.executor;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.test.mybatis.mapping.MappedStatement;
@@ -8,7 +9,7 @@ import com.test.mybatis.mapping.MappedStatement;
 public class BatchResult {
 	private final MappedStatement mappedStatement;
 	private final String sql;
-	private final List<Object> parameterObjects;
+	private List<Object> parameterObjects;
 
 	private int[] updateCounts;
 
@@ -52,4 +53,13 @@ public class BatchResult {
 	public void addParameterObject(Object parameterObject) {
 		this.parameterObjects.add(parameterObject);
 	}
+
+	/*
+	 * Drops the parameter objects of a batch that was flushed automatically, so
+	 * that they and the backing array of the list can be garbage collected while
+	 * the import goes on
+	 */
+	void releaseParameterObjects() {
+		this.parameterObjects = Collections.emptyList();
+	}
 }
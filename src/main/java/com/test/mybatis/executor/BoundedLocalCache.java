@@ -0,0 +1,144 @@
+package com.test.mybatis.executor;
+
+import static com.test.mybatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.decorators.WeightedCache;
+import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+
+/**
+ * 有容量限制的一级缓存，按最近最少使用的顺序淘汰，防止长时间运行的会话把所有查询结果都留在内存里
+ * <p>
+ * Limits are on the number of entries and on the estimated size, where a
+ * result list is weighed as its size times {@code estimatedRowSize}. Entries
+ * are never evicted on put: {@code BaseExecutor} calls {@link #evict()} only
+ * when no deferred load is pending, since a deferred load reads its result from
+ * this cache later, and the {@link ExecutionPlaceholder} of a query still
+ * running is never evicted, so circular nested queries are still detected.
+ * The output parameters of an evicted callable statement are removed too.
+ *
+ * @author ethan
+ *
+ */
+public class BoundedLocalCache extends PerpetualCache {
+
+	private final Cache outputParameterCache;
+
+	/**
+	 * 按访问顺序记录缓存项和它的估算字节数
+	 */
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, .75F, true);
+
+	private long totalBytes;
+
+	/**
+	 * 以下两个上限为0时表示不限制
+	 */
+	private int maxEntries;
+	private long maxBytes;
+	private int estimatedRowSize = 256;
+
+	private CacheMetrics metrics = CacheMetrics.NONE;
+
+	public BoundedLocalCache(String id, Cache outputParameterCache) {
+		super(id);
+		this.outputParameterCache = outputParameterCache;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public void setEstimatedRowSize(int estimatedRowSize) {
+		this.estimatedRowSize = estimatedRowSize;
+	}
+
+	public void setMetrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	@Override
+	public int getSize() {
+		return entries.size();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		long weight = value == EXECUTION_PLACEHOLDER ? 0 : WeightedCache.weigh(value, estimatedRowSize);
+		Entry previous = entries.put(key, new Entry(value, weight));
+		if (previous != null) {
+			totalBytes -= previous.weight;
+		}
+		totalBytes += weight;
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.value;
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) {
+			return null;
+		}
+		totalBytes -= entry.weight;
+		return entry.value;
+	}
+
+	@Override
+	public void clear() {
+		entries.clear();
+		totalBytes = 0;
+	}
+
+	/**
+	 *
+	 * 淘汰最近最少使用的缓存项，直到不超过上限，正在执行的查询的占位符不会被淘汰
+	 *
+	 */
+	public void evict() {
+		Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator();
+		while (isOverflowing() && it.hasNext()) {
+			Map.Entry<Object, Entry> eldest = it.next();
+			Entry entry = eldest.getValue();
+			if (entry.value == EXECUTION_PLACEHOLDER) {
+				continue;
+			}
+			it.remove();
+			totalBytes -= entry.weight;
+			outputParameterCache.removeObject(eldest.getKey());
+			metrics.recordEviction();
+		}
+	}
+
+	private boolean isOverflowing() {
+		return (maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && totalBytes > maxBytes);
+	}
+
+	private static final class Entry {
+
+		final Object value;
+		final long weight;
+
+		Entry(Object value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+}
@@ -2,17 +2,24 @@ package com.test.mybatis.executor;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 
 import com.test.mybatis.cache.Cache;
 import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.TableDependencyRegistry;
 import com.test.mybatis.cache.TransactionalCacheManager;
+import com.test.mybatis.cache.cluster.CacheInvalidationBus;
+import com.test.mybatis.cursor.CachingCursor;
 import com.test.mybatis.cursor.Cursor;
+import com.test.mybatis.cursor.ListCursor;
 import com.test.mybatis.mapping.BoundSql;
 import com.test.mybatis.mapping.MappedStatement;
 import com.test.mybatis.mapping.ParameterMapping;
 import com.test.mybatis.mapping.ParameterMode;
+import com.test.mybatis.mapping.SqlCommandType;
 import com.test.mybatis.mapping.StatementType;
 import com.test.mybatis.reflection.MetaObject;
+import com.test.mybatis.session.Configuration;
 import com.test.mybatis.session.ResultHandler;
 import com.test.mybatis.session.RowBounds;
 import com.test.mybatis.transaction.Transaction;
@@ -20,10 +27,15 @@ import com.test.mybatis.transaction.Transaction;
 public class CachingExecutor implements Executor {
 
 	private final Executor delegate;
-	private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+	private final TransactionalCacheManager tcm;
 
 	public CachingExecutor(Executor delegate) {
+		this(delegate, null);
+	}
+
+	public CachingExecutor(Executor delegate, CacheInvalidationBus invalidationBus) {
 		this.delegate = delegate;
+		this.tcm = new TransactionalCacheManager(invalidationBus);
 		delegate.setExecutorWrapper(this);
 	}
 
@@ -53,7 +65,7 @@ public class CachingExecutor implements Executor {
 
 	@Override
 	public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-		flushCacheIfRequired(ms);
+		flushCacheIfRequired(ms, parameterObject);
 		return delegate.update(ms, parameterObject);
 	}
 
@@ -67,8 +79,30 @@ public class CachingExecutor implements Executor {
 
 	@Override
 	public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
-		flushCacheIfRequired(ms);
-		return delegate.queryCursor(ms, parameter, rowBounds);
+		flushCacheIfRequired(ms, parameter);
+		Cache cache = ms.getCache();
+		Integer maxRows = ms.getConfiguration().getCursorCacheMaxRows();
+		if (cache == null || !ms.isUseCache() || maxRows == null || maxRows <= 0) {
+			return delegate.queryCursor(ms, parameter, rowBounds);
+		}
+		BoundSql boundSql = ms.getBoundSql(parameter);
+		ensureNoOutParams(ms, boundSql);
+		CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+		if (ms.getConfiguration().isTableCacheInvalidation()) {
+			key.setTables(ms.getTables(boundSql));
+		}
+		@SuppressWarnings("unchecked")
+		List<E> list = (List<E>) tcm.getObject(cache, key);
+		if (list != null) {
+			// 和selectList共用缓存项
+			return new ListCursor<>(list, rowBounds.getOffset());
+		}
+		if (cache.isReloadable()) {
+			key.setReloader(new StatementReloader(ms, parameter, rowBounds, key, boundSql));
+		}
+		Cursor<E> cursor = delegate.queryCursor(ms, parameter, rowBounds);
+		// 完整遍历之后才放入，和查询列表一样在提交时真正放入二级缓存
+		return new CachingCursor<>(cursor, maxRows, rows -> tcm.putObject(cache, key, rows));
 	}
 
 	@Override
@@ -76,13 +110,22 @@ public class CachingExecutor implements Executor {
 			ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
 		Cache cache = ms.getCache();
 		if (cache != null) {
-			flushCacheIfRequired(ms);
+			flushCacheIfRequired(ms, parameterObject);
 			if (ms.isUseCache() && resultHandler == null) {
 				ensureNoOutParams(ms, boundSql);
+				if (ms.getConfiguration().isTableCacheInvalidation() && key != CacheKey.NULL_CACHE_KEY) {
+					key.setTables(ms.getTables(boundSql));
+				}
 				@SuppressWarnings("unchecked")
 				List<E> list = (List<E>) tcm.getObject(cache, key);
 				if (list == null) {
+					if (cache.isReloadable() && key != CacheKey.NULL_CACHE_KEY) {
+						// 缓存项过期后可以在后台重新执行这次查询
+						key.setReloader(new StatementReloader(ms, parameterObject, rowBounds, key, boundSql));
+					}
+					long start = System.nanoTime();
 					list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+					ms.getConfiguration().getCacheMetrics(cache.getId()).recordLoad(System.nanoTime() - start);
 					tcm.putObject(cache, key, list); // issue #578 and #116
 				}
 				return list;
@@ -146,9 +189,24 @@ public class CachingExecutor implements Executor {
 		delegate.clearLocalCache();
 	}
 
-	private void flushCacheIfRequired(MappedStatement ms) {
+	private void flushCacheIfRequired(MappedStatement ms, Object parameterObject) {
+		if (!ms.isFlushCacheRequired()) {
+			return;
+		}
 		Cache cache = ms.getCache();
-		if (cache != null && ms.isFlushCacheRequired()) {
+		Configuration configuration = ms.getConfiguration();
+		if (configuration.isTableCacheInvalidation() && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+			Set<String> tables = ms.getTables(ms.getBoundSql(parameterObject));
+			if (tables != null) {
+				// 只淘汰依赖被修改的表的缓存项，包括其他namespace的缓存
+				TableDependencyRegistry tableDependencies = configuration.getTableDependencyRegistry();
+				tcm.invalidate(tableDependencies, tables);
+				if (cache == null || tableDependencies.isTracked(cache)) {
+					return;
+				}
+			}
+		}
+		if (cache != null) {
 			tcm.clear(cache);
 		}
 	}
@@ -0,0 +1,304 @@
+package com.test.mybatis.executor;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.test.mybatis.executor.keygen.Jdbc3KeyGenerator;
+import com.test.mybatis.executor.keygen.KeyGenerator;
+import com.test.mybatis.executor.keygen.NoKeyGenerator;
+import com.test.mybatis.executor.parameter.ParameterHandler;
+import com.test.mybatis.executor.statement.StatementUtil;
+import com.test.mybatis.mapping.BoundSql;
+import com.test.mybatis.mapping.MappedStatement;
+import com.test.mybatis.mapping.SqlCommandType;
+import com.test.mybatis.mapping.StatementType;
+import com.test.mybatis.reflection.ExceptionUtil;
+import com.test.mybatis.scripting.defaults.DefaultParameterHandler;
+
+/**
+ *
+ * BatchExecutor中改写成多行insert的一个批次：收集每一行的BoundSql，执行时按块生成
+ * {@code INSERT ... VALUES (...),(...)}，每块一次往返
+ * <p>
+ * Only a statement ending with a single VALUES list that holds every parameter
+ * is rewritten. Drivers report one update count for the whole statement, so a
+ * row gets 1 when the count matches the rows of its chunk, else
+ * {@link Statement#SUCCESS_NO_INFO}. Generated keys are read per chunk and
+ * assigned in row order by {@link Jdbc3KeyGenerator}. Each row is bound by a
+ * parameter handler from {@code Configuration}, so language drivers and
+ * plugins apply, and a chunk never holds more than
+ * {@code batchRewriteMaxParameters} bind parameters.
+ *
+ * @author ethan
+ *
+ */
+final class MultiRowInsert {
+
+	private final MappedStatement ms;
+	private final String prefix;
+	private final String values;
+	private final List<BoundSql> rows = new ArrayList<>();
+	private String chunkSql;
+	private int chunkSqlRows;
+
+	private MultiRowInsert(MappedStatement ms, String prefix, String values) {
+		this.ms = ms;
+		this.prefix = prefix;
+		this.values = values;
+	}
+
+	/*
+	 * Creates the rewrite for a statement flagged with batchRewrite
+	 *
+	 * @return the rewrite, or null if the statement cannot be rewritten
+	 */
+	static MultiRowInsert of(MappedStatement ms, BoundSql boundSql) {
+		KeyGenerator keyGenerator = ms.getKeyGenerator();
+		if (!ms.isBatchRewrite() || ms.getSqlCommandType() != SqlCommandType.INSERT
+				|| ms.getStatementType() != StatementType.PREPARED
+				|| !(keyGenerator instanceof Jdbc3KeyGenerator || keyGenerator instanceof NoKeyGenerator)) {
+			return null;
+		}
+		String sql = boundSql.getSql();
+		int start = findValues(sql);
+		if (start < 0) {
+			return null;
+		}
+		int end = skipGroup(sql, start);
+		if (end < 0 || !sql.substring(end).trim().isEmpty()) {
+			return null;
+		}
+		// 所有参数都在VALUES中
+		int parameters = boundSql.getParameterMappings().size();
+		if (countParameters(sql, 0, start) != 0 || countParameters(sql, start, end) != parameters) {
+			return null;
+		}
+		return new MultiRowInsert(ms, sql.substring(0, start), sql.substring(start, end));
+	}
+
+	void add(BoundSql boundSql) {
+		rows.add(boundSql);
+	}
+
+	/*
+	 * Executes the rows in chunks of at most chunkSize rows and
+	 * batchRewriteMaxParameters parameters
+	 *
+	 * @param parameterObjects the parameter object of each row, to assign
+	 * generated keys to
+	 *
+	 * @return the update count of each row
+	 */
+	int[] execute(Connection connection, Integer transactionTimeout, int chunkSize, List<Object> parameterObjects)
+			throws SQLException {
+		int[] updateCounts = new int[rows.size()];
+		int parameters = rows.get(0).getParameterMappings().size();
+		if (parameters > 0) {
+			// 驱动限制了一条语句的参数个数
+			int maxParameters = ms.getConfiguration().getBatchRewriteMaxParameters();
+			chunkSize = Math.max(1, Math.min(chunkSize, maxParameters / parameters));
+		}
+		for (int start = 0; start < rows.size(); start += chunkSize) {
+			int end = Math.min(start + chunkSize, rows.size());
+			PreparedStatement ps = null;
+			try {
+				ps = prepare(connection, sql(end - start, chunkSize));
+				setStatementTimeout(ps, transactionTimeout);
+				int offset = 0;
+				for (int row = start; row < end; row++) {
+					BoundSql boundSql = rows.get(row);
+					setParameters(ps, boundSql, offset);
+					offset += boundSql.getParameterMappings().size();
+				}
+				int count = ps.executeUpdate();
+				Arrays.fill(updateCounts, start, end, count == end - start ? 1 : Statement.SUCCESS_NO_INFO);
+				if (ms.getKeyGenerator() instanceof Jdbc3KeyGenerator) {
+					((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, ps,
+							new ArrayList<>(parameterObjects.subList(start, end)));
+				}
+			} catch (BatchUpdateException e) {
+				throw e;
+			} catch (SQLException e) {
+				// 和addBatch一样报告已经完成的行
+				throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+						Arrays.copyOf(updateCounts, start), e);
+			} finally {
+				if (ps != null) {
+					try {
+						ps.close();
+					} catch (SQLException e) {
+						// ignore
+					}
+				}
+			}
+		}
+		return updateCounts;
+	}
+
+	private void setParameters(PreparedStatement ps, BoundSql boundSql, int offset) throws SQLException {
+		ParameterHandler handler = ms.getConfiguration().newParameterHandler(ms, boundSql.getParameterObject(),
+				boundSql);
+		if (handler instanceof DefaultParameterHandler) {
+			((DefaultParameterHandler) handler).setParameters(ps, offset);
+		} else {
+			// 插件和其他LanguageDriver的参数处理器只知道从1开始的下标
+			handler.setParameters(offset == 0 ? ps : shift(ps, offset));
+		}
+	}
+
+	/*
+	 * Adds offset to the parameter index of every setXxx call
+	 */
+	private static PreparedStatement shift(PreparedStatement ps, int offset) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().startsWith("set") && args != null && args.length >= 2
+							&& method.getParameterTypes()[0] == int.class) {
+						args[0] = (Integer) args[0] + offset;
+					}
+					try {
+						return method.invoke(ps, args);
+					} catch (Throwable t) {
+						throw ExceptionUtil.unwrapThrowable(t);
+					}
+				});
+	}
+
+	private String sql(int rowCount, int chunkSize) {
+		if (rowCount == chunkSize && chunkSql != null && chunkSqlRows == chunkSize) {
+			return chunkSql;
+		}
+		StringBuilder sql = new StringBuilder(prefix.length() + rowCount * (values.length() + 1));
+		sql.append(prefix).append(values);
+		for (int i = 1; i < rowCount; i++) {
+			sql.append(',').append(values);
+		}
+		if (rowCount == chunkSize) {
+			chunkSql = sql.toString();
+			chunkSqlRows = chunkSize;
+			return chunkSql;
+		}
+		return sql.toString();
+	}
+
+	private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+		if (ms.getKeyGenerator() instanceof Jdbc3KeyGenerator) {
+			String[] keyColumnNames = ms.getKeyColumns();
+			if (keyColumnNames == null) {
+				return connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+			} else {
+				return connection.prepareStatement(sql, keyColumnNames);
+			}
+		}
+		return connection.prepareStatement(sql);
+	}
+
+	private void setStatementTimeout(Statement stmt, Integer transactionTimeout) throws SQLException {
+		Integer queryTimeout = null;
+		if (ms.getTimeout() != null) {
+			queryTimeout = ms.getTimeout();
+		} else if (ms.getConfiguration().getDefaultStatementTimeout() != null) {
+			queryTimeout = ms.getConfiguration().getDefaultStatementTimeout();
+		}
+		if (queryTimeout != null) {
+			stmt.setQueryTimeout(queryTimeout);
+		}
+		StatementUtil.applyTransactionTimeout(stmt, queryTimeout, transactionTimeout);
+	}
+
+	/*
+	 * Finds the "(" of the VALUES list that follows the last top level VALUES
+	 * keyword
+	 */
+	private static int findValues(String sql) {
+		int found = -1;
+		int depth = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				i = skipQuoted(sql, i);
+				if (i < 0) {
+					return -1;
+				}
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0 && sql.regionMatches(true, i, "VALUES", 0, 6) && isBoundary(sql, i - 1)
+					&& isBoundary(sql, i + 6)) {
+				int j = i + 6;
+				while (j < sql.length() && Character.isWhitespace(sql.charAt(j))) {
+					j++;
+				}
+				found = j < sql.length() && sql.charAt(j) == '(' ? j : -1;
+				i += 5;
+			}
+		}
+		return found;
+	}
+
+	/*
+	 * @return the index after the ")" closing the group opened at start, or -1
+	 */
+	private static int skipGroup(String sql, int start) {
+		int depth = 0;
+		for (int i = start; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				i = skipQuoted(sql, i);
+				if (i < 0) {
+					return -1;
+				}
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private static int countParameters(String sql, int start, int end) {
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				i = skipQuoted(sql, i);
+				if (i < 0) {
+					return -1;
+				}
+			} else if (c == '?') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * @return the index of the closing quote, or -1 if there is none
+	 */
+	private static int skipQuoted(String sql, int start) {
+		char quote = sql.charAt(start);
+		for (int i = start + 1; i < sql.length(); i++) {
+			if (sql.charAt(i) == quote) {
+				if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+					i++;// 转义的引号
+				} else {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isBoundary(String sql, int i) {
+		return i < 0 || i >= sql.length() || !(Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_');
+	}
+}
@@ -9,6 +9,8 @@ import java.util.List;
 import java.util.Map;
 
 import com.test.mybatis.cursor.Cursor;
+import com.test.mybatis.datasource.pooled.PooledDataSource;
+import com.test.mybatis.datasource.pooled.StatementCache;
 import com.test.mybatis.executor.statement.StatementHandler;
 import com.test.mybatis.logging.Log;
 import com.test.mybatis.mapping.BoundSql;
@@ -21,6 +23,9 @@ import com.test.mybatis.transaction.Transaction;
 public class ReuseExecutor extends BaseExecutor {
 
 	private final Map<String, Statement> statementMap = new HashMap<>();
+	// 连接池中物理连接上的Statement缓存，跨会话复用
+	private StatementCache statementCache;
+	private boolean statementCacheResolved;
 
 	public ReuseExecutor(Configuration configuration, Transaction transaction) {
 		super(configuration, transaction);
@@ -56,8 +61,13 @@ public class ReuseExecutor extends BaseExecutor {
 
 	@Override
 	public List<BatchResult> doFlushStatements(boolean isRollback) {
-		for (Statement stmt : statementMap.values()) {
-			closeStatement(stmt);
+		for (Map.Entry<String, Statement> entry : statementMap.entrySet()) {
+			if (statementCache != null) {
+				// 归还给连接，下一个借用该连接的会话可以继续使用
+				statementCache.release(entry.getKey(), entry.getValue());
+			} else {
+				closeStatement(entry.getValue());
+			}
 		}
 		statementMap.clear();
 		return Collections.emptyList();
@@ -72,13 +82,26 @@ public class ReuseExecutor extends BaseExecutor {
 			applyTransactionTimeout(stmt);
 		} else {
 			Connection connection = getConnection(statementLog);
-			stmt = handler.prepare(connection, transaction.getTimeout());
+			stmt = takeCachedStatement(sql);
+			if (stmt != null) {
+				applyTransactionTimeout(stmt);
+			} else {
+				stmt = handler.prepare(connection, transaction.getTimeout());
+			}
 			putStatement(sql, stmt);
 		}
 		handler.parameterize(stmt);
 		return stmt;
 	}
 
+	private Statement takeCachedStatement(String sql) throws SQLException {
+		if (!statementCacheResolved) {
+			statementCache = PooledDataSource.getStatementCache(transaction.getConnection());
+			statementCacheResolved = true;
+		}
+		return statementCache == null ? null : statementCache.take(sql);
+	}
+
 	private boolean hasStatementFor(String sql) {
 		try {
 			return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
@@ -0,0 +1,94 @@
+package com.test.mybatis.executor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.mapping.BoundSql;
+import com.test.mybatis.mapping.Environment;
+import com.test.mybatis.mapping.MappedStatement;
+import com.test.mybatis.mapping.ParameterMapping;
+import com.test.mybatis.reflection.MetaObject;
+import com.test.mybatis.session.Configuration;
+import com.test.mybatis.session.RowBounds;
+import com.test.mybatis.transaction.Transaction;
+import com.test.mybatis.type.TypeHandlerRegistry;
+
+/**
+ * 
+ * 在新的事务中重新执行一次查询，用于后台刷新二级缓存中已过期的缓存项
+ * <p>
+ * The query runs on its own SimpleExecutor, so it neither reads the
+ * second-level cache nor depends on the session that first loaded the entry,
+ * which is usually closed by the time the entry goes stale. The values bound
+ * to the statement are copied when the reloader is created; the caller's
+ * parameter object is not kept, so changing it later does not change what the
+ * refresh queries.
+ * 
+ * @author ethan
+ *
+ */
+class StatementReloader implements Callable<List<Object>> {
+
+	private final MappedStatement ms;
+	private final Map<String, Object> parameterObject;
+	private final RowBounds rowBounds;
+	private final CacheKey key;
+	private final BoundSql boundSql;
+
+	StatementReloader(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key,
+			BoundSql boundSql) {
+		Configuration configuration = ms.getConfiguration();
+		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+		List<ParameterMapping> snapshotMappings = new ArrayList<>(parameterMappings.size());
+		Map<String, Object> values = new HashMap<>();
+		TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+		MetaObject metaObject = null;
+		// 按DefaultParameterHandler的方式取出参数值，以p0、p1...的名称保存
+		for (int i = 0; i < parameterMappings.size(); i++) {
+			ParameterMapping parameterMapping = parameterMappings.get(i);
+			String propertyName = parameterMapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(propertyName)) {
+				value = boundSql.getAdditionalParameter(propertyName);
+			} else if (parameterObject == null) {
+				value = null;
+			} else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+				value = parameterObject;
+			} else {
+				if (metaObject == null) {
+					metaObject = configuration.newMetaObject(parameterObject);
+				}
+				value = metaObject.getValue(propertyName);
+			}
+			String name = "p" + i;
+			values.put(name, value);
+			snapshotMappings.add(new ParameterMapping.Builder(configuration, name, parameterMapping.getTypeHandler())
+					.javaType(parameterMapping.getJavaType()).jdbcType(parameterMapping.getJdbcType())
+					.jdbcTypeName(parameterMapping.getJdbcTypeName()).numericScale(parameterMapping.getNumericScale())
+					.mode(parameterMapping.getMode()).resultMapId(parameterMapping.getResultMapId())
+					.expression(parameterMapping.getExpression()).build());
+		}
+		this.ms = ms;
+		this.parameterObject = values;
+		this.rowBounds = rowBounds;
+		this.key = key;
+		this.boundSql = new BoundSql(configuration, boundSql.getSql(), snapshotMappings, values);
+	}
+
+	@Override
+	public List<Object> call() throws Exception {
+		Configuration configuration = ms.getConfiguration();
+		Environment environment = configuration.getEnvironment();
+		Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, true);
+		Executor executor = new SimpleExecutor(configuration, tx);
+		try {
+			return executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+		} finally {
+			executor.close(false);
+		}
+	}
+}
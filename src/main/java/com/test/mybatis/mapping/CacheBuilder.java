@@ -8,13 +8,21 @@ import java.util.Properties;
 
 import com.test.mybatis.cache.Cache;
 import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.ConcurrentCache;
+import com.test.mybatis.cache.TableDependencyRegistry;
 import com.test.mybatis.cache.decorators.BlockingCache;
+import com.test.mybatis.cache.decorators.ImmutableCache;
 import com.test.mybatis.cache.decorators.LoggingCache;
 import com.test.mybatis.cache.decorators.LruCache;
+import com.test.mybatis.cache.decorators.NearCache;
 import com.test.mybatis.cache.decorators.ScheduledCache;
 import com.test.mybatis.cache.decorators.SerializedCache;
 import com.test.mybatis.cache.decorators.SynchronizedCache;
+import com.test.mybatis.cache.decorators.TableDependencyCache;
+import com.test.mybatis.cache.decorators.WeightedCache;
+import com.test.mybatis.cache.impl.ConcurrentPerpetualCache;
 import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
 import com.test.mybatis.reflection.MetaObject;
 import com.test.mybatis.reflection.SystemMetaObject;
 
@@ -24,10 +32,17 @@ public class CacheBuilder {
 	private Class<? extends Cache> implementation;
 	private List<Class<? extends Cache>> decorators;
 	private Integer size;
+	private Long maxBytes;
+	private Integer nearSize;
 	private Long clearInterval;
+	private Long timeToLive;
+	private Long staleTimeToLive;
 	private boolean readWrite;
+	private boolean immutable;
 	private Properties properties;
 	private boolean blocking;
+	private TableDependencyRegistry tableDependencies;
+	private CacheMetrics metrics;
 
 	public CacheBuilder(String id) {
 		this.id = id;
@@ -51,21 +66,56 @@ public class CacheBuilder {
 		return this;
 	}
 
+	public CacheBuilder maxBytes(Long maxBytes) {
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	public CacheBuilder nearSize(Integer nearSize) {
+		this.nearSize = nearSize;
+		return this;
+	}
+
 	public CacheBuilder clearInterval(Long clearInterval) {
 		this.clearInterval = clearInterval;
 		return this;
 	}
 
+	public CacheBuilder timeToLive(Long timeToLive) {
+		this.timeToLive = timeToLive;
+		return this;
+	}
+
+	public CacheBuilder staleTimeToLive(Long staleTimeToLive) {
+		this.staleTimeToLive = staleTimeToLive;
+		return this;
+	}
+
 	public CacheBuilder readWrite(boolean readWrite) {
 		this.readWrite = readWrite;
 		return this;
 	}
 
+	public CacheBuilder immutable(boolean immutable) {
+		this.immutable = immutable;
+		return this;
+	}
+
 	public CacheBuilder blocking(boolean blocking) {
 		this.blocking = blocking;
 		return this;
 	}
 
+	public CacheBuilder tableDependencies(TableDependencyRegistry tableDependencies) {
+		this.tableDependencies = tableDependencies;
+		return this;
+	}
+
+	public CacheBuilder metrics(CacheMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+
 	public CacheBuilder properties(Properties properties) {
 		this.properties = properties;
 		return this;
@@ -75,19 +125,66 @@ public class CacheBuilder {
 		setDefaultImplementations();
 		Cache cache = newBaseCacheInstance(implementation, id);
 		setCacheProperties(cache);
+		setCacheMetrics(cache);
 		// issue #352, do not apply decorators to custom caches
-		if (PerpetualCache.class.equals(cache.getClass())) {
+		if (PerpetualCache.class.equals(cache.getClass()) || ConcurrentPerpetualCache.class.equals(cache.getClass())) {
+			// 只有基础缓存和所有装饰器都是线程安全的，才可以省掉SynchronizedCache
+			boolean concurrent = cache instanceof ConcurrentCache;
+			if (nearSize != null) {
+				// 基础缓存本身就在堆内，前面再放一级L1没有意义
+				throw new CacheException("nearSize is only supported for custom cache types, not for "
+						+ cache.getClass().getSimpleName() + " (cache " + id + ").");
+			}
+			TableDependencyCache dependencies = null;
+			if (tableDependencies != null) {
+				// 最先装饰基础缓存，被淘汰或者过期删除的缓存项都会经过它
+				cache = dependencies = new TableDependencyCache(cache);
+			}
+			if (maxBytes != null) {
+				// 直接装饰基础缓存，这样其他淘汰策略删除的缓存项也会被扣除字节数
+				cache = new WeightedCache(cache);
+				((WeightedCache) cache).setMaxBytes(maxBytes);
+				setCacheProperties(cache);
+				setCacheMetrics(cache);
+				concurrent = false;
+			}
 			for (Class<? extends Cache> decorator : decorators) {
 				cache = newCacheDecoratorInstance(decorator, cache);
 				setCacheProperties(cache);
+				setCacheMetrics(cache);
+				concurrent = concurrent && cache instanceof ConcurrentCache;
+			}
+			cache = setStandardDecorators(cache, concurrent);
+			if (dependencies != null) {
+				// BlockingCache的removeObject只释放锁，按表淘汰要从它里面一层开始删除
+				dependencies.setEntryPoint(cache);
+			}
+			if (blocking) {
+				cache = new BlockingCache(cache);
+				setCacheProperties(cache);
+			}
+			if (dependencies != null) {
+				tableDependencies.register(cache, dependencies);
+			}
+		} else {
+			if (nearSize != null) {
+				// 自定义缓存通常是共享的缓存，本节点的L1放在它前面
+				cache = newNearCache(cache);
+			}
+			if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
+				cache = new LoggingCache(cache);
+				setCacheMetrics(cache);
 			}
-			cache = setStandardDecorators(cache);
-		} else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-			cache = new LoggingCache(cache);
 		}
 		return cache;
 	}
 
+	private NearCache newNearCache(Cache cache) {
+		NearCache nearCache = new NearCache(cache);
+		nearCache.setNearSize(nearSize);
+		return nearCache;
+	}
+
 	private void setDefaultImplementations() {
 		if (implementation == null) {
 			implementation = PerpetualCache.class;
@@ -97,23 +194,32 @@ public class CacheBuilder {
 		}
 	}
 
-	private Cache setStandardDecorators(Cache cache) {
+	private Cache setStandardDecorators(Cache cache, boolean concurrent) {
 		try {
 			MetaObject metaCache = SystemMetaObject.forObject(cache);
 			if (size != null && metaCache.hasSetter("size")) {
 				metaCache.setValue("size", size);
 			}
-			if (clearInterval != null) {
+			if (clearInterval != null && timeToLive == null) {
 				cache = new ScheduledCache(cache);
 				((ScheduledCache) cache).setClearInterval(clearInterval);
+				setCacheMetrics(cache);
 			}
-			if (readWrite) {
+			if (immutable) {
+				// 冻结的结果不需要每次命中都反序列化
+				cache = new ImmutableCache(cache);
+			} else if (readWrite) {
 				cache = new SerializedCache(cache);
+				setCacheProperties(cache);
 			}
 			cache = new LoggingCache(cache);
-			cache = new SynchronizedCache(cache);
-			if (blocking) {
-				cache = new BlockingCache(cache);
+			setCacheMetrics(cache);
+			if (!concurrent) {
+				cache = new SynchronizedCache(cache);
+			}
+			if (timeToLive != null) {
+				// 后台刷新线程要放入新值，所以放在序列化和同步装饰器的外面
+				cache = newExpiringCache(cache);
 			}
 			return cache;
 		} catch (Exception e) {
@@ -121,6 +227,27 @@ public class CacheBuilder {
 		}
 	}
 
+	private ScheduledCache newExpiringCache(Cache cache) {
+		ScheduledCache scheduledCache = new ScheduledCache(cache);
+		scheduledCache.setClearInterval(clearInterval != null ? clearInterval : Long.MAX_VALUE);
+		scheduledCache.setTimeToLive(timeToLive);
+		scheduledCache.setStaleTimeToLive(staleTimeToLive != null ? staleTimeToLive : timeToLive);
+		setCacheMetrics(scheduledCache);
+		return scheduledCache;
+	}
+
+	/*
+	 * 命中率由LoggingCache统计，淘汰个数由有metrics属性的装饰器和基础缓存统计
+	 */
+	private void setCacheMetrics(Cache cache) {
+		if (metrics != null) {
+			MetaObject metaCache = SystemMetaObject.forObject(cache);
+			if (metaCache.hasSetter("metrics") && CacheMetrics.class == metaCache.getSetterType("metrics")) {
+				metaCache.setValue("metrics", metrics);
+			}
+		}
+	}
+
 	private void setCacheProperties(Cache cache) {
 		if (properties != null) {
 			MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -3,8 +3,10 @@ package com.test.mybatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheKey;
 import com.test.mybatis.executor.keygen.Jdbc3KeyGenerator;
 import com.test.mybatis.executor.keygen.KeyGenerator;
 import com.test.mybatis.executor.keygen.NoKeyGenerator;
@@ -12,6 +14,7 @@ import com.test.mybatis.logging.Log;
 import com.test.mybatis.logging.LogFactory;
 import com.test.mybatis.scripting.LanguageDriver;
 import com.test.mybatis.session.Configuration;
+import com.test.mybatis.session.RowBounds;
 
 public final class MappedStatement {
 
@@ -39,6 +42,31 @@ public final class MappedStatement {
 	private LanguageDriver lang;
 	private String[] resultSets;
 
+	/**
+	 * 声明的读取(select)或者修改(insert/update/delete)的表，为null时从sql中解析
+	 */
+	private Set<String> tables;
+
+	/**
+	 * 批量执行时必须在这些语句之后执行的语句id，比如子表的insert依赖父表的insert，为null表示没有声明
+	 */
+	private Set<String> batchDependsOn;
+
+	/**
+	 * 批量执行时可以改写成多行的insert
+	 */
+	private boolean batchRewrite;
+
+	/**
+	 * 最近一次解析的sql和表，静态sql只需要解析一次
+	 */
+	private volatile TablesOfSql lastTables;
+
+	/**
+	 * 不分页查询时CacheKey开头的id、offset和limit，第一次查询时创建
+	 */
+	private volatile CacheKey cacheKeyPrefix;
+
 	MappedStatement() {
 		// constructor disabled
 	}
@@ -169,6 +197,22 @@ public final class MappedStatement {
 			return this;
 		}
 
+		public Builder tables(String tables) {
+			mappedStatement.tables = SqlTables.parse(tables);
+			return this;
+		}
+
+		public Builder batchDependsOn(Set<String> batchDependsOn) {
+			mappedStatement.batchDependsOn = batchDependsOn == null ? null
+					: Collections.unmodifiableSet(batchDependsOn);
+			return this;
+		}
+
+		public Builder batchRewrite(boolean batchRewrite) {
+			mappedStatement.batchRewrite = batchRewrite;
+			return this;
+		}
+
 		public MappedStatement build() {
 			assert mappedStatement.configuration != null;
 			assert mappedStatement.id != null;
@@ -279,6 +323,75 @@ public final class MappedStatement {
 		return resultSets;
 	}
 
+	/**
+	 * 
+	 * 语句读取(select)或者修改(其他语句)的表，二级缓存按表淘汰时使用
+	 * 
+	 * @return The declared tables, else the tables found in the sql, or null if
+	 *         they cannot be determined
+	 */
+	public Set<String> getTables(BoundSql boundSql) {
+		if (tables != null) {
+			return tables;
+		}
+		String sql = boundSql.getSql();
+		TablesOfSql last = lastTables;
+		if (last != null && last.sql.equals(sql)) {
+			return last.tables;
+		}
+		Set<String> found = sqlCommandType == SqlCommandType.SELECT ? SqlTables.readTables(sql)
+				: SqlTables.writeTables(sql);
+		lastTables = new TablesOfSql(sql, found);
+		return found;
+	}
+
+	/**
+	 * 
+	 * 批量执行时这个语句必须排在后面的语句id
+	 * 
+	 */
+	public Set<String> getBatchDependsOn() {
+		return batchDependsOn == null ? Collections.<String>emptySet() : batchDependsOn;
+	}
+
+	/**
+	 * 
+	 * 是否声明了batchDependsOn(可以为空)，只有声明了依赖的语句才可以在批量执行时调整顺序
+	 * 
+	 */
+	public boolean isBatchDependsOnDeclared() {
+		return batchDependsOn != null;
+	}
+
+	public boolean isBatchRewrite() {
+		return batchRewrite;
+	}
+
+	/**
+	 * 
+	 * CacheKey开头的部分：语句id、offset和limit，返回的对象不能修改
+	 * 
+	 */
+	public CacheKey getCacheKeyPrefix(RowBounds rowBounds) {
+		if (rowBounds != RowBounds.DEFAULT) {
+			return newCacheKeyPrefix(rowBounds);
+		}
+		CacheKey prefix = cacheKeyPrefix;
+		if (prefix == null) {
+			prefix = newCacheKeyPrefix(rowBounds);
+			cacheKeyPrefix = prefix;
+		}
+		return prefix;
+	}
+
+	private CacheKey newCacheKeyPrefix(RowBounds rowBounds) {
+		CacheKey prefix = new CacheKey(3);
+		prefix.update(id);
+		prefix.update(rowBounds.getOffset());
+		prefix.update(rowBounds.getLimit());
+		return prefix;
+	}
+
 	public BoundSql getBoundSql(Object parameterObject) {
 		BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
 		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
@@ -308,4 +421,15 @@ public final class MappedStatement {
 			return in.split(",");
 		}
 	}
+
+	private static final class TablesOfSql {
+
+		final String sql;
+		final Set<String> tables;
+
+		TablesOfSql(String sql, Set<String> tables) {
+			this.sql = sql;
+			this.tables = tables;
+		}
+	}
 }
@@ -0,0 +1,277 @@
+package com.test.mybatis.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ *
+ * 从sql语句中找出读取和修改的表，用于按表淘汰二级缓存
+ * <p>
+ * This is a lightweight scan, not a SQL parser: tables are the names that
+ * follow FROM and JOIN for queries, and the target of INSERT, UPDATE, DELETE,
+ * MERGE, REPLACE and TRUNCATE for writes. Names are lower-cased with quotes and
+ * schema removed. Whenever the statement is not understood {@code null} is
+ * returned, and callers must then assume it may touch any table.
+ *
+ * @author ethan
+ *
+ */
+public final class SqlTables {
+
+	/**
+	 * 表名后面出现这些词时不是别名
+	 */
+	private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("WHERE", "ON", "USING", "JOIN", "INNER",
+			"LEFT", "RIGHT", "FULL", "CROSS", "OUTER", "NATURAL", "STRAIGHT_JOIN", "GROUP", "ORDER", "HAVING", "LIMIT",
+			"OFFSET", "UNION", "INTERSECT", "EXCEPT", "MINUS", "FOR", "WINDOW", "SET", "VALUES", "SELECT", "FETCH",
+			"CONNECT", "START", "WITH", "RETURNING", "INTO", "AS", "FROM", "LATERAL", "ONLY", "DEFAULT"));
+
+	private SqlTables() {
+		// Prevent Instantiation of Static Class
+	}
+
+	/**
+	 * 查询语句读取的表
+	 *
+	 * @return The tables, or null if sql is not a query this class understands
+	 */
+	public static Set<String> readTables(String sql) {
+		List<String> tokens = tokenize(sql);
+		if (tokens.isEmpty()) {
+			return null;
+		}
+		String first = upper(tokens.get(0));
+		if (!"SELECT".equals(first) && !"WITH".equals(first) && !"(".equals(first)) {
+			// 存储过程等无法确定
+			return null;
+		}
+		Set<String> tables = new LinkedHashSet<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			String token = upper(tokens.get(i));
+			if ("FROM".equals(token) || "JOIN".equals(token)) {
+				readTableList(tokens, i + 1, tables);
+			}
+		}
+		return Collections.unmodifiableSet(tables);
+	}
+
+	/**
+	 * insert/update/delete语句修改的表，多条语句时合并
+	 *
+	 * @return The tables, or null if any statement in sql is not understood
+	 */
+	public static Set<String> writeTables(String sql) {
+		List<String> tokens = tokenize(sql);
+		Set<String> tables = new LinkedHashSet<>();
+		int start = 0;
+		for (int i = 0; i <= tokens.size(); i++) {
+			if (i == tokens.size() || ";".equals(tokens.get(i))) {
+				if (i > start && !writeTables(tokens.subList(start, i), tables)) {
+					return null;
+				}
+				start = i + 1;
+			}
+		}
+		return tables.isEmpty() ? null : Collections.unmodifiableSet(tables);
+	}
+
+	/**
+	 * 规范化声明的表名，以逗号分隔
+	 */
+	public static Set<String> parse(String tables) {
+		if (tables == null || tables.trim().isEmpty()) {
+			return null;
+		}
+		Set<String> names = new LinkedHashSet<>();
+		for (String table : tables.split(",")) {
+			if (!table.trim().isEmpty()) {
+				names.add(normalize(table.trim()));
+			}
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	private static boolean writeTables(List<String> tokens, Set<String> tables) {
+		String first = upper(tokens.get(0));
+		int i = 1;
+		switch (first) {
+		case "INSERT":
+		case "REPLACE":
+		case "UPSERT":
+			i = skip(tokens, i, "IGNORE", "LOW_PRIORITY", "DELAYED", "HIGH_PRIORITY");
+			i = skip(tokens, i, "INTO");
+			return addTable(tokens, i, tables);
+		case "MERGE":
+			i = skip(tokens, i, "INTO");
+			return addTable(tokens, i, tables);
+		case "TRUNCATE":
+			i = skip(tokens, i, "TABLE");
+			return addTable(tokens, i, tables);
+		case "DELETE":
+			i = skip(tokens, i, "LOW_PRIORITY", "QUICK", "IGNORE");
+			i = skip(tokens, i, "FROM");
+			return addTable(tokens, i, tables);
+		case "UPDATE":
+			i = skip(tokens, i, "LOW_PRIORITY", "IGNORE");
+			// update a, b set ... 或者 update a join b on ... set ...
+			int before = tables.size();
+			readTableList(tokens, i, tables);
+			for (; i < tokens.size() && !"SET".equals(upper(tokens.get(i))); i++) {
+				if ("JOIN".equals(upper(tokens.get(i)))) {
+					readTableList(tokens, i + 1, tables);
+				}
+			}
+			return tables.size() > before;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean addTable(List<String> tokens, int i, Set<String> tables) {
+		if (i < tokens.size() && isName(tokens.get(i))) {
+			tables.add(normalize(tokens.get(i)));
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * 读取 "name [AS] [alias], ..." 形式的表列表，派生表和表函数的括号整体跳过
+	 */
+	private static void readTableList(List<String> tokens, int i, Set<String> tables) {
+		for (;;) {
+			i = skip(tokens, i, "ONLY", "LATERAL");
+			if (i >= tokens.size()) {
+				return;
+			}
+			String token = tokens.get(i);
+			if ("(".equals(token)) {
+				i = skipParentheses(tokens, i);
+			} else if (isName(token)) {
+				tables.add(normalize(token));
+				i++;
+				if (i < tokens.size() && "(".equals(tokens.get(i))) {
+					i = skipParentheses(tokens, i);
+				}
+			} else {
+				return;
+			}
+			i = skip(tokens, i, "AS");
+			if (i < tokens.size() && isName(tokens.get(i))) {
+				i++;
+			}
+			if (i >= tokens.size() || !",".equals(tokens.get(i))) {
+				return;
+			}
+			i++;
+		}
+	}
+
+	private static int skipParentheses(List<String> tokens, int i) {
+		int depth = 0;
+		for (; i < tokens.size(); i++) {
+			String token = tokens.get(i);
+			if ("(".equals(token)) {
+				depth++;
+			} else if (")".equals(token) && --depth == 0) {
+				return i + 1;
+			}
+		}
+		return i;
+	}
+
+	private static int skip(List<String> tokens, int i, String... words) {
+		while (i < tokens.size() && Arrays.asList(words).contains(upper(tokens.get(i)))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isName(String token) {
+		char c = token.charAt(0);
+		return (Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[')
+				&& !KEYWORDS.contains(upper(token));
+	}
+
+	private static String normalize(String name) {
+		StringBuilder builder = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c == '.') {
+				// 去掉schema
+				builder.setLength(0);
+			} else if (c != '"' && c != '`' && c != '[' && c != ']') {
+				builder.append(c);
+			}
+		}
+		return builder.toString().toLowerCase(Locale.ENGLISH);
+	}
+
+	private static String upper(String token) {
+		return token.toUpperCase(Locale.ENGLISH);
+	}
+
+	/*
+	 * 拆分成名称和符号，去掉注释，字符串常量替换成 '
+	 */
+	private static List<String> tokenize(String sql) {
+		List<String> tokens = new ArrayList<>();
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				while (i < length && sql.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 2;
+			} else if (c == '\'') {
+				i++;
+				while (i < length) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++;
+				tokens.add("'");
+			} else if (isNamePart(c) || c == '"' || c == '`' || c == '[') {
+				int start = i;
+				while (i < length) {
+					char d = sql.charAt(i);
+					if (d == '"' || d == '`' || d == '[') {
+						int end = sql.indexOf(d == '[' ? ']' : d, i + 1);
+						i = end < 0 ? length : end + 1;
+					} else if (isNamePart(d) || d == '.') {
+						i++;
+					} else {
+						break;
+					}
+				}
+				tokens.add(sql.substring(start, i));
+			} else {
+				tokens.add(String.valueOf(c));
+				i++;
+			}
+		}
+		return tokens;
+	}
+
+	private static boolean isNamePart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+}
@@ -41,6 +41,14 @@ public class DefaultParameterHandler implements ParameterHandler {
 
 	@Override
 	public void setParameters(PreparedStatement ps) {
+		setParameters(ps, 0);
+	}
+
+	/*
+	 * Sets the parameters after the first offset ones, used when the values of
+	 * several rows are bound to one multi-row insert
+	 */
+	public void setParameters(PreparedStatement ps, int offset) {
 		ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
 		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
 		if (parameterMappings != null) {
@@ -65,7 +73,7 @@ public class DefaultParameterHandler implements ParameterHandler {
 						jdbcType = configuration.getJdbcTypeForNull();
 					}
 					try {
-						typeHandler.setParameter(ps, i + 1, value, jdbcType);
+						typeHandler.setParameter(ps, offset + i + 1, value, jdbcType);
 					} catch (TypeException | SQLException e) {
 						throw new TypeException(
 								"Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
@@ -10,6 +10,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 import com.test.mybatis.binding.MapperRegistry;
@@ -19,12 +24,24 @@ import com.test.mybatis.builder.ResultMapResolver;
 import com.test.mybatis.builder.annotation.MethodResolver;
 import com.test.mybatis.builder.xml.XMLStatementBuilder;
 import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.TableDependencyRegistry;
+import com.test.mybatis.cache.cluster.CacheInvalidationBus;
+import com.test.mybatis.cache.cluster.CacheInvalidationTransport;
+import com.test.mybatis.cache.cluster.LoopbackTransport;
+import com.test.mybatis.cache.cluster.UdpTransport;
 import com.test.mybatis.cache.decorators.FifoCache;
 import com.test.mybatis.cache.decorators.LruCache;
 import com.test.mybatis.cache.decorators.SoftCache;
+import com.test.mybatis.cache.decorators.TinyLfuCache;
 import com.test.mybatis.cache.decorators.WeakCache;
+import com.test.mybatis.cache.impl.ConcurrentPerpetualCache;
+import com.test.mybatis.cache.impl.OffHeapCache;
 import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.cache.metrics.CacheMetrics;
+import com.test.mybatis.cache.metrics.CacheMetricsFactory;
+import com.test.mybatis.cache.metrics.CacheMetricsRegistry;
 import com.test.mybatis.datasource.jndi.JndiDataSourceFactory;
+import com.test.mybatis.datasource.pooled.PooledDataSource;
 import com.test.mybatis.datasource.pooled.PooledDataSourceFactory;
 import com.test.mybatis.datasource.unpooled.UnpooledDataSourceFactory;
 import com.test.mybatis.executor.BatchExecutor;
@@ -92,6 +109,15 @@ public class Configuration {
 	protected boolean useGeneratedKeys;
 	protected boolean useColumnLabel = true;
 	protected boolean cacheEnabled = true;
+	protected boolean tableCacheInvalidation;
+	protected boolean batchReordering;
+	protected Integer batchFlushRows;
+	protected Long batchFlushBytes;
+	protected Integer batchFlushStatements;
+	protected Integer batchRewriteChunkSize;
+	protected int batchRewriteMaxParameters = 65535;
+	protected volatile java.util.concurrent.Executor asyncExecutor;
+	protected boolean cacheMetricsEnabled;
 	protected boolean callSettersOnNulls;
 	protected boolean useActualParamName = true;
 	protected boolean returnInstanceForEmptyRow;
@@ -100,6 +126,9 @@ public class Configuration {
 	protected Class<? extends Log> logImpl;
 	protected Class<? extends VFS> vfsImpl;
 	protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+	protected Integer localCacheSize;
+	protected Long localCacheMaxBytes;
+	protected Integer cursorCacheMaxRows;
 	protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
 	protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
 	protected Integer defaultStatementTimeout;
@@ -145,6 +174,9 @@ public class Configuration {
 					.conflictMessageProducer((savedValue, targetValue) -> ". please check " + savedValue.getResource()
 							+ " and " + targetValue.getResource());
 	protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+	protected final TableDependencyRegistry tableDependencyRegistry = new TableDependencyRegistry();
+	protected CacheInvalidationBus cacheInvalidationBus;
+	protected final CacheMetricsRegistry cacheMetricsRegistry = new CacheMetricsRegistry();
 	protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
 	protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
 	protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
@@ -180,10 +212,16 @@ public class Configuration {
 		typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
 		typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+		typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentPerpetualCache.class);
+		typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
 		typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
 		typeAliasRegistry.registerAlias("LRU", LruCache.class);
 		typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
 		typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+		typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+
+		typeAliasRegistry.registerAlias("LOOPBACK", LoopbackTransport.class);
+		typeAliasRegistry.registerAlias("UDP", UdpTransport.class);
 
 		typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -407,6 +445,211 @@ public class Configuration {
 		this.cacheEnabled = cacheEnabled;
 	}
 
+	public boolean isTableCacheInvalidation() {
+		return tableCacheInvalidation;
+	}
+
+	/**
+	 * 
+	 * 为true时，insert/update/delete只淘汰所有二级缓存中依赖被修改的表的缓存项，而不是清空所在namespace的缓存
+	 * 
+	 */
+	public void setTableCacheInvalidation(boolean tableCacheInvalidation) {
+		this.tableCacheInvalidation = tableCacheInvalidation;
+	}
+
+	public TableDependencyRegistry getTableDependencyRegistry() {
+		return tableDependencyRegistry;
+	}
+
+	public CacheInvalidationBus getCacheInvalidationBus() {
+		return cacheInvalidationBus;
+	}
+
+	/**
+	 * 
+	 * 设置之后，事务提交时把二级缓存的失效广播给使用同一transport的其他节点，为null时关闭
+	 * 
+	 */
+	public void setCacheInvalidationTransport(CacheInvalidationTransport transport) {
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.close();
+		}
+		cacheInvalidationBus = transport == null ? null : new CacheInvalidationBus(this, transport);
+	}
+
+	public boolean isCacheMetricsEnabled() {
+		return cacheMetricsEnabled;
+	}
+
+	/**
+	 * 
+	 * 为true时统计二级缓存和一级缓存的命中、放入、淘汰和加载耗时，通过getCacheMetricsRegistry()读取
+	 * 
+	 */
+	public void setCacheMetricsEnabled(boolean cacheMetricsEnabled) {
+		this.cacheMetricsEnabled = cacheMetricsEnabled;
+	}
+
+	/**
+	 * 
+	 * 把统计数据交给其他监控系统，为null时使用DefaultCacheMetrics
+	 * 
+	 */
+	public void setCacheMetricsFactory(CacheMetricsFactory cacheMetricsFactory) {
+		if (cacheMetricsFactory != null) {
+			cacheMetricsRegistry.setFactory(cacheMetricsFactory);
+		}
+	}
+
+	public CacheMetricsRegistry getCacheMetricsRegistry() {
+		return cacheMetricsRegistry;
+	}
+
+	public CacheMetrics getCacheMetrics(String cacheId) {
+		return cacheMetricsEnabled ? cacheMetricsRegistry.getMetrics(cacheId) : CacheMetrics.NONE;
+	}
+
+	public Integer getCursorCacheMaxRows() {
+		return cursorCacheMaxRows;
+	}
+
+	/**
+	 * 
+	 * 大于0时selectCursor也使用二级缓存：遍历时收集每一行，完整遍历之后放入缓存，超过这个行数的结果不缓存。
+	 * 为null时Cursor查询不使用二级缓存
+	 * 
+	 */
+	public void setCursorCacheMaxRows(Integer cursorCacheMaxRows) {
+		this.cursorCacheMaxRows = cursorCacheMaxRows;
+	}
+
+	public boolean isBatchReordering() {
+		return batchReordering;
+	}
+
+	/**
+	 * 
+	 * 为true时BatchExecutor为每个不同的sql保持一个打开的批次，交替执行的语句(比如父表和子表的insert)
+	 * 也能合并成完整的批次。只有在不改变结果的情况下才会把语句提前：如果它修改的表和后面的批次相同、
+	 * 表无法确定，或者它声明了依赖(batchDependsOn)后面批次的语句，就开始一个新的批次。
+	 * 外键依赖无法从sql中看出，所以只有两个语句都声明了batchDependsOn(没有依赖时声明为空)才会调整它们的顺序
+	 * 
+	 */
+	public void setBatchReordering(boolean batchReordering) {
+		this.batchReordering = batchReordering;
+	}
+
+	public Integer getBatchFlushRows() {
+		return batchFlushRows;
+	}
+
+	/**
+	 * 
+	 * 一个批次的行数达到这个值时BatchExecutor自动执行所有批次，为null时只在flushStatements时执行。
+	 * 自动执行的批次不保留参数对象，同一语句的结果合并成一个，updateCounts只有一个元素，是影响行数之和
+	 * 
+	 */
+	public void setBatchFlushRows(Integer batchFlushRows) {
+		this.batchFlushRows = batchFlushRows;
+	}
+
+	public Long getBatchFlushBytes() {
+		return batchFlushBytes;
+	}
+
+	/**
+	 * 
+	 * 未执行的批次中参数的估算大小(字节)达到这个值时自动执行
+	 * 
+	 */
+	public void setBatchFlushBytes(Long batchFlushBytes) {
+		this.batchFlushBytes = batchFlushBytes;
+	}
+
+	public Integer getBatchFlushStatements() {
+		return batchFlushStatements;
+	}
+
+	/**
+	 * 
+	 * 打开的Statement(批次)个数达到这个值时自动执行
+	 * 
+	 */
+	public void setBatchFlushStatements(Integer batchFlushStatements) {
+		this.batchFlushStatements = batchFlushStatements;
+	}
+
+	public Integer getBatchRewriteChunkSize() {
+		return batchRewriteChunkSize;
+	}
+
+	/**
+	 * 
+	 * 大于1时BatchExecutor把声明了batchRewrite的insert改写成多行的INSERT ... VALUES (...),(...)，
+	 * 每条语句最多包含这么多行。为null时使用JDBC的addBatch
+	 * 
+	 */
+	public void setBatchRewriteChunkSize(Integer batchRewriteChunkSize) {
+		this.batchRewriteChunkSize = batchRewriteChunkSize;
+	}
+
+	public int getBatchRewriteMaxParameters() {
+		return batchRewriteMaxParameters;
+	}
+
+	/**
+	 * 
+	 * 改写成的多行insert最多包含的参数个数，驱动一般限制为65535(比如PostgreSQL和MySQL)，
+	 * 超过时减少每条语句的行数
+	 * 
+	 */
+	public void setBatchRewriteMaxParameters(int batchRewriteMaxParameters) {
+		this.batchRewriteMaxParameters = batchRewriteMaxParameters;
+	}
+
+	/**
+	 * 
+	 * 执行SqlSession异步查询的线程池，没有设置时使用一个守护线程的线程池，
+	 * 线程数不超过连接池的poolMaximumActiveConnections(不是PooledDataSource时为CPU个数)，
+	 * 多出的任务排队等待，而不是创建更多线程去等连接
+	 * 
+	 */
+	public java.util.concurrent.Executor getAsyncExecutor() {
+		java.util.concurrent.Executor executor = asyncExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				executor = asyncExecutor;
+				if (executor == null) {
+					executor = newAsyncExecutor();
+					asyncExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	private ExecutorService newAsyncExecutor() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+			threads = ((PooledDataSource) environment.getDataSource()).getPoolMaximumActiveConnections();
+		}
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), r -> {
+					Thread thread = new Thread(r, "mybatis-async-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		// 空闲的线程会退出，不用时不占线程
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	public Integer getDefaultStatementTimeout() {
 		return defaultStatementTimeout;
 	}
@@ -459,6 +702,32 @@ public class Configuration {
 		this.localCacheScope = localCacheScope;
 	}
 
+	public Integer getLocalCacheSize() {
+		return localCacheSize;
+	}
+
+	/**
+	 * 
+	 * 每个会话的一级缓存最多保留的查询结果个数，为null时不限制
+	 * 
+	 */
+	public void setLocalCacheSize(Integer localCacheSize) {
+		this.localCacheSize = localCacheSize;
+	}
+
+	public Long getLocalCacheMaxBytes() {
+		return localCacheMaxBytes;
+	}
+
+	/**
+	 * 
+	 * 每个会话的一级缓存中查询结果的估算字节数上限(每行按256字节估算)，为null时不限制
+	 * 
+	 */
+	public void setLocalCacheMaxBytes(Long localCacheMaxBytes) {
+		this.localCacheMaxBytes = localCacheMaxBytes;
+	}
+
 	public JdbcType getJdbcTypeForNull() {
 		return jdbcTypeForNull;
 	}
@@ -612,7 +881,7 @@ public class Configuration {
 			executor = new SimpleExecutor(this, transaction);
 		}
 		if (cacheEnabled) {
-			executor = new CachingExecutor(executor);
+			executor = new CachingExecutor(executor, cacheInvalidationBus);
 		}
 		executor = (Executor) interceptorChain.pluginAll(executor);
 		return executor;
@@ -640,6 +909,9 @@ public class Configuration {
 
 	public void addCache(Cache cache) {
 		caches.put(cache.getId(), cache);
+		if (cacheMetricsEnabled) {
+			cacheMetricsRegistry.register(cache);
+		}
 	}
 
 	public Collection<String> getCacheNames() {
@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import com.test.mybatis.cursor.Cursor;
 import com.test.mybatis.executor.BatchResult;
@@ -133,6 +135,65 @@ public interface SqlSession extends Closeable {
 	 */
 	<T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+	/**
+	 * Runs the action on the configured async executor with a new session. The
+	 * new session takes its own connection from the DataSource, runs in
+	 * auto-commit mode and is closed when the action returns, so it does not see
+	 * uncommitted changes made through this session.
+	 * 
+	 * @param <T>    the result type
+	 * @param action the work to do with the new session
+	 * @return a future completed with the result of the action
+	 */
+	<T> CompletableFuture<T> executeAsync(Function<SqlSession, T> action);
+
+	/**
+	 * Asynchronous {@link #selectOne(String, Object)}, see
+	 * {@link #executeAsync(Function)}.
+	 * 
+	 * @param <T>       the returned object type
+	 * @param statement Unique identifier matching the statement to use.
+	 * @param parameter A parameter object to pass to the statement.
+	 * @return a future completed with the mapped object
+	 */
+	<T> CompletableFuture<T> selectOneAsync(String statement, Object parameter);
+
+	/**
+	 * Asynchronous {@link #selectList(String, Object)}, see
+	 * {@link #executeAsync(Function)}.
+	 * 
+	 * @param <E>       the returned list element type
+	 * @param statement Unique identifier matching the statement to use.
+	 * @param parameter A parameter object to pass to the statement.
+	 * @return a future completed with the list of mapped objects
+	 */
+	<E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter);
+
+	/**
+	 * Asynchronous {@link #selectList(String, Object, RowBounds)}, see
+	 * {@link #executeAsync(Function)}.
+	 * 
+	 * @param <E>       the returned list element type
+	 * @param statement Unique identifier matching the statement to use.
+	 * @param parameter A parameter object to pass to the statement.
+	 * @param rowBounds Bounds to limit object retrieval
+	 * @return a future completed with the list of mapped objects
+	 */
+	<E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter, RowBounds rowBounds);
+
+	/**
+	 * Asynchronous {@link #selectMap(String, Object, String)}, see
+	 * {@link #executeAsync(Function)}.
+	 * 
+	 * @param <K>       the returned Map keys type
+	 * @param <V>       the returned Map values type
+	 * @param statement Unique identifier matching the statement to use.
+	 * @param parameter A parameter object to pass to the statement.
+	 * @param mapKey    The property to use as key for each value in the list.
+	 * @return a future completed with the Map of mapped objects
+	 */
+	<K, V> CompletableFuture<Map<K, V>> selectMapAsync(String statement, Object parameter, String mapKey);
+
 	/**
 	 * Retrieve a single row mapped from the statement key and parameter using a
 	 * {@code ResultHandler}.
@@ -6,8 +6,10 @@ import java.io.Reader;
 import java.util.Properties;
 
 import com.test.mybatis.builder.xml.XMLConfigBuilder;
+import com.test.mybatis.datasource.pooled.PooledDataSource;
 import com.test.mybatis.exceptions.ExceptionFactory;
 import com.test.mybatis.executor.ErrorContext;
+import com.test.mybatis.mapping.Environment;
 import com.test.mybatis.session.defaults.DefaultSqlSessionFactory;
 
 public class SqlSessionFactoryBuilder {
@@ -71,7 +73,13 @@ public class SqlSessionFactoryBuilder {
 	}
 
 	public SqlSessionFactory build(Configuration config) {
-		return new DefaultSqlSessionFactory(config);
+		SqlSessionFactory sqlSessionFactory = new DefaultSqlSessionFactory(config);
+		// <dataSource>中配置了poolWarmUpConnections时，提前建立连接
+		Environment environment = config.getEnvironment();
+		if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+			((PooledDataSource) environment.getDataSource()).warmUp();
+		}
+		return sqlSessionFactory;
 	}
 
 }
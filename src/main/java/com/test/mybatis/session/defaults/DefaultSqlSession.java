@@ -8,6 +8,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import com.test.mybatis.binding.BindingException;
 import com.test.mybatis.cursor.Cursor;
@@ -23,6 +25,7 @@ import com.test.mybatis.session.Configuration;
 import com.test.mybatis.session.ResultHandler;
 import com.test.mybatis.session.RowBounds;
 import com.test.mybatis.session.SqlSession;
+import com.test.mybatis.session.SqlSessionFactory;
 
 public class DefaultSqlSession implements SqlSession {
 
@@ -111,6 +114,37 @@ public class DefaultSqlSession implements SqlSession {
 		}
 	}
 
+	@Override
+	public <T> CompletableFuture<T> executeAsync(Function<SqlSession, T> action) {
+		SqlSessionFactory sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
+		return CompletableFuture.supplyAsync(() -> {
+			// 每个异步任务使用自己的连接，自动提交，不需要commit/rollback
+			try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+				return action.apply(sqlSession);
+			}
+		}, configuration.getAsyncExecutor());
+	}
+
+	@Override
+	public <T> CompletableFuture<T> selectOneAsync(String statement, Object parameter) {
+		return executeAsync(sqlSession -> sqlSession.selectOne(statement, parameter));
+	}
+
+	@Override
+	public <E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter) {
+		return executeAsync(sqlSession -> sqlSession.selectList(statement, parameter));
+	}
+
+	@Override
+	public <E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter, RowBounds rowBounds) {
+		return executeAsync(sqlSession -> sqlSession.selectList(statement, parameter, rowBounds));
+	}
+
+	@Override
+	public <K, V> CompletableFuture<Map<K, V>> selectMapAsync(String statement, Object parameter, String mapKey) {
+		return executeAsync(sqlSession -> sqlSession.selectMap(statement, parameter, mapKey));
+	}
+
 	@Override
 	public <E> List<E> selectList(String statement) {
 		return this.selectList(statement, null);
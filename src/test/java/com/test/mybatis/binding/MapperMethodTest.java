@@ -0,0 +1,211 @@
+package com.test.mybatis.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import com.test.mybatis.annotations.MapKey;
+import com.test.mybatis.binding.MapperMethod.MethodSignature;
+import com.test.mybatis.builder.MapperBuilderAssistant;
+import com.test.mybatis.builder.StaticSqlSource;
+import com.test.mybatis.datasource.pooled.PooledDataSource;
+import com.test.mybatis.executor.keygen.NoKeyGenerator;
+import com.test.mybatis.mapping.Environment;
+import com.test.mybatis.mapping.ParameterMapping;
+import com.test.mybatis.mapping.SqlCommandType;
+import com.test.mybatis.mapping.StatementType;
+import com.test.mybatis.session.Configuration;
+import com.test.mybatis.session.SqlSession;
+import com.test.mybatis.session.defaults.DefaultSqlSessionFactory;
+import com.test.mybatis.transaction.jdbc.JdbcTransactionFactory;
+
+public class MapperMethodTest {
+
+	public interface AsyncMapper {
+
+		CompletableFuture<List<String>> selectNames();
+
+		CompletableFuture<String> selectName(int id);
+
+		@MapKey("id")
+		CompletableFuture<Map<Integer, String>> selectNameMap();
+
+		List<String> selectNamesNow();
+	}
+
+	@Test
+	public void test1() throws Exception {
+		Configuration configuration = new Configuration();
+		MethodSignature many = new MethodSignature(configuration, AsyncMapper.class,
+				AsyncMapper.class.getMethod("selectNames"));
+		assertTrue(many.returnsFuture());
+		assertTrue(many.returnsMany());
+		assertEquals(List.class, many.getReturnType());
+
+		// 按CompletableFuture的类型参数查询
+		MethodSignature one = new MethodSignature(configuration, AsyncMapper.class,
+				AsyncMapper.class.getMethod("selectName", int.class));
+		assertTrue(one.returnsFuture());
+		assertFalse(one.returnsMany());
+		assertEquals(String.class, one.getReturnType());
+
+		MethodSignature map = new MethodSignature(configuration, AsyncMapper.class,
+				AsyncMapper.class.getMethod("selectNameMap"));
+		assertTrue(map.returnsMap());
+		assertEquals("id", map.getMapKey());
+
+		MethodSignature now = new MethodSignature(configuration, AsyncMapper.class,
+				AsyncMapper.class.getMethod("selectNamesNow"));
+		assertFalse(now.returnsFuture());
+		assertTrue(now.returnsMany());
+	}
+
+	/**
+	 * 每次取连接时记录所在的线程，查询返回一行name
+	 */
+	private static DataSource newDataSource(List<String> threads) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+					if ("getConnection".equals(method.getName())) {
+						threads.add(Thread.currentThread().getName());
+						return newConnection();
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	private static Connection newConnection() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if ("prepareStatement".equals(method.getName())) {
+						return newStatement();
+					} else if ("getAutoCommit".equals(method.getName())) {
+						return true;
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	private static PreparedStatement newStatement() {
+		ResultSet resultSet = newResultSet();
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "execute":
+						return true;
+					case "getResultSet":
+						return resultSet;
+					case "getUpdateCount":
+						return -1;
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static ResultSet newResultSet() {
+		ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+				ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getColumnCount":
+						return 1;
+					case "getColumnType":
+						return Types.VARCHAR;
+					case "getColumnLabel":
+					case "getColumnName":
+						return "name";
+					case "getColumnClassName":
+						return String.class.getName();
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+		int[] rows = { 1 };
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getMetaData":
+						return metaData;
+					case "next":
+						return rows[0]-- > 0;
+					case "getString":
+						return "ethan";
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == int.class) {
+			return 0;
+		} else if (type == boolean.class) {
+			return false;
+		}
+		return null;
+	}
+
+	/**
+	 * 异步的mapper方法在异步线程池中用新的会话执行，返回的future完成时带着查询结果
+	 */
+	@Test
+	public void test2() throws Exception {
+		List<String> threads = Collections.synchronizedList(new ArrayList<>());
+		Configuration configuration = new Configuration(
+				new Environment("test", new JdbcTransactionFactory(), newDataSource(threads)));
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "MapperMethodTest");
+		assistant.setCurrentNamespace(AsyncMapper.class.getName());
+		List<ParameterMapping> parameterMappings = Collections
+				.singletonList(new ParameterMapping.Builder(configuration, "id", Integer.class).build());
+		assistant.addMappedStatement("selectName",
+				new StaticSqlSource(configuration, "select name from author where id = ?", parameterMappings),
+				StatementType.PREPARED, SqlCommandType.SELECT, null, null, null, Integer.class, null, String.class,
+				null, false, false, false, NoKeyGenerator.INSTANCE, null, null, null,
+				configuration.getDefaultScriptingLanguageInstance(), null);
+		MapperMethod mapperMethod = new MapperMethod(AsyncMapper.class,
+				AsyncMapper.class.getMethod("selectName", int.class), configuration);
+
+		try (SqlSession sqlSession = new DefaultSqlSessionFactory(configuration).openSession()) {
+			CompletableFuture<?> future = (CompletableFuture<?>) mapperMethod.execute(sqlSession, new Object[] { 1 });
+			assertEquals("ethan", future.get(10, TimeUnit.SECONDS));
+			// 调用者的会话没有取连接，查询用的连接是异步线程中的新会话取的
+			assertEquals(1, threads.size());
+			assertTrue(threads.get(0).startsWith("mybatis-async-"));
+			assertNotSame(sqlSession, sqlSession.executeAsync(asyncSession -> asyncSession).get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	/**
+	 * 默认的异步线程池不超过连接池的最大活动连接数
+	 */
+	@Test
+	public void test3() {
+		PooledDataSource dataSource = new PooledDataSource();
+		dataSource.setPoolMaximumActiveConnections(3);
+		Configuration configuration = new Configuration(
+				new Environment("test", new JdbcTransactionFactory(), dataSource));
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) configuration.getAsyncExecutor();
+		assertEquals(3, executor.getMaximumPoolSize());
+		assertTrue(executor.allowsCoreThreadTimeOut());
+	}
+}
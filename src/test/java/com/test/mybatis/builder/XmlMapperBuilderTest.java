@@ -0,0 +1,105 @@
+package com.test.mybatis.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.test.mybatis.builder.xml.XMLMapperBuilder;
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.impl.OffHeapCache;
+import com.test.mybatis.cache.decorators.ImmutableCache;
+import com.test.mybatis.cache.decorators.NearCache;
+import com.test.mybatis.cache.decorators.ScheduledCache;
+import com.test.mybatis.cache.decorators.WeightedCache;
+import com.test.mybatis.io.Resources;
+import com.test.mybatis.mapping.MappedStatement;
+import com.test.mybatis.session.Configuration;
+
+public class XmlMapperBuilderTest {
+
+	private static final String NAMESPACE = "com.test.mybatis.builder.CacheMapper";
+
+	private static Configuration parse() throws Exception {
+		return parse("com/test/mybatis/builder/CacheMapper.xml");
+	}
+
+	private static Configuration parse(String resource) throws Exception {
+		Configuration configuration = new Configuration();
+		try (InputStream in = Resources.getResourceAsStream(resource)) {
+			new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+		}
+		return configuration;
+	}
+
+	private static List<Object> decoratorChain(Cache cache) throws Exception {
+		List<Object> chain = new ArrayList<>();
+		Object current = cache;
+		while (current != null) {
+			chain.add(current);
+			Field delegate;
+			try {
+				delegate = current.getClass().getDeclaredField("delegate");
+			} catch (NoSuchFieldException e) {
+				break;
+			}
+			delegate.setAccessible(true);
+			current = delegate.get(current);
+		}
+		return chain;
+	}
+
+	/**
+	 * 
+	 * 新增的属性在项目自带的DTD中声明，校验时不需要访问网络
+	 * 
+	 */
+	@Test
+	public void test1() throws Exception {
+		Configuration configuration = parse();
+		List<Object> chain = decoratorChain(configuration.getCache(NAMESPACE));
+		assertTrue(chain.stream().anyMatch(c -> c instanceof WeightedCache));
+		assertTrue(chain.stream().anyMatch(c -> c instanceof ImmutableCache));
+		assertTrue(chain.get(0) instanceof ScheduledCache);
+		assertTrue(configuration.getCache(NAMESPACE).isReloadable());
+	}
+
+	@Test
+	public void test2() throws Exception {
+		Configuration configuration = parse();
+		MappedStatement ms = configuration.getMappedStatement(NAMESPACE + ".selectName");
+		// 声明的表优先于从sql中解析出的表
+		assertEquals(new HashSet<>(Arrays.asList("blog", "author")), ms.getTables(ms.getBoundSql(1)));
+	}
+
+	@Test
+	public void test3() throws Exception {
+		Configuration configuration = parse("com/test/mybatis/builder/NearCacheMapper.xml");
+		List<Object> chain = decoratorChain(configuration.getCache("com.test.mybatis.builder.NearCacheMapper"));
+		assertTrue(chain.get(1) instanceof NearCache);
+		assertTrue(chain.get(2) instanceof OffHeapCache);
+	}
+
+	@Test
+	public void test4() throws Exception {
+		Configuration configuration = parse();
+		// 声明为空表示没有依赖，可以参与批量重排
+		MappedStatement blog = configuration.getMappedStatement(NAMESPACE + ".insertBlog");
+		assertTrue(blog.isBatchDependsOnDeclared());
+		assertTrue(blog.getBatchDependsOn().isEmpty());
+		MappedStatement post = configuration.getMappedStatement(NAMESPACE + ".insertPost");
+		assertEquals(Collections.singleton(NAMESPACE + ".insertBlog"), post.getBatchDependsOn());
+		assertFalse(configuration.getMappedStatement(NAMESPACE + ".selectName").isBatchDependsOnDeclared());
+		assertTrue(blog.isBatchRewrite());
+		assertFalse(post.isBatchRewrite());
+	}
+}
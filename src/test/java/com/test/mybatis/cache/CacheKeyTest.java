@@ -0,0 +1,62 @@
+package com.test.mybatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+public class CacheKeyTest {
+
+	@Test
+	public void test1() throws Exception {
+		CacheKey prefix = new CacheKey(new Object[] { "selectBlog", 0, Integer.MAX_VALUE });
+		CacheKey key1 = new CacheKey(prefix, 2);
+		key1.update("select * from blog where id = ?");
+		key1.update(new int[] { 1, 2 });
+		CacheKey key2 = new CacheKey(
+				new Object[] { "selectBlog", 0, Integer.MAX_VALUE, "select * from blog where id = ?", new int[] { 1, 2 } });
+		assertEquals(key1, key2);
+		assertEquals(key1.getHash(), key2.getHash());
+		assertEquals(key1.hashCode(), key2.hashCode());
+		// 前缀没有被修改
+		assertEquals(3, prefix.getUpdateCount());
+
+		// 顺序不同的key不相同
+		CacheKey swapped = new CacheKey(new Object[] { "selectBlog", Integer.MAX_VALUE, 0 });
+		assertFalse(prefix.equals(swapped));
+		assertFalse(prefix.getHash() == swapped.getHash());
+
+		// 超过预计个数时自动扩容，克隆的key互不影响
+		CacheKey clone = key1.clone();
+		for (int i = 0; i < 20; i++) {
+			key1.update(i);
+		}
+		assertEquals(25, key1.getUpdateCount());
+		assertEquals(key2, clone);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(key1);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			CacheKey copy = (CacheKey) in.readObject();
+			assertTrue(copy.equals(key1));
+			assertEquals(key1.hashCode(), copy.hashCode());
+		}
+	}
+
+	@Test
+	public void test2() {
+		// "Aa"和"BB"的hashCode相同，只差这一个对象的key的hash也相同，由equals区分
+		CacheKey key1 = new CacheKey(new Object[] { "selectBlog", "Aa" });
+		CacheKey key2 = new CacheKey(new Object[] { "selectBlog", "BB" });
+		assertEquals(key1.getHash(), key2.getHash());
+		assertFalse(key1.equals(key2));
+	}
+}
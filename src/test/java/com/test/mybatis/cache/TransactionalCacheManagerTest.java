@@ -0,0 +1,57 @@
+package com.test.mybatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class TransactionalCacheManagerTest {
+
+	private static Map<?, ?> transactionalCaches(TransactionalCacheManager tcm) throws Exception {
+		Field field = TransactionalCacheManager.class.getDeclaredField("transactionalCaches");
+		field.setAccessible(true);
+		return (Map<?, ?>) field.get(tcm);
+	}
+
+	@Test
+	public void test1() throws Exception {
+		Cache cache = new CacheBuilder("test").build();
+		CacheKey key = new CacheKey(new Object[] { "k" });
+		cache.putObject(key, "v");
+
+		// 只命中缓存的会话不创建任何暂存状态
+		TransactionalCacheManager tcm = new TransactionalCacheManager();
+		for (int i = 0; i < 3; i++) {
+			assertEquals("v", tcm.getObject(cache, key));
+			tcm.commit();
+		}
+		tcm.rollback();
+		assertNull(transactionalCaches(tcm));
+	}
+
+	@Test
+	public void test2() throws Exception {
+		Cache cache = new CacheBuilder("test").build();
+		CacheKey key = new CacheKey(new Object[] { "k" });
+		TransactionalCacheManager tcm = new TransactionalCacheManager();
+		assertNull(tcm.getObject(cache, key));
+		tcm.putObject(cache, key, "v");
+		Object txCache = transactionalCaches(tcm).get(cache);
+		assertNull(cache.getObject(key));
+		tcm.commit();
+		assertEquals("v", cache.getObject(key));
+
+		// 之后的事务复用同一个事务缓存
+		CacheKey other = new CacheKey(new Object[] { "other" });
+		assertNull(tcm.getObject(cache, other));
+		assertEquals(1, transactionalCaches(tcm).size());
+		assertSame(txCache, transactionalCaches(tcm).get(cache));
+		tcm.rollback();
+	}
+}
@@ -0,0 +1,92 @@
+package com.test.mybatis.cache.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.TransactionalCacheManager;
+import com.test.mybatis.mapping.CacheBuilder;
+import com.test.mybatis.session.Configuration;
+
+public class CacheInvalidationBusTest {
+
+	private static Configuration node(String channel) {
+		Configuration configuration = new Configuration();
+		Properties properties = new Properties();
+		properties.setProperty("cacheInvalidation.channel", channel);
+		LoopbackTransport transport = new LoopbackTransport();
+		transport.setProperties(properties);
+		configuration.setCacheInvalidationTransport(transport);
+		configuration.addCache(new CacheBuilder("blog")
+				.tableDependencies(configuration.getTableDependencyRegistry()).build());
+		return configuration;
+	}
+
+	@Test
+	public void test1() {
+		Configuration node1 = node("test1");
+		Configuration node2 = node("test1");
+		Cache cache1 = node1.getCache("blog");
+		Cache cache2 = node2.getCache("blog");
+		cache1.putObject("k", "v1");
+		cache2.putObject("k", "v2");
+
+		// node1提交时清空了blog，node2收到通知后也清空
+		TransactionalCacheManager tcm = new TransactionalCacheManager(node1.getCacheInvalidationBus());
+		tcm.clear(cache1);
+		assertEquals("v2", cache2.getObject("k"));
+		tcm.commit();
+		assertNull(cache1.getObject("k"));
+		assertNull(cache2.getObject("k"));
+		node1.setCacheInvalidationTransport(null);
+		node2.setCacheInvalidationTransport(null);
+	}
+
+	@Test
+	public void test2() {
+		Configuration node1 = node("test2");
+		Configuration node2 = node("test2");
+		Cache cache2 = node2.getCache("blog");
+		CacheKey blog = new CacheKey(new Object[] { "blog" });
+		blog.setTables(Collections.singleton("blog"));
+		CacheKey author = new CacheKey(new Object[] { "author" });
+		author.setTables(Collections.singleton("author"));
+		cache2.putObject(blog, "b");
+		cache2.putObject(author, "a");
+
+		TransactionalCacheManager tcm = new TransactionalCacheManager(node1.getCacheInvalidationBus());
+		tcm.invalidate(node1.getTableDependencyRegistry(), Collections.singleton("blog"));
+		tcm.commit();
+		assertNull(cache2.getObject(blog));
+		assertEquals("a", cache2.getObject(author));
+		node1.setCacheInvalidationTransport(null);
+		node2.setCacheInvalidationTransport(null);
+	}
+
+	@Test
+	public void test3() {
+		UdpTransport transport = new UdpTransport();
+		Properties properties = new Properties();
+		properties.setProperty("cacheInvalidation.port", "0");
+		properties.setProperty("cacheInvalidation.interface", "no-such-interface");
+		transport.setProperties(properties);
+		// 指定的网卡不存在时不会加入组播组
+		try {
+			transport.start(message -> {
+			});
+			fail();
+		} catch (CacheException e) {
+			assertEquals("Unknown network interface 'no-such-interface' for UDP cache invalidation transport.",
+					e.getMessage());
+		}
+		transport.close();
+	}
+}
@@ -0,0 +1,50 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.impl.PerpetualCache;
+
+public class BlockingCacheTest {
+
+	@Test
+	public void test1() throws Exception {
+		BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("test")));
+		// 当前线程成为加载者
+		assertNull(cache.getObject("k"));
+		assertNull(cache.getObject("k"));
+		CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> cache.getObject("k"));
+		Thread.sleep(100);
+		assertTrue(!waiter.isDone());
+		cache.putObject("k", "v");
+		assertEquals("v", waiter.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test2() throws Exception {
+		BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("test")));
+		cache.setTimeout(100);
+		assertNull(cache.getObject("k"));
+		long start = System.currentTimeMillis();
+		// 超时后返回null，由调用者自己查询
+		assertNull(CompletableFuture.supplyAsync(() -> cache.getObject("k")).get(1, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - start >= 100);
+	}
+
+	@Test
+	public void test3() throws Exception {
+		BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("test")));
+		assertNull(cache.getObject("k"));
+		CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> cache.getObject("k"));
+		Thread.sleep(50);
+		// 加载者回滚，等待者接着成为加载者
+		cache.removeObject("k");
+		assertNull(waiter.get(1, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,158 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class ImmutableCacheTest {
+
+	@Test
+	public void test1() {
+		Cache cache = new CacheBuilder("test").immutable(true).readWrite(true).build();
+		List<StringBuilder> result = new ArrayList<>(Arrays.asList(new StringBuilder("a")));
+		cache.putObject("k", result);
+		// 放入缓存之后再修改原结果，不影响缓存
+		result.get(0).append("b");
+		result.add(new StringBuilder("c"));
+
+		@SuppressWarnings("unchecked")
+		List<StringBuilder> first = (List<StringBuilder>) cache.getObject("k");
+		@SuppressWarnings("unchecked")
+		List<StringBuilder> second = (List<StringBuilder>) cache.getObject("k");
+		assertEquals(1, first.size());
+		assertEquals("a", first.get(0).toString());
+		// 可变的元素不在会话之间共享
+		assertNotSame(first, second);
+		assertNotSame(first.get(0), second.get(0));
+		first.get(0).append("x");
+		first.clear();
+		assertEquals(1, second.size());
+		assertEquals("a", second.get(0).toString());
+	}
+
+	@Test
+	public void test2() {
+		Cache cache = new CacheBuilder("test").immutable(true).build();
+		List<Object> result = new ArrayList<>(Arrays.asList(new Object()));
+		try {
+			cache.putObject("k", result);
+			fail();
+		} catch (CacheException e) {
+			// 既不是不可变的也不能复制
+		}
+	}
+
+	@Test
+	public void test3() {
+		Cache cache = new CacheBuilder("test").immutable(true).build();
+		List<Object> result = new ArrayList<>(Arrays.asList("a", 1, new BigDecimal("2.5"), LocalDate.of(2020, 1, 1), null));
+		cache.putObject("k", result);
+		result.clear();
+		// 只含不可变值的结果直接共享只读的列表
+		List<?> first = (List<?>) cache.getObject("k");
+		List<?> second = (List<?>) cache.getObject("k");
+		assertEquals(5, first.size());
+		assertSame(first, second);
+		try {
+			first.clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// read-only
+		}
+	}
+
+	public static class Author {
+
+		private String name;
+		private Date born;
+		private List<Post> posts;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Date getBorn() {
+			return born;
+		}
+
+		public void setBorn(Date born) {
+			this.born = born;
+		}
+
+		public List<Post> getPosts() {
+			return posts;
+		}
+
+		public void setPosts(List<Post> posts) {
+			this.posts = posts;
+		}
+	}
+
+	public static class Post {
+
+		private int id;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+	}
+
+	@Test
+	public void test4() {
+		Cache cache = new CacheBuilder("test").immutable(true).build();
+		Author author = new Author();
+		author.setName("ethan");
+		author.setBorn(new Date(0));
+		Post post = new Post();
+		post.setId(1);
+		author.setPosts(new ArrayList<>(Arrays.asList(post)));
+		// Author不能序列化，只能按属性复制
+		cache.putObject("k", new ArrayList<>(Arrays.asList(author)));
+		author.setName("changed");
+		post.setId(2);
+
+		@SuppressWarnings("unchecked")
+		List<Author> first = (List<Author>) cache.getObject("k");
+		@SuppressWarnings("unchecked")
+		List<Author> second = (List<Author>) cache.getObject("k");
+		assertEquals("ethan", first.get(0).getName());
+		assertEquals(1, first.get(0).getPosts().get(0).getId());
+		// 每次命中得到自己的bean
+		assertNotSame(first.get(0), second.get(0));
+		assertNotSame(first.get(0).getPosts().get(0), second.get(0).getPosts().get(0));
+		first.get(0).setName("x");
+		first.get(0).getBorn().setTime(1000);
+		first.get(0).getPosts().get(0).setId(3);
+		assertEquals("ethan", second.get(0).getName());
+		assertEquals(0, second.get(0).getBorn().getTime());
+		assertEquals(1, second.get(0).getPosts().get(0).getId());
+		try {
+			first.add(new Author());
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// read-only
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheException;
+import com.test.mybatis.cache.CacheListener;
+import com.test.mybatis.cache.ObservableCache;
+import com.test.mybatis.cache.impl.ConcurrentPerpetualCache;
+import com.test.mybatis.cache.impl.OffHeapCache;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class NearCacheTest {
+
+	/**
+	 * 代替共享缓存，两个NearCache共用一个实例模拟两个节点
+	 */
+	public static class SharedCache extends ConcurrentPerpetualCache implements ObservableCache {
+
+		private final List<CacheListener> listeners = new CopyOnWriteArrayList<>();
+		private final AtomicInteger reads = new AtomicInteger();
+
+		public SharedCache(String id) {
+			super(id);
+		}
+
+		@Override
+		public void addListener(CacheListener listener) {
+			listeners.add(listener);
+		}
+
+		@Override
+		public Object getObject(Object key) {
+			reads.incrementAndGet();
+			return super.getObject(key);
+		}
+
+		@Override
+		public void putObject(Object key, Object value) {
+			super.putObject(key, value);
+			listeners.forEach(listener -> listener.onRemove(key));
+		}
+
+		@Override
+		public Object removeObject(Object key) {
+			Object value = super.removeObject(key);
+			listeners.forEach(listener -> listener.onRemove(key));
+			return value;
+		}
+
+		@Override
+		public void clear() {
+			super.clear();
+			listeners.forEach(CacheListener::onClear);
+		}
+	}
+
+	@Test
+	public void test1() {
+		SharedCache shared = new SharedCache("blogs");
+		NearCache node1 = new NearCache(shared);
+		NearCache node2 = new NearCache(shared);
+		node1.putObject("k1", "v1");
+
+		// node2第一次从L2读取，之后从L1读取
+		assertEquals("v1", node2.getObject("k1"));
+		assertEquals("v1", node2.getObject("k1"));
+		assertEquals(1, shared.reads.get());
+		assertEquals(1, node2.getNearSize());
+
+		// node1的修改通过L2通知node2淘汰L1
+		node1.putObject("k1", "v2");
+		assertEquals("v2", node2.getObject("k1"));
+		node1.removeObject("k1");
+		assertNull(node2.getObject("k1"));
+		node1.putObject("k2", "v2");
+		node2.getObject("k2");
+		node1.clear();
+		assertEquals(0, node2.getNearSize());
+		assertNull(node2.getObject("k2"));
+
+		// 未命中时放入的null不进入L1
+		node2.putObject("k3", null);
+		assertEquals(0, node2.getNearSize());
+	}
+
+	@Test
+	public void test2() {
+		Cache cache = new CacheBuilder("blogs").implementation(SharedCache.class).nearSize(2).build();
+		assertTrue(cache instanceof LoggingCache);
+		for (int i = 0; i < 10; i++) {
+			cache.putObject("k" + i, "v" + i);
+		}
+		// L1只保留少量缓存项，其余从L2读取
+		for (int i = 0; i < 10; i++) {
+			assertEquals("v" + i, cache.getObject("k" + i));
+		}
+		assertEquals(10, cache.getSize());
+
+		// 基础缓存本身就在堆内，不能再加L1
+		try {
+			new CacheBuilder("authors").nearSize(16).build();
+			fail();
+		} catch (CacheException e) {
+			assertTrue(e.getMessage().startsWith("nearSize is only supported for custom cache types"));
+		}
+		try {
+			new CacheBuilder("authors").implementation(ConcurrentPerpetualCache.class).nearSize(16).build();
+			fail();
+		} catch (CacheException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void test3() {
+		Properties properties = new Properties();
+		properties.setProperty("slabSize", "1024");
+		properties.setProperty("capacity", "2048");
+		Cache cache = new CacheBuilder("blogs").implementation(OffHeapCache.class).nearSize(1000)
+				.properties(properties).build();
+		cache.putObject("k0", "v0");
+		assertEquals("v0", cache.getObject("k0"));
+		// 堆外缓存回收slab时通知NearCache，L1中的副本也被删除
+		for (int i = 1; i < 500; i++) {
+			cache.putObject("k" + i, "v" + i);
+		}
+		assertNull(cache.getObject("k0"));
+		assertEquals("v499", cache.getObject("k499"));
+		cache.clear();
+		assertNull(cache.getObject("k499"));
+	}
+}
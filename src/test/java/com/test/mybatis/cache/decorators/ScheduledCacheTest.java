@@ -0,0 +1,98 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class ScheduledCacheTest {
+
+	private final AtomicLong now = new AtomicLong(1000);
+
+	/**
+	 * 时间由now控制，后台刷新放入tasks，由测试线程执行
+	 */
+	private ScheduledCache newCache(long timeToLive, long staleTimeToLive, List<Runnable> tasks) {
+		ScheduledCache cache = new ScheduledCache(new SynchronizedCache(new PerpetualCache("test")));
+		cache.setClock(now::get);
+		cache.setExecutor(tasks::add);
+		cache.setClearInterval(Long.MAX_VALUE);
+		cache.setTimeToLive(timeToLive);
+		cache.setStaleTimeToLive(staleTimeToLive);
+		return cache;
+	}
+
+	@Test
+	public void test1() throws Exception {
+		List<Runnable> tasks = new ArrayList<>();
+		ScheduledCache cache = newCache(100, 10000, tasks);
+		AtomicInteger loads = new AtomicInteger();
+		CacheKey key = new CacheKey(new Object[] { "select" });
+		key.setReloader(() -> "v" + loads.incrementAndGet());
+		cache.putObject(key, "v0");
+		assertEquals("v0", cache.getObject(key));
+		assertTrue(tasks.isEmpty());
+		now.addAndGet(150);
+		// 软过期后仍然返回旧值，同时只触发一次后台刷新
+		assertEquals("v0", cache.getObject(key));
+		assertEquals("v0", cache.getObject(key));
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals("v1", cache.getObject(key));
+		assertEquals(1, loads.get());
+		assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void test2() throws Exception {
+		ScheduledCache cache = newCache(50, 50, new ArrayList<>());
+		cache.putObject("k", "v");
+		now.addAndGet(99);
+		assertEquals("v", cache.getObject("k"));
+		now.addAndGet(1);
+		// 彻底过期
+		assertNull(cache.getObject("k"));
+	}
+
+	@Test
+	public void test3() throws Exception {
+		List<Runnable> tasks = new ArrayList<>();
+		ScheduledCache cache = newCache(50, 10000, tasks);
+		CacheKey key = new CacheKey(new Object[] { "select" });
+		key.setReloader(() -> {
+			// 刷新完成之前缓存被清空
+			cache.clear();
+			return "new";
+		});
+		cache.putObject(key, "old");
+		now.addAndGet(80);
+		assertEquals("old", cache.getObject(key));
+		tasks.remove(0).run();
+		// 刷新结果被丢弃
+		assertNull(cache.getObject(key));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void test4() {
+		// 只有设置了timeToLive，CachingExecutor才会给缓存项加上reloader
+		Cache cache = new CacheBuilder("test").timeToLive(100L).build();
+		assertTrue(cache instanceof ScheduledCache);
+		assertTrue(cache.isReloadable());
+		assertTrue(new CacheBuilder("test").timeToLive(100L).blocking(true).build().isReloadable());
+		assertFalse(new CacheBuilder("test").clearInterval(100L).build().isReloadable());
+		assertFalse(new CacheBuilder("test").build().isReloadable());
+	}
+}
@@ -0,0 +1,68 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.TableDependencyRegistry;
+import com.test.mybatis.cache.TransactionalCacheManager;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class TableDependencyCacheTest {
+
+	private static CacheKey key(String id, String... tables) {
+		CacheKey key = new CacheKey(new Object[] { id });
+		key.setTables(new HashSet<>(Arrays.asList(tables)));
+		return key;
+	}
+
+	@Test
+	public void test1() {
+		TableDependencyRegistry registry = new TableDependencyRegistry();
+		Cache authors = new CacheBuilder("authors").tableDependencies(registry).blocking(true).build();
+		Cache blogs = new CacheBuilder("blogs").tableDependencies(registry).build();
+		assertTrue(registry.isTracked(authors));
+		authors.putObject(key("a1", "author"), "a1");
+		authors.putObject(key("a2", "author", "blog"), "a2");
+		blogs.putObject(key("b1", "blog"), "b1");
+		CacheKey unknown = new CacheKey(new Object[] { "u1" });
+		blogs.putObject(unknown, "u1");
+
+		// 修改blog表，两个namespace中依赖blog的缓存项以及依赖不确定的缓存项被淘汰
+		registry.invalidate(Collections.singleton("blog"));
+		assertNotNull(authors.getObject(key("a1")));
+		assertNull(authors.getObject(key("a2")));
+		authors.removeObject(key("a2"));
+		assertNull(blogs.getObject(key("b1")));
+		assertNull(blogs.getObject(unknown));
+		assertEquals(1, authors.getSize());
+	}
+
+	@Test
+	public void test2() {
+		TableDependencyRegistry registry = new TableDependencyRegistry();
+		Cache cache = new CacheBuilder("authors").tableDependencies(registry).build();
+		CacheKey author = key("a1", "author");
+		CacheKey blog = key("b1", "blog");
+		cache.putObject(author, "a1");
+
+		TransactionalCacheManager tcm = new TransactionalCacheManager();
+		tcm.putObject(cache, blog, "b1");
+		tcm.invalidate(registry, Collections.singleton("author"));
+		// 事务中修改了author表，提交之前不再返回旧值
+		assertNull(tcm.getObject(cache, author));
+		assertNotNull(cache.getObject(author));
+		tcm.commit();
+		assertNull(cache.getObject(author));
+		assertEquals("b1", cache.getObject(blog));
+	}
+}
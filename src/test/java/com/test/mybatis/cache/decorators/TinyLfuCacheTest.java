@@ -0,0 +1,73 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.impl.ConcurrentPerpetualCache;
+import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class TinyLfuCacheTest {
+
+	@Test
+	public void test1() {
+		TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("test"));
+		cache.setSize(100);
+		for (int i = 0; i < 1000; i++) {
+			cache.getObject(i);
+			cache.putObject(i, i);
+		}
+		assertEquals(100, cache.getSize());
+	}
+
+	@Test
+	public void test2() {
+		TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("test"));
+		cache.setSize(100);
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 50; i++) {
+				if (cache.getObject(i) == null) {
+					cache.putObject(i, i);
+				}
+			}
+		}
+		// 一次性扫描大量数据，热点数据应该保留下来
+		for (int i = 1000; i < 1500; i++) {
+			cache.getObject(i);
+			cache.putObject(i, i);
+		}
+		int hits = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.getObject(i) != null) {
+				hits++;
+			}
+		}
+		assertTrue("hot entries left: " + hits, hits >= 45);
+	}
+
+	@Test
+	public void test3() {
+		TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("test"));
+		cache.putObject("a", "1");
+		cache.putObject("b", "2");
+		assertEquals("1", cache.removeObject("a"));
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		cache.putObject("a", "1");
+		assertEquals("1", cache.getObject("a"));
+	}
+
+	@Test
+	public void test4() {
+		Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class)
+				.addDecorator(TinyLfuCache.class).size(10).build();
+		assertTrue(cache instanceof LoggingCache);
+		for (int i = 0; i < 100; i++) {
+			cache.putObject(i, i);
+		}
+		assertEquals(10, cache.getSize());
+	}
+}
@@ -0,0 +1,72 @@
+package com.test.mybatis.cache.decorators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class WeightedCacheTest {
+
+	@Test
+	public void test1() {
+		WeightedCache cache = new WeightedCache(new PerpetualCache("test"));
+		cache.setEstimatedRowSize(100);
+		cache.setMaxBytes(1000);
+		cache.putObject("a", Arrays.asList(1, 2, 3, 4));
+		cache.putObject("b", Arrays.asList(1, 2, 3, 4));
+		assertEquals(800, cache.getTotalBytes());
+		cache.getObject("a");
+		cache.putObject("c", Arrays.asList(1, 2, 3));
+		// b最近最少使用，被清理
+		assertNull(cache.getObject("b"));
+		assertNotNull(cache.getObject("a"));
+		assertEquals(700, cache.getTotalBytes());
+	}
+
+	@Test
+	public void test2() {
+		WeightedCache cache = new WeightedCache(new PerpetualCache("test"));
+		cache.setMaxBytes(100);
+		cache.putObject("a", new byte[60]);
+		cache.putObject("b", new byte[200]);
+		assertNull(cache.getObject("b"));
+		assertEquals(60, cache.getTotalBytes());
+		cache.removeObject("a");
+		assertEquals(0, cache.getTotalBytes());
+	}
+
+	@Test
+	public void test3() {
+		// 读写缓存中按序列化后的长度计算
+		Cache cache = new CacheBuilder("test").maxBytes(2048L).readWrite(true).build();
+		for (int i = 0; i < 100; i++) {
+			cache.putObject(i, new ArrayList<>(Collections.nCopies(10, "row" + i)));
+		}
+		assertEquals(true, cache.getSize() < 100);
+		assertNotNull(cache.getObject(99));
+	}
+
+	@Test
+	public void test4() {
+		// 不可变缓存中序列化保存的结果也按字节数计算
+		Cache cache = new CacheBuilder("test").maxBytes(4096L).immutable(true).build();
+		List<StringBuilder> rows = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			rows.add(new StringBuilder("row" + i));
+		}
+		cache.putObject("big", rows);
+		assertNull(cache.getObject("big"));
+		cache.putObject("small", new ArrayList<>(Arrays.asList(new StringBuilder("row"))));
+		assertNotNull(cache.getObject("small"));
+	}
+}
@@ -0,0 +1,132 @@
+package com.test.mybatis.cache.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.test.mybatis.builder.MapperBuilderAssistant;
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.cache.decorators.LoggingCache;
+import com.test.mybatis.cache.decorators.LruCache;
+import com.test.mybatis.cache.decorators.SerializedCache;
+import com.test.mybatis.cache.decorators.SynchronizedCache;
+import com.test.mybatis.mapping.CacheBuilder;
+import com.test.mybatis.session.Configuration;
+
+public class ConcurrentPerpetualCacheTest {
+
+	private static List<Class<?>> decoratorChain(Cache cache) throws Exception {
+		List<Class<?>> chain = new ArrayList<>();
+		for (Object current : chainObjects(cache)) {
+			chain.add(current.getClass());
+		}
+		return chain;
+	}
+
+	private static List<Object> chainObjects(Cache cache) throws Exception {
+		List<Object> chain = new ArrayList<>();
+		Object current = cache;
+		while (current != null) {
+			chain.add(current);
+			Field delegate;
+			try {
+				delegate = current.getClass().getDeclaredField("delegate");
+			} catch (NoSuchFieldException e) {
+				break;
+			}
+			delegate.setAccessible(true);
+			current = delegate.get(current);
+		}
+		return chain;
+	}
+
+	@Test
+	public void test1() {
+		Cache cache = new ConcurrentPerpetualCache("test");
+		cache.putObject("a", "1");
+		cache.putObject("b", null);
+		assertEquals("1", cache.getObject("a"));
+		assertNull(cache.getObject("b"));
+		assertEquals(2, cache.getSize());
+		assertNull(cache.removeObject("b"));
+		assertEquals(1, cache.getSize());
+		cache.clear();
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void test2() {
+		Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).readWrite(true)
+				.clearInterval(60000L).build();
+		assertTrue(cache instanceof LoggingCache);
+		cache.putObject("a", "1");
+		assertEquals("1", cache.getObject("a"));
+	}
+
+	@Test
+	public void test3() throws Exception {
+		// LruCache自己加锁，默认的淘汰策略也不需要SynchronizedCache
+		Configuration configuration = new Configuration();
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "ConcurrentPerpetualCacheTest");
+		assistant.setCurrentNamespace("test");
+		Cache cache = assistant.useNewCache(ConcurrentPerpetualCache.class, null, null, null, null, null, null, null,
+				true, false, false, null);
+		List<Class<?>> chain = decoratorChain(cache);
+		assertEquals(Arrays.asList(LoggingCache.class, SerializedCache.class, LruCache.class,
+				ConcurrentPerpetualCache.class), chain);
+		assertFalse(chain.contains(SynchronizedCache.class));
+
+		cache = new CacheBuilder("test").implementation(PerpetualCache.class).addDecorator(LruCache.class).build();
+		assertTrue(cache instanceof SynchronizedCache);
+	}
+
+	/**
+	 * 持有缓存链上每个对象的锁，其他线程仍然可以并发读完
+	 */
+	@Test
+	public void test4() throws Exception {
+		Configuration configuration = new Configuration();
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "ConcurrentPerpetualCacheTest");
+		assistant.setCurrentNamespace("test");
+		Cache cache = assistant.useNewCache(ConcurrentPerpetualCache.class, null, null, null, null, 100, null, null,
+				false, false, false, null);
+		for (int i = 0; i < 100; i++) {
+			cache.putObject(i, i);
+		}
+		AtomicInteger hits = new AtomicInteger();
+		assertTrue(readWhileLocked(cache, chainObjects(cache), 0, hits));
+		assertEquals(4 * 10000, hits.get());
+	}
+
+	private static boolean readWhileLocked(Cache cache, List<Object> chain, int index, AtomicInteger hits)
+			throws InterruptedException {
+		if (index < chain.size()) {
+			synchronized (chain.get(index)) {
+				return readWhileLocked(cache, chain, index + 1, hits);
+			}
+		}
+		CountDownLatch done = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					if (cache.getObject(i % 100) != null) {
+						hits.incrementAndGet();
+					}
+				}
+				done.countDown();
+			}).start();
+		}
+		return done.await(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,52 @@
+package com.test.mybatis.cache.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+	@Test
+	public void test1() {
+		OffHeapCache cache = new OffHeapCache("test");
+		List<String> rows = new ArrayList<>(Arrays.asList("a", "b", "c"));
+		cache.putObject("k", rows);
+		Object cached = cache.getObject("k");
+		assertEquals(rows, cached);
+		assertNotSame(rows, cached);
+		cache.putObject("k", null);
+		assertNull(cache.getObject("k"));
+	}
+
+	@Test
+	public void test2() {
+		OffHeapCache cache = new OffHeapCache("test");
+		cache.setSlabSize(1024);
+		cache.setCapacity(4096);
+		for (int i = 0; i < 1000; i++) {
+			cache.putObject(i, "value-" + i);
+		}
+		// 最老的slab被回收，最新的值还在
+		assertTrue(cache.getSize() < 1000);
+		assertNull(cache.getObject(0));
+		assertEquals("value-999", cache.getObject(999));
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		assertNull(cache.getObject(999));
+	}
+
+	@Test
+	public void test3() {
+		OffHeapCache cache = new OffHeapCache("test");
+		cache.setSlabSize(64);
+		cache.putObject("big", new byte[1024]);
+		assertNull(cache.getObject("big"));
+	}
+}
@@ -0,0 +1,64 @@
+package com.test.mybatis.cache.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.Cache;
+import com.test.mybatis.mapping.CacheBuilder;
+
+public class CacheMetricsRegistryTest {
+
+	@Test
+	public void test1() {
+		CacheMetricsRegistry registry = new CacheMetricsRegistry();
+		Cache cache = new CacheBuilder("blogs").size(2).metrics(registry.getMetrics("blogs")).build();
+		registry.register(cache);
+		cache.putObject("k1", "v1");
+		cache.putObject("k2", "v2");
+		cache.getObject("k1");
+		// k2最久没有使用，放入k3时被淘汰
+		cache.putObject("k3", "v3");
+		assertNull(cache.getObject("k2"));
+
+		DefaultCacheMetrics metrics = (DefaultCacheMetrics) registry.getMetrics("blogs");
+		assertEquals(1, metrics.getHits());
+		assertEquals(1, metrics.getMisses());
+		assertEquals(3, metrics.getPuts());
+		assertEquals(1, metrics.getEvictions());
+		assertEquals(0.5, metrics.getHitRatio(), 0.0);
+
+		Map<String, Number> snapshot = registry.snapshot().get("blogs");
+		assertEquals(2, snapshot.get("size"));
+		assertEquals(1L, snapshot.get("evictions"));
+	}
+
+	@Test
+	public void test2() throws Exception {
+		CacheMetricsRegistry registry = new CacheMetricsRegistry();
+		registry.getMetrics("authors").recordHit();
+		registry.getMetrics("authors").recordLoad(2000000);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.test.mybatis:type=CacheMetrics,name=\"authors\"");
+		JmxCacheMetricsExporter exporter = new JmxCacheMetricsExporter(registry, server);
+		exporter.export();
+		try {
+			assertTrue(server.isRegistered(name));
+			assertEquals(1L, server.getAttribute(name, "Hits"));
+			assertEquals(2.0, (Double) server.getAttribute(name, "AverageLoadTimeMillis"), 0.0);
+			assertEquals(-1, server.getAttribute(name, "Size"));
+		} finally {
+			exporter.unexport();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+}
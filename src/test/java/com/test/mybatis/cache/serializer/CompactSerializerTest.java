@@ -0,0 +1,158 @@
+package com.test.mybatis.cache.serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class CompactSerializerTest {
+
+	private final CacheSerializer serializer = new CompactSerializer();
+
+	@Test
+	public void test1() {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("id", 1);
+		row.put("amount", new BigDecimal("-12.3400"));
+		row.put("created", LocalDateTime.of(2020, 2, 29, 23, 59, 59, 123456789));
+		row.put("day", LocalDate.of(1969, 12, 31));
+		row.put("offset", OffsetDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(8)));
+		row.put("stamp", new java.sql.Timestamp(1234567890123L));
+		row.put("flags", Arrays.asList(true, false));
+		row.put("uuid", UUID.randomUUID());
+		row.put("bytes", new byte[] { 1, 2, 3 });
+		row.put("misc", new ArrayList<>(Arrays.asList(Long.MIN_VALUE, 3.5d, 2.5f, (short) -7, (byte) 9, 'x', null)));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(row));
+		assertEquals(new ArrayList<>(row.keySet()), new ArrayList<>(copy.keySet()));
+		for (String key : row.keySet()) {
+			if (!"bytes".equals(key)) {
+				assertEquals(row.get(key), copy.get(key));
+			}
+		}
+		assertTrue(Arrays.equals((byte[]) row.get("bytes"), (byte[]) copy.get("bytes")));
+	}
+
+	@Test
+	public void test2() {
+		Author author = new Author();
+		author.setId(7);
+		author.setName("ethan");
+		author.setStatus(Status.ACTIVE);
+		List<Blog> blogs = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Blog blog = new Blog();
+			blog.setTitle("blog " + i);
+			blog.setAuthor(author);
+			blogs.add(blog);
+		}
+		author.setBlogs(blogs);
+
+		@SuppressWarnings("unchecked")
+		List<Blog> copy = (List<Blog>) serializer.deserialize(serializer.serialize(blogs));
+		assertEquals(3, copy.size());
+		assertEquals("blog 2", copy.get(2).getTitle());
+		Author copiedAuthor = copy.get(0).getAuthor();
+		assertNotSame(author, copiedAuthor);
+		assertEquals("ethan", copiedAuthor.getName());
+		assertEquals(7, copiedAuthor.getId());
+		assertEquals(Status.ACTIVE, copiedAuthor.getStatus());
+		// 共享引用和循环引用保持不变
+		assertSame(copiedAuthor, copy.get(1).getAuthor());
+		assertSame(copy, copiedAuthor.getBlogs());
+	}
+
+	@Test
+	public void test3() {
+		List<Blog> blogs = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Blog blog = new Blog();
+			blog.setTitle("blog " + i);
+			blogs.add(blog);
+		}
+		int compact = serializer.serialize(blogs).length;
+		int jdk = new JdkSerializer().serialize(blogs).length;
+		assertTrue(compact + " >= " + jdk, compact < jdk);
+	}
+
+	public enum Status {
+		ACTIVE, DISABLED
+	}
+
+	public static class Author implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private int id;
+		private String name;
+		private Status status;
+		private List<Blog> blogs;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public void setStatus(Status status) {
+			this.status = status;
+		}
+
+		public List<Blog> getBlogs() {
+			return blogs;
+		}
+
+		public void setBlogs(List<Blog> blogs) {
+			this.blogs = blogs;
+		}
+	}
+
+	public static class Blog implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private String title;
+		private Author author;
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public Author getAuthor() {
+			return author;
+		}
+
+		public void setAuthor(Author author) {
+			this.author = author;
+		}
+	}
+}
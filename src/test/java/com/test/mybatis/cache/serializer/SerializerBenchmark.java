@@ -0,0 +1,120 @@
+package com.test.mybatis.cache.serializer;
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.test.mybatis.cache.serializer.CompactSerializerTest.Author;
+import com.test.mybatis.cache.serializer.CompactSerializerTest.Blog;
+import com.test.mybatis.cache.serializer.CompactSerializerTest.Status;
+
+/**
+ * 比较JdkSerializer和CompactSerializer处理典型查询结果的速度和大小
+ * <p>
+ * Not part of the normal test run: the class name does not match the test
+ * includes and it is {@code @Ignore}d, run it explicitly. Each test compares
+ * the sizes and the put/get times of both serializers after a warm-up pass;
+ * the assertion messages carry the measured numbers.
+ *
+ * @author ethan
+ */
+@Ignore("benchmark, run explicitly")
+public class SerializerBenchmark {
+
+	private static final int ROUNDS = 2000;
+
+	/**
+	 * 一个序列化器处理一种结果的测量值
+	 */
+	static final class Result {
+
+		final String serializer;
+		final int bytes;
+		final long nanosPerRound;
+
+		Result(String serializer, int bytes, long nanosPerRound) {
+			this.serializer = serializer;
+			this.bytes = bytes;
+			this.nanosPerRound = nanosPerRound;
+		}
+
+		@Override
+		public String toString() {
+			return serializer + ": " + bytes + " bytes, " + nanosPerRound / 1000 + " us per put/get";
+		}
+	}
+
+	static List<Object> beans() {
+		List<Object> beans = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Author author = new Author();
+			author.setId(i);
+			author.setName("author " + i);
+			author.setStatus(i % 2 == 0 ? Status.ACTIVE : Status.DISABLED);
+			Blog blog = new Blog();
+			blog.setTitle("blog " + i);
+			blog.setAuthor(author);
+			beans.add(blog);
+		}
+		return beans;
+	}
+
+	static List<Object> maps() {
+		List<Object> maps = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("id", (long) i);
+			row.put("name", "row " + i);
+			row.put("amount", BigDecimal.valueOf(i, 2));
+			row.put("created", LocalDateTime.of(2020, 1, 1, 0, 0).plusMinutes(i));
+			maps.add(row);
+		}
+		return maps;
+	}
+
+	/**
+	 * 先预热一轮，再测量ROUNDS次序列化加反序列化的平均时间
+	 */
+	static Result measure(CacheSerializer serializer, Object value) {
+		run(serializer, value);
+		long start = System.nanoTime();
+		int length = run(serializer, value);
+		return new Result(serializer.getClass().getSimpleName(), length, (System.nanoTime() - start) / ROUNDS);
+	}
+
+	private static int run(CacheSerializer serializer, Object value) {
+		int length = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			byte[] bytes = serializer.serialize(value);
+			serializer.deserialize(bytes);
+			length = bytes.length;
+		}
+		return length;
+	}
+
+	private static void compare(Object value) {
+		Result jdk = measure(new JdkSerializer(), value);
+		Result compact = measure(new CompactSerializer(), value);
+		String report = compact + " / " + jdk;
+		assertTrue(report, compact.bytes < jdk.bytes);
+		assertTrue(report, compact.nanosPerRound < jdk.nanosPerRound);
+	}
+
+	@Test
+	public void test1() {
+		compare(beans());
+	}
+
+	@Test
+	public void test2() {
+		compare(maps());
+	}
+}
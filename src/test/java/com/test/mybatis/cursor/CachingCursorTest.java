@@ -0,0 +1,58 @@
+package com.test.mybatis.cursor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CachingCursorTest {
+
+	@Test
+	public void test1() throws Exception {
+		List<List<String>> published = new ArrayList<>();
+		CachingCursor<String> cursor = new CachingCursor<>(new ListCursor<>(Arrays.asList("a", "b", "c"), 0), 10,
+				published::add);
+		List<String> rows = new ArrayList<>();
+		for (String row : cursor) {
+			rows.add(row);
+		}
+		assertTrue(cursor.isConsumed());
+		assertEquals(1, published.size());
+		assertEquals(rows, published.get(0));
+
+		// 提前关闭的Cursor不放入缓存
+		published.clear();
+		cursor = new CachingCursor<>(new ListCursor<>(Arrays.asList("a", "b", "c"), 0), 10, published::add);
+		Iterator<String> iterator = cursor.iterator();
+		iterator.next();
+		cursor.close();
+		assertEquals(0, published.size());
+	}
+
+	@Test
+	public void test2() throws Exception {
+		List<List<String>> published = new ArrayList<>();
+		CachingCursor<String> cursor = new CachingCursor<>(new ListCursor<>(Arrays.asList("a", "b", "c"), 0), 2,
+				published::add);
+		for (Iterator<String> it = cursor.iterator(); it.hasNext();) {
+			it.next();
+		}
+		// 超过行数上限，不缓存
+		assertTrue(cursor.isConsumed());
+		assertEquals(0, published.size());
+
+		ListCursor<String> cached = new ListCursor<>(Arrays.asList("x", "y"), 5);
+		Iterator<String> it = cached.iterator();
+		assertEquals("x", it.next());
+		assertEquals(5, cached.getCurrentIndex());
+		assertTrue(cached.isOpen());
+		cached.close();
+		assertFalse(it.hasNext());
+	}
+}
@@ -0,0 +1,75 @@
+package com.test.mybatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ConcurrentConnectionBagTest {
+
+	private static Connection newConnection() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> null);
+	}
+
+	@Test
+	public void test1() {
+		ConcurrentConnectionBag bag = new ConcurrentConnectionBag();
+		assertTrue(bag.reserve(2));
+		ConcurrentConnectionBag.Entry entry1 = bag.add(newConnection());
+		assertTrue(bag.reserve(2));
+		ConcurrentConnectionBag.Entry entry2 = bag.add(newConnection());
+		assertFalse(bag.reserve(2));
+		assertNull(bag.poll());
+		assertEquals(2, bag.getActiveCount());
+
+		// 归还后可以再借出，一个条目不会被借出两次
+		bag.requite(entry1);
+		assertEquals(1, bag.getIdleCount());
+		assertSame(entry1, bag.poll());
+		assertNull(bag.poll());
+		assertFalse(bag.claim(entry1));
+
+		assertTrue(bag.remove(entry2));
+		assertFalse(bag.remove(entry2));
+		assertTrue(bag.reserve(2));
+		bag.cancelReserve();
+		assertEquals(1, bag.getEntries().size());
+	}
+
+	@Test
+	public void test2() throws Exception {
+		ConcurrentConnectionBag bag = new ConcurrentConnectionBag();
+		assertTrue(bag.reserve(1));
+		ConcurrentConnectionBag.Entry entry = bag.add(newConnection());
+		// 超时返回null
+		assertNull(bag.await(10));
+		assertEquals(0, bag.getWaitingCount());
+
+		// 等待中的线程直接拿到归还的连接
+		AtomicReference<ConcurrentConnectionBag.Entry> received = new AtomicReference<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				received.set(bag.await(60000));
+			} catch (InterruptedException e) {
+				// ignore
+			}
+		});
+		waiter.start();
+		while (bag.getWaitingCount() == 0) {
+			Thread.yield();
+		}
+		bag.requite(entry);
+		waiter.join();
+		assertSame(entry, received.get());
+		assertEquals(0, bag.getIdleCount());
+		assertEquals(ConcurrentConnectionBag.STATE_IN_USE, entry.getState());
+	}
+}
@@ -0,0 +1,33 @@
+package com.test.mybatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void test1() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(0.99));
+	}
+
+	@Test
+	public void test2() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 98; i++) {
+			histogram.record(3);
+		}
+		histogram.record(150);
+		histogram.record(150);
+		assertEquals(5, histogram.percentile(0.5));
+		assertEquals(200, histogram.percentile(0.99));
+	}
+
+	@Test
+	public void test3() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(60000, histogram.percentile(0.5));
+	}
+}
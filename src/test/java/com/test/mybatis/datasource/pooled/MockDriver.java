@@ -0,0 +1,153 @@
+package com.test.mybatis.datasource.pooled;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 测试用的JDBC驱动，url为jdbc:mock:名称，每个名称对应一个独立的数据库
+ *
+ * @author ethan
+ */
+public class MockDriver implements Driver {
+
+	private static final Map<String, Database> databases = new ConcurrentHashMap<>();
+
+	public static class Database {
+
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		final AtomicInteger pings = new AtomicInteger();
+		volatile boolean autoCommit = true;
+		volatile boolean failAutoCommit;
+		volatile boolean failPing;
+		volatile boolean failConnect;
+		volatile CountDownLatch connectGate;
+
+		int getOpenCount() {
+			return opened.get() - closed.get();
+		}
+	}
+
+	static Database database(String name) {
+		return databases.computeIfAbsent(name, n -> new Database());
+	}
+
+	static PooledDataSource newDataSource(String name) {
+		databases.remove(name);
+		return new PooledDataSource(MockDriver.class.getName(), "jdbc:mock:" + name, "user", "password");
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		Database database = database(url.substring("jdbc:mock:".length()));
+		CountDownLatch gate = database.connectGate;
+		if (gate != null) {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				throw new SQLException(e);
+			}
+		}
+		if (database.failConnect) {
+			throw new SQLException("connection refused");
+		}
+		database.opened.incrementAndGet();
+		boolean[] closed = new boolean[1];
+		return (Connection) Proxy.newProxyInstance(MockDriver.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "close":
+						if (!closed[0]) {
+							closed[0] = true;
+							database.closed.incrementAndGet();
+						}
+						return null;
+					case "isClosed":
+						return closed[0];
+					case "getAutoCommit":
+						if (database.failAutoCommit) {
+							throw new SQLException("connection reset");
+						}
+						return database.autoCommit;
+					case "createStatement":
+						return newStatement(database);
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "mock connection";
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == int.class) {
+			return 0;
+		} else if (type == boolean.class) {
+			return false;
+		}
+		return null;
+	}
+
+	private static Statement newStatement(Database database) {
+		return (Statement) Proxy.newProxyInstance(MockDriver.class.getClassLoader(), new Class<?>[] { Statement.class },
+				(proxy, method, args) -> {
+					if ("executeQuery".equals(method.getName())) {
+						database.pings.incrementAndGet();
+						if (database.failPing) {
+							throw new SQLException("connection lost");
+						}
+						return Proxy.newProxyInstance(MockDriver.class.getClassLoader(),
+								new Class<?>[] { ResultSet.class }, (rs, m, a) -> defaultValue(m.getReturnType()));
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url.startsWith("jdbc:mock:");
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() {
+		return Logger.getGlobal();
+	}
+}
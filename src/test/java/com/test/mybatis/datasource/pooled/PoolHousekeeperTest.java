@@ -0,0 +1,107 @@
+package com.test.mybatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class PoolHousekeeperTest {
+
+	private static void makeIdle(PooledDataSource dataSource, long millis) {
+		long timestamp = System.currentTimeMillis() - millis;
+		if (dataSource.poolLockFree) {
+			for (ConcurrentConnectionBag.Entry entry : dataSource.getPoolState().bag.getEntries()) {
+				entry.setLastUsedTimestamp(timestamp);
+				entry.setLastValidatedTimestamp(0);
+			}
+		} else {
+			for (PooledConnection conn : dataSource.getPoolState().idleConnections) {
+				conn.setLastUsedTimestamp(timestamp);
+				conn.setLastValidatedTimestamp(0);
+			}
+		}
+	}
+
+	@Test
+	public void test1() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("housekeeping");
+		MockDriver.Database database = MockDriver.database("housekeeping");
+		dataSource.setPoolMinimumIdleConnections(1);
+		dataSource.setPoolIdleTimeout(1000);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		PoolHousekeeper housekeeper = new PoolHousekeeper(dataSource, executor);
+
+		// 补足最小空闲连接
+		housekeeper.run();
+		assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+		Connection conn1 = dataSource.getConnection();
+		Connection conn2 = dataSource.getConnection();
+		Connection conn3 = dataSource.getConnection();
+		conn1.close();
+		conn2.close();
+		conn3.close();
+		assertEquals(3, dataSource.getPoolState().getIdleConnectionCount());
+		housekeeper.run();
+		assertEquals(3, dataSource.getPoolState().getIdleConnectionCount());
+
+		// 空闲太久的连接被关闭，但保留最小空闲连接数
+		makeIdle(dataSource, 2000);
+		housekeeper.run();
+		assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+		assertEquals(1, database.getOpenCount());
+		executor.shutdown();
+	}
+
+	@Test
+	public void test2() throws Exception {
+		for (boolean lockFree : new boolean[] { false, true }) {
+			PooledDataSource dataSource = MockDriver.newDataSource("validation");
+			MockDriver.Database database = MockDriver.database("validation");
+			dataSource.setPoolLockFree(lockFree);
+			dataSource.setPoolMinimumIdleConnections(2);
+			dataSource.setPoolPingEnabled(true);
+			dataSource.setPoolPingQuery("select 1");
+			dataSource.setPoolPingConnectionsNotUsedFor(1000);
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			PoolHousekeeper housekeeper = new PoolHousekeeper(dataSource, executor);
+			housekeeper.run();
+			assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+			assertEquals(0, database.pings.get());
+
+			// 校验过的连接在下一个间隔内不再校验
+			makeIdle(dataSource, 2000);
+			housekeeper.run();
+			assertEquals(2, database.pings.get());
+			housekeeper.run();
+			assertEquals(2, database.pings.get());
+
+			// 校验失败的连接被关闭并补上新的
+			makeIdle(dataSource, 2000);
+			database.failPing = true;
+			housekeeper.run();
+			assertEquals(4, database.pings.get());
+			assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+			assertEquals(4, database.opened.get());
+			assertEquals(2, database.getOpenCount());
+			dataSource.close();
+			assertEquals(0, database.getOpenCount());
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void test3() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		PoolHousekeeper housekeeper = new PoolHousekeeper(MockDriver.newDataSource("collected"), executor);
+		// 数据源被回收后housekeeper停止自己的线程
+		for (int i = 0; i < 100 && !executor.isShutdown(); i++) {
+			System.gc();
+			housekeeper.run();
+		}
+		assertTrue(executor.isShutdown());
+	}
+}
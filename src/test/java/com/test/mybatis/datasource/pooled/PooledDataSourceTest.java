@@ -0,0 +1,207 @@
+package com.test.mybatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class PooledDataSourceTest {
+
+	@Test
+	public void test1() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("lockFree");
+		MockDriver.Database database = MockDriver.database("lockFree");
+		dataSource.setPoolLockFree(true);
+		dataSource.setPoolMaximumActiveConnections(2);
+		Connection conn1 = dataSource.getConnection();
+		Connection conn2 = dataSource.getConnection();
+		Connection real1 = PooledDataSource.unwrapConnection(conn1);
+		assertEquals(2, dataSource.getPoolState().getActiveConnectionCount());
+
+		// 归还的物理连接被再次借出
+		conn1.close();
+		Connection conn3 = dataSource.getConnection();
+		assertSame(real1, PooledDataSource.unwrapConnection(conn3));
+		assertNotSame(real1, PooledDataSource.unwrapConnection(conn2));
+		assertEquals(2, database.opened.get());
+		conn2.close();
+		conn3.close();
+		assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+		dataSource.forceCloseAll();
+		assertEquals(0, database.getOpenCount());
+	}
+
+	@Test
+	public void test2() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("lockFreeOverdue");
+		dataSource.setPoolLockFree(true);
+		dataSource.setPoolMaximumActiveConnections(1);
+		dataSource.setPoolMaximumCheckoutTime(0);
+		Connection conn1 = dataSource.getConnection();
+		Thread.sleep(5);
+		// 超过最长借出时间的连接被收回
+		Connection conn2 = dataSource.getConnection();
+		assertSame(PooledDataSource.unwrapConnection(conn1), PooledDataSource.unwrapConnection(conn2));
+		assertEquals(1, dataSource.getPoolState().getClaimedOverdueConnectionCount());
+		try {
+			conn1.createStatement();
+			fail();
+		} catch (SQLException e) {
+			// invalidated
+		}
+		conn1.close();
+		assertEquals(1, dataSource.getPoolState().getActiveConnectionCount());
+		conn2.close();
+		assertEquals(1, dataSource.getPoolState().getIdleConnectionCount());
+	}
+
+	@Test
+	public void test3() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("lockFreeWait");
+		dataSource.setPoolLockFree(true);
+		dataSource.setPoolMaximumActiveConnections(1);
+		dataSource.setPoolTimeToWait(10);
+		Connection conn1 = dataSource.getConnection();
+		AtomicReference<Connection> received = new AtomicReference<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				received.set(dataSource.getConnection());
+			} catch (SQLException e) {
+				// ignore
+			}
+		});
+		waiter.start();
+		// 等待超时后继续等待，直到有连接归还
+		while (dataSource.getPoolState().getHadToWaitCount() == 0 || dataSource.getPoolState().bag.getWaitingCount() == 0) {
+			Thread.yield();
+		}
+		Thread.sleep(30);
+		conn1.close();
+		waiter.join();
+		assertSame(PooledDataSource.unwrapConnection(conn1), PooledDataSource.unwrapConnection(received.get()));
+		assertEquals(1, dataSource.getPoolState().getHadToWaitCount());
+		assertTrue(dataSource.getPoolState().getAverageWaitTime() >= 30);
+		received.get().close();
+	}
+
+	@Test
+	public void test4() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("lockFreeRollback");
+		MockDriver.Database database = MockDriver.database("lockFreeRollback");
+		dataSource.setPoolLockFree(true);
+		dataSource.setPoolMaximumActiveConnections(1);
+		database.autoCommit = false;
+		dataSource.getConnection().close();
+
+		// 借出时回滚失败，连接被丢弃而不是一直占着池中的位置
+		database.failAutoCommit = true;
+		try {
+			dataSource.getConnection();
+			fail();
+		} catch (SQLException e) {
+			assertEquals("connection reset", e.getMessage());
+		}
+		assertEquals(0, dataSource.getPoolState().bag.getEntries().size());
+		assertEquals(0, database.getOpenCount());
+		database.failAutoCommit = false;
+		dataSource.getConnection().close();
+		assertEquals(2, database.opened.get());
+	}
+
+	@Test
+	public void test5() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("waitFailure");
+		MockDriver.Database database = MockDriver.database("waitFailure");
+		dataSource.setPoolMaximumActiveConnections(1);
+		dataSource.setPoolTimeToWait(10);
+		Connection conn1 = dataSource.getConnection();
+		AtomicReference<SQLException> failure = new AtomicReference<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				dataSource.getConnection();
+			} catch (SQLException e) {
+				failure.set(e);
+			}
+		});
+		waiter.start();
+		while (dataSource.getPoolState().getHadToWaitCount() == 0) {
+			Thread.yield();
+		}
+		Thread.sleep(30);
+		// 等待之后没能拿到连接，等待时间也计入直方图
+		database.failConnect = true;
+		dataSource.forceCloseAll();
+		waiter.join();
+		assertEquals("connection refused", failure.get().getMessage());
+		assertTrue(dataSource.getPoolState().getP99WaitTime() >= 20);
+		assertEquals(1, dataSource.getPoolState().getHadToWaitCount());
+		conn1.close();
+		assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+	}
+
+	@Test
+	public void test6() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("warmUp");
+		MockDriver.Database database = MockDriver.database("warmUp");
+		dataSource.setPoolWarmUpConnections(2);
+		dataSource.warmUp();
+		assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+
+		// 数据库没有响应时不会一直等下去，晚到的连接仍然放进池中
+		dataSource.forceCloseAll();
+		dataSource.setPoolTimeToWait(20);
+		database.connectGate = new CountDownLatch(1);
+		dataSource.warmUp();
+		assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+		database.connectGate.countDown();
+		while (dataSource.getPoolState().getIdleConnectionCount() < 2) {
+			Thread.yield();
+		}
+		assertEquals(4, database.opened.get());
+		assertEquals(2, database.getOpenCount());
+	}
+
+	@Test
+	public void test7() throws Exception {
+		PooledDataSource dataSource = MockDriver.newDataSource("statsWhileConnecting");
+		MockDriver.Database database = MockDriver.database("statsWhileConnecting");
+		Connection conn1 = dataSource.getConnection();
+		database.connectGate = new CountDownLatch(1);
+		Thread checkout = new Thread(() -> {
+			try {
+				dataSource.getConnection().close();
+			} catch (SQLException e) {
+				// ignore
+			}
+		});
+		checkout.start();
+		// 等到取连接的线程在持有池的锁时阻塞在打开物理连接上
+		while (checkout.getState() != Thread.State.WAITING) {
+			Thread.yield();
+		}
+		// 统计信息仍然可以立即读取
+		AtomicReference<PoolStatistics> statistics = new AtomicReference<>();
+		Thread monitor = new Thread(() -> {
+			statistics.set(dataSource.getPoolState().snapshot());
+			dataSource.getPoolState().toString();
+		});
+		monitor.start();
+		monitor.join(5000);
+		assertFalse(monitor.isAlive());
+		assertEquals(1, statistics.get().getActiveConnectionCount());
+		database.connectGate.countDown();
+		checkout.join();
+		conn1.close();
+		assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+		assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+	}
+}
@@ -0,0 +1,82 @@
+package com.test.mybatis.datasource.pooled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+	private static Statement newStatement(AtomicBoolean closed) {
+		return (Statement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if ("close".equals(method.getName())) {
+						closed.set(true);
+					} else if ("isClosed".equals(method.getName())) {
+						return closed.get();
+					}
+					return null;
+				});
+	}
+
+	@Test
+	public void test1() {
+		PoolState state = new PoolState(null);
+		StatementCache cache = new StatementCache(2, state);
+		AtomicBoolean closed1 = new AtomicBoolean();
+		AtomicBoolean closed2 = new AtomicBoolean();
+		AtomicBoolean closed3 = new AtomicBoolean();
+		Statement stmt1 = newStatement(closed1);
+		assertNull(cache.take("select 1"));
+		cache.release("select 1", stmt1);
+		cache.release("select 2", newStatement(closed2));
+
+		// 取出后不在缓存中，不会被淘汰
+		assertSame(stmt1, cache.take("select 1"));
+		assertEquals(1, cache.getSize());
+		cache.release("select 3", newStatement(closed3));
+		cache.release("select 1", stmt1);
+		// select 2最久没有使用，被关闭
+		assertTrue(closed2.get());
+		assertFalse(closed1.get());
+		assertEquals(2, cache.getSize());
+
+		assertEquals(1, state.getStatementCacheHitCount());
+		assertEquals(1, state.getStatementCacheMissCount());
+		assertEquals(1, state.getStatementCacheEvictionCount());
+
+		// 已关闭的Statement算作未命中
+		closed3.set(true);
+		assertNull(cache.take("select 3"));
+		cache.clear();
+		assertTrue(closed1.get());
+		assertEquals(0, cache.getSize());
+		assertEquals(2, state.getStatementCacheMissCount());
+	}
+
+	@Test
+	public void test2() {
+		StatementCache cache = new StatementCache(2, new PoolState(null));
+		AtomicBoolean closed1 = new AtomicBoolean();
+		AtomicBoolean closed2 = new AtomicBoolean();
+		cache.release("select 1", newStatement(closed1));
+		// 连接被收回时关闭缓存
+		cache.close();
+		assertTrue(cache.isClosed());
+		assertTrue(closed1.get());
+
+		// 原来的持有者之后放回的Statement直接关闭，不再缓存
+		cache.release("select 2", newStatement(closed2));
+		assertTrue(closed2.get());
+		assertEquals(0, cache.getSize());
+		assertNull(cache.take("select 2"));
+	}
+}
@@ -0,0 +1,320 @@
+package com.test.mybatis.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.test.mybatis.builder.MapperBuilderAssistant;
+import com.test.mybatis.builder.StaticSqlSource;
+import com.test.mybatis.executor.keygen.Jdbc3KeyGenerator;
+import com.test.mybatis.executor.keygen.NoKeyGenerator;
+import com.test.mybatis.executor.parameter.ParameterHandler;
+import com.test.mybatis.mapping.ParameterMapping;
+import com.test.mybatis.mapping.SqlCommandType;
+import com.test.mybatis.mapping.StatementType;
+import com.test.mybatis.plugin.Interceptor;
+import com.test.mybatis.plugin.Invocation;
+import com.test.mybatis.session.Configuration;
+import com.test.mybatis.transaction.jdbc.JdbcTransaction;
+
+public class BatchExecutorTest {
+
+	/**
+	 * 记录每次executeBatch执行的sql和行数
+	 */
+	static Connection newConnection(List<String> executed) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if ("prepareStatement".equals(method.getName())) {
+						return newStatement((String) args[0], executed);
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	private static PreparedStatement newStatement(String sql, List<String> executed) {
+		int[] rows = new int[1];
+		int inserted = sql.length() - sql.replace("?", "").length();
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if ("addBatch".equals(method.getName())) {
+						rows[0]++;
+					} else if ("executeBatch".equals(method.getName())) {
+						executed.add(sql + " x" + rows[0]);
+						int[] counts = new int[rows[0]];
+						Arrays.fill(counts, 1);
+						rows[0] = 0;
+						return counts;
+					} else if ("executeUpdate".equals(method.getName())) {
+						executed.add(sql);
+						return inserted;
+					} else if ("getGeneratedKeys".equals(method.getName())) {
+						return newKeys(inserted);
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	/**
+	 * 生成的主键从100开始
+	 */
+	private static ResultSet newKeys(int count) {
+		int[] row = new int[1];
+		ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+				ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+				(proxy, method, args) -> {
+					if ("getColumnCount".equals(method.getName())) {
+						return 1;
+					} else if ("getColumnType".equals(method.getName())) {
+						return Types.INTEGER;
+					} else if (method.getReturnType() == String.class) {
+						return "id";
+					}
+					return defaultValue(method.getReturnType());
+				});
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "next":
+						return ++row[0] <= count;
+					case "getMetaData":
+						return metaData;
+					case "getInt":
+					case "getObject":
+						return 99 + row[0];
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == int.class) {
+			return 0;
+		} else if (type == boolean.class) {
+			return false;
+		}
+		return null;
+	}
+
+	static Configuration newConfiguration(String[]... statements) {
+		Configuration configuration = new Configuration();
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "BatchExecutorTest");
+		assistant.setCurrentNamespace("test");
+		for (String[] statement : statements) {
+			assistant.addMappedStatement(statement[0], new StaticSqlSource(configuration, statement[1]),
+					StatementType.PREPARED, SqlCommandType.valueOf(statement[1].substring(0, 6).toUpperCase()), null,
+					null, null, HashMap.class, null, null, null, true, false, false, NoKeyGenerator.INSTANCE, null, null,
+					null, configuration.getDefaultScriptingLanguageInstance(), null, null,
+					statement.length > 2 ? statement[2] : null, false);
+		}
+		return configuration;
+	}
+
+	private static List<String> run(Configuration configuration, String... ids) throws Exception {
+		List<String> executed = new ArrayList<>();
+		BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(newConnection(executed)));
+		for (String id : ids) {
+			executor.update(configuration.getMappedStatement("test." + id), new HashMap<>());
+		}
+		executor.flushStatements();
+		return executed;
+	}
+
+	@Test
+	public void test1() throws Exception {
+		Configuration configuration = newConfiguration(new String[] { "parent", "insert into parent values (?)", "" },
+				new String[] { "child", "insert into child values (?)", "parent" },
+				new String[] { "touch", "update parent set touched = 1" });
+		assertEquals(6, run(configuration, "parent", "child", "parent", "child", "parent", "child").size());
+
+		// 父表和子表交替插入时，每个sql只有一个批次
+		configuration.setBatchReordering(true);
+		assertEquals(Arrays.asList("insert into parent values (?) x3", "insert into child values (?) x3"),
+				run(configuration, "parent", "child", "parent", "child", "parent", "child"));
+
+		// child声明依赖parent，不能排到前面的parent之前
+		assertEquals(
+				Arrays.asList("insert into child values (?) x1", "insert into parent values (?) x2",
+						"insert into child values (?) x1"),
+				run(configuration, "child", "parent", "child", "parent"));
+
+		// 修改同一张表的语句保持顺序
+		assertEquals(Arrays.asList("insert into parent values (?) x1", "update parent set touched = 1 x1",
+				"insert into parent values (?) x1"), run(configuration, "parent", "touch", "parent"));
+
+		// 没有声明依赖的语句不调整顺序，否则第二个child会在它引用的parent之前执行
+		Configuration undeclared = newConfiguration(new String[] { "parent", "insert into parent values (?)" },
+				new String[] { "child", "insert into child values (?)" });
+		undeclared.setBatchReordering(true);
+		assertEquals(Arrays.asList("insert into child values (?) x1", "insert into parent values (?) x1",
+				"insert into child values (?) x1"), run(undeclared, "child", "parent", "child"));
+		assertEquals(Arrays.asList("insert into parent values (?) x2", "insert into child values (?) x1"),
+				run(undeclared, "parent", "parent", "child"));
+	}
+
+	@Test
+	public void test2() throws Exception {
+		Configuration configuration = newConfiguration(new String[] { "parent", "insert into parent values (?)" },
+				new String[] { "child", "insert into child values (?)" });
+		configuration.setBatchFlushRows(2);
+		List<String> executed = new ArrayList<>();
+		BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(newConnection(executed)));
+		for (int i = 0; i < 5; i++) {
+			executor.update(configuration.getMappedStatement("test.parent"), new HashMap<>());
+		}
+		// 达到行数上限时自动执行，参数对象不再保留，同一语句的结果合并成一个
+		assertEquals(Arrays.asList("insert into parent values (?) x2", "insert into parent values (?) x2"), executed);
+		List<BatchResult> results = executor.flushStatements();
+		assertEquals(2, results.size());
+		assertEquals(0, results.get(0).getParameterObjects().size());
+		assertEquals(1, results.get(0).getUpdateCounts().length);
+		assertEquals(4, results.get(0).getUpdateCounts()[0]);
+		assertEquals(1, results.get(1).getParameterObjects().size());
+		assertEquals(1, results.get(1).getUpdateCounts().length);
+
+		configuration.setBatchFlushRows(null);
+		configuration.setBatchFlushStatements(2);
+		executed.clear();
+		executor.update(configuration.getMappedStatement("test.parent"), new HashMap<>());
+		executor.update(configuration.getMappedStatement("test.child"), new HashMap<>());
+		assertEquals(2, executed.size());
+		assertEquals(2, executor.flushStatements().size());
+	}
+
+	@Test
+	public void test3() throws Exception {
+		Configuration configuration = new Configuration();
+		configuration.setBatchRewriteChunkSize(2);
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "BatchExecutorTest");
+		assistant.setCurrentNamespace("test");
+		List<ParameterMapping> parameterMappings = Collections
+				.singletonList(new ParameterMapping.Builder(configuration, "name", Object.class).build());
+		assistant.addMappedStatement("insert",
+				new StaticSqlSource(configuration, "insert into blog (name) values (?)", parameterMappings),
+				StatementType.PREPARED, SqlCommandType.INSERT, null, null, null, HashMap.class, null, null, null, true,
+				false, false, new Jdbc3KeyGenerator(), "id", null, null,
+				configuration.getDefaultScriptingLanguageInstance(), null, null, null, true);
+		List<String> executed = new ArrayList<>();
+		BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(newConnection(executed)));
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "blog" + i);
+			rows.add(row);
+			executor.update(configuration.getMappedStatement("test.insert"), row);
+		}
+		List<BatchResult> results = executor.flushStatements();
+
+		// 每块一条多行insert
+		assertEquals(Arrays.asList("insert into blog (name) values (?),(?)", "insert into blog (name) values (?),(?)",
+				"insert into blog (name) values (?)"), executed);
+		assertEquals(1, results.size());
+		assertEquals(5, results.get(0).getUpdateCounts().length);
+		// 每块的主键按顺序赋给对应的行
+		assertEquals(100, rows.get(0).get("id"));
+		assertEquals(101, rows.get(1).get("id"));
+		assertEquals(100, rows.get(2).get("id"));
+		assertEquals(100, rows.get(4).get("id"));
+	}
+
+	@Test
+	public void test4() throws Exception {
+		Configuration configuration = new Configuration();
+		configuration.setBatchRewriteChunkSize(10);
+		configuration.setBatchRewriteMaxParameters(5);
+		// 插件包装的参数处理器只会收到从1开始的下标
+		AtomicInteger intercepted = new AtomicInteger();
+		configuration.addInterceptor(new Interceptor() {
+			@Override
+			public Object intercept(Invocation invocation) throws Throwable {
+				return invocation.proceed();
+			}
+
+			@Override
+			public Object plugin(Object target) {
+				if (!(target instanceof ParameterHandler)) {
+					return target;
+				}
+				ParameterHandler handler = (ParameterHandler) target;
+				return new ParameterHandler() {
+					@Override
+					public Object getParameterObject() {
+						return handler.getParameterObject();
+					}
+
+					@Override
+					public void setParameters(PreparedStatement ps) throws SQLException {
+						intercepted.incrementAndGet();
+						handler.setParameters(ps);
+					}
+				};
+			}
+
+			@Override
+			public void setProperties(Properties properties) {
+			}
+		});
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "BatchExecutorTest");
+		assistant.setCurrentNamespace("test");
+		List<ParameterMapping> parameterMappings = Arrays.asList(
+				new ParameterMapping.Builder(configuration, "name", Object.class).build(),
+				new ParameterMapping.Builder(configuration, "title", Object.class).build());
+		assistant.addMappedStatement("insert",
+				new StaticSqlSource(configuration, "insert into blog (name, title) values (?, ?)", parameterMappings),
+				StatementType.PREPARED, SqlCommandType.INSERT, null, null, null, HashMap.class, null, null, null, true,
+				false, false, NoKeyGenerator.INSTANCE, null, null, null,
+				configuration.getDefaultScriptingLanguageInstance(), null, null, null, true);
+		List<String> executed = new ArrayList<>();
+		Map<Integer, Object> bound = new TreeMap<>();
+		Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if (!"prepareStatement".equals(method.getName())) {
+						return defaultValue(method.getReturnType());
+					}
+					String sql = (String) args[0];
+					return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+							new Class<?>[] { PreparedStatement.class }, (p, m, a) -> {
+								if ("setObject".equals(m.getName()) || "setString".equals(m.getName())) {
+									bound.put((Integer) a[0], a[1]);
+								} else if ("executeUpdate".equals(m.getName())) {
+									executed.add(sql + " " + bound.values());
+									bound.clear();
+									return (sql.length() - sql.replace("?", "").length()) / 2;
+								}
+								return defaultValue(m.getReturnType());
+							});
+				});
+		BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(connection));
+		for (int i = 0; i < 5; i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "n" + i);
+			row.put("title", "t" + i);
+			executor.update(configuration.getMappedStatement("test.insert"), row);
+		}
+		executor.flushStatements();
+
+		// 每条语句最多5个参数，也就是2行
+		assertEquals(Arrays.asList("insert into blog (name, title) values (?, ?),(?, ?) [n0, t0, n1, t1]",
+				"insert into blog (name, title) values (?, ?),(?, ?) [n2, t2, n3, t3]",
+				"insert into blog (name, title) values (?, ?) [n4, t4]"), executed);
+		assertEquals(5, intercepted.get());
+	}
+}
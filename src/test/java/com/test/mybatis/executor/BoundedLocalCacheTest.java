@@ -0,0 +1,55 @@
+package com.test.mybatis.executor;
+
+import static com.test.mybatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.test.mybatis.cache.impl.PerpetualCache;
+
+public class BoundedLocalCacheTest {
+
+	@Test
+	public void test1() {
+		PerpetualCache outputParameters = new PerpetualCache("LocalOutputParameterCache");
+		BoundedLocalCache cache = new BoundedLocalCache("LocalCache", outputParameters);
+		cache.setMaxEntries(2);
+		cache.putObject("running", EXECUTION_PLACEHOLDER);
+		cache.putObject("k1", Collections.singletonList("a"));
+		outputParameters.putObject("k1", "out");
+		cache.putObject("k2", Collections.singletonList("b"));
+		// 放入时不淘汰，由执行器决定什么时候淘汰
+		assertEquals(3, cache.getSize());
+
+		// 占位符最旧但不会被淘汰
+		cache.evict();
+		assertEquals(2, cache.getSize());
+		assertEquals(EXECUTION_PLACEHOLDER, cache.getObject("running"));
+		assertNull(cache.getObject("k1"));
+		assertNull(outputParameters.getObject("k1"));
+		assertNotNull(cache.getObject("k2"));
+	}
+
+	@Test
+	public void test2() {
+		BoundedLocalCache cache = new BoundedLocalCache("LocalCache", new PerpetualCache("LocalOutputParameterCache"));
+		cache.setMaxBytes(1000);
+		cache.setEstimatedRowSize(100);
+		cache.putObject("k1", Arrays.asList(1, 2, 3, 4, 5));
+		cache.putObject("k2", Arrays.asList(1, 2, 3, 4));
+		cache.getObject("k1");
+		cache.putObject("k3", Arrays.asList(1, 2, 3));
+		assertEquals(1200, cache.getTotalBytes());
+		// k2最近最少使用
+		cache.evict();
+		assertNull(cache.getObject("k2"));
+		assertEquals(800, cache.getTotalBytes());
+		cache.removeObject("k1");
+		assertEquals(300, cache.getTotalBytes());
+	}
+}
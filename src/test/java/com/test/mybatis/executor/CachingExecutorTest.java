@@ -0,0 +1,136 @@
+package com.test.mybatis.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import com.test.mybatis.builder.MapperBuilderAssistant;
+import com.test.mybatis.builder.StaticSqlSource;
+import com.test.mybatis.cache.CacheKey;
+import com.test.mybatis.cache.impl.PerpetualCache;
+import com.test.mybatis.executor.keygen.NoKeyGenerator;
+import com.test.mybatis.mapping.BoundSql;
+import com.test.mybatis.mapping.Environment;
+import com.test.mybatis.mapping.MappedStatement;
+import com.test.mybatis.mapping.ParameterMapping;
+import com.test.mybatis.mapping.SqlCommandType;
+import com.test.mybatis.mapping.StatementType;
+import com.test.mybatis.session.Configuration;
+import com.test.mybatis.session.RowBounds;
+import com.test.mybatis.transaction.jdbc.JdbcTransaction;
+import com.test.mybatis.transaction.jdbc.JdbcTransactionFactory;
+
+public class CachingExecutorTest {
+
+	/**
+	 * 记录每次查询绑定的参数，查询结果总是空的
+	 */
+	private static Connection newConnection(List<Object> bound) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if ("prepareStatement".equals(method.getName())) {
+						return newStatement(bound);
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	private static PreparedStatement newStatement(List<Object> bound) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().startsWith("set") && args.length == 2 && args[0] instanceof Integer) {
+						bound.add(args[1]);
+					} else if ("getUpdateCount".equals(method.getName())) {
+						return -1;
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == int.class) {
+			return 0;
+		} else if (type == boolean.class) {
+			return false;
+		}
+		return null;
+	}
+
+	private static MappedStatement newStatement(Configuration configuration, Long timeToLive) {
+		MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "CachingExecutorTest");
+		assistant.setCurrentNamespace("test");
+		assistant.useNewCache(PerpetualCache.class, null, null, timeToLive, null, null, null, null, false, false,
+				false, null);
+		List<ParameterMapping> parameterMappings = Collections
+				.singletonList(new ParameterMapping.Builder(configuration, "id", Integer.class).build());
+		return assistant.addMappedStatement("select",
+				new StaticSqlSource(configuration, "select name from blog where id = ?", parameterMappings),
+				StatementType.PREPARED, SqlCommandType.SELECT, null, null, null, HashMap.class, null, String.class,
+				null, false, true, false, NoKeyGenerator.INSTANCE, null, null, null,
+				configuration.getDefaultScriptingLanguageInstance(), null);
+	}
+
+	private static CacheKey query(Configuration configuration, MappedStatement ms, Object parameter,
+			List<Object> bound) throws Exception {
+		CachingExecutor executor = new CachingExecutor(
+				new SimpleExecutor(configuration, new JdbcTransaction(newConnection(bound))));
+		BoundSql boundSql = ms.getBoundSql(parameter);
+		CacheKey key = executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql);
+		executor.query(ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, key, boundSql);
+		executor.close(false);
+		return key;
+	}
+
+	/**
+	 * 只有缓存项会过期的缓存才需要reloader
+	 */
+	@Test
+	public void test1() throws Exception {
+		Configuration configuration = new Configuration();
+		MappedStatement ms = newStatement(configuration, null);
+		Map<String, Object> parameter = new HashMap<>();
+		parameter.put("id", 1);
+		assertNull(query(configuration, ms, parameter, new ArrayList<>()).getReloader());
+	}
+
+	/**
+	 * reloader保存的是参数值的快照，调用者之后修改参数对象不影响后台刷新
+	 */
+	@Test
+	public void test2() throws Exception {
+		Configuration configuration = new Configuration();
+		List<Object> bound = new ArrayList<>();
+		DataSource dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+					if ("getConnection".equals(method.getName())) {
+						return newConnection(bound);
+					}
+					return defaultValue(method.getReturnType());
+				});
+		configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+		MappedStatement ms = newStatement(configuration, 60000L);
+		Map<String, Object> parameter = new HashMap<>();
+		parameter.put("id", 1);
+		CacheKey key = query(configuration, ms, parameter, bound);
+		assertNotNull(key.getReloader());
+		assertEquals(Collections.singletonList(1), bound);
+
+		parameter.put("id", 2);
+		bound.clear();
+		assertEquals(Collections.emptyList(), key.getReloader().call());
+		assertEquals(Collections.singletonList(1), bound);
+	}
+}
@@ -0,0 +1,33 @@
+package com.test.mybatis.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class SqlTablesTest {
+
+	@Test
+	public void test1() {
+		assertEquals(new HashSet<>(Arrays.asList("author", "blog", "post", "tag")),
+				SqlTables.readTables("select a.id, (select count(*) from post p where p.blog_id = b.id) "
+						+ "from app.Author a, \"BLOG\" b left outer join tag t on t.id = b.tag_id -- join comment\n"
+						+ "where a.name = 'from x' and b.id in (select blog_id from Post)"));
+		assertEquals(Collections.emptySet(), SqlTables.readTables("select 1"));
+		assertNull(SqlTables.readTables("call refresh_stats(?)"));
+	}
+
+	@Test
+	public void test2() {
+		assertEquals(Collections.singleton("author"),
+				SqlTables.writeTables("insert into Author (id, name) values (?, ?)"));
+		assertEquals(Collections.singleton("author"), SqlTables.writeTables("update `author` a set name = ?"));
+		assertEquals(new HashSet<>(Arrays.asList("blog", "post")),
+				SqlTables.writeTables("delete from blog where id = ?; delete from post where blog_id = ?"));
+		assertNull(SqlTables.writeTables("create index idx on post(blog_id)"));
+	}
+}